@@ -0,0 +1,66 @@
+package pl.put.poznan.transformer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.put.poznan.transformer.logic.BuildingClasses;
+import pl.put.poznan.transformer.logic.ReportEngine;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code BuildingClasses.calculate*} on the whole building, compared with the
+ * report engine on the object and columnar models
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class AggregationBenchmark {
+
+    private static final Set<ReportEngine.Metric> ALL_METRICS = EnumSet.allOf(ReportEngine.Metric.class);
+
+    private final BuildingClasses calculator = new BuildingClasses();
+    private final ReportEngine engine = new ReportEngine();
+
+    @Benchmark
+    public double calculateArea(BuildingState state) {
+        return calculator.calculateArea(state.building);
+    }
+
+    @Benchmark
+    public double calculateVolume(BuildingState state) {
+        return calculator.calculateVolume(state.building);
+    }
+
+    @Benchmark
+    public double calculateLuminosity(BuildingState state) {
+        return calculator.calculateLuminosity(state.building);
+    }
+
+    @Benchmark
+    public double calculateHeating(BuildingState state) {
+        return calculator.calculateHeating(state.building);
+    }
+
+    @Benchmark
+    public double columnarLuminosity(BuildingState state) {
+        return state.columnar.calculateLuminosity();
+    }
+
+    @Benchmark
+    public ReportEngine.Report reportEngine(BuildingState state) {
+        return engine.generate(state.building, ALL_METRICS);
+    }
+
+    @Benchmark
+    public ReportEngine.Report reportEngineColumnar(BuildingState state) {
+        return engine.generate(state.columnar, ALL_METRICS);
+    }
+}
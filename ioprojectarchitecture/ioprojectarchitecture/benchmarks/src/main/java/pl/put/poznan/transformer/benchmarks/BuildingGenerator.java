@@ -0,0 +1,55 @@
+package pl.put.poznan.transformer.benchmarks;
+
+import pl.put.poznan.transformer.logic.BuildingClasses;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Generator of synthetic buildings for benchmarks.
+ * Room values are pseudo-random but depend only on the seed, so every run
+ * (and every version being compared) works on the same building.
+ */
+public final class BuildingGenerator {
+
+    private BuildingGenerator() {
+    }
+
+    /**
+     * Generate a building wrapped the same way as uploaded files
+     * @param levels Number of levels
+     * @param roomsPerLevel Number of rooms on every level
+     * @param seed Seed of room values
+     * @return Wrapper with the generated building
+     */
+    public static BuildingClasses generate(int levels, int roomsPerLevel, long seed) {
+        Random random = new Random(seed);
+
+        BuildingClasses.Building building = new BuildingClasses.Building();
+        building.id = "1";
+        building.name = "Synthetic " + levels + "x" + roomsPerLevel;
+        building.levels = new ArrayList<>(levels);
+
+        for (int l = 0; l < levels; l++) {
+            BuildingClasses.Level level = new BuildingClasses.Level();
+            level.id = Integer.toString(l + 1);
+            level.name = "Level " + (l + 1);
+            level.rooms = new ArrayList<>(roomsPerLevel);
+
+            for (int r = 0; r < roomsPerLevel; r++) {
+                BuildingClasses.Room room = new BuildingClasses.Room();
+                room.id = (l + 1) + "-" + (r + 1);
+                room.name = "Room " + (r + 1);
+                room.area = 5 + random.nextInt(95) + random.nextInt(100) / 100.0;
+                room.cube = room.area * (2.5 + random.nextInt(20) / 10.0);
+                room.heating = random.nextInt(5000) / 100.0;
+                room.light = random.nextInt(2000) / 10.0;
+                level.rooms.add(room);
+            }
+            building.levels.add(level);
+        }
+
+        BuildingClasses wrapper = new BuildingClasses();
+        wrapper.building = building;
+        return wrapper;
+    }
+}
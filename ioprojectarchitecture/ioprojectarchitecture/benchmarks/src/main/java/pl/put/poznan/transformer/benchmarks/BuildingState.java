@@ -0,0 +1,47 @@
+package pl.put.poznan.transformer.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pl.put.poznan.transformer.logic.BuildingClasses;
+import pl.put.poznan.transformer.logic.ColumnarBuilding;
+import pl.put.poznan.transformer.logic.JsonReader;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Synthetic building shared by the benchmarks, in every form they need:
+ * serialized JSON, object model and columnar model.
+ * Sizes are set with JMH parameters, e.g. {@code -p levels=500 -p roomsPerLevel=200}.
+ */
+@State(Scope.Benchmark)
+public class BuildingState {
+
+    @Param({"10", "100"})
+    public int levels;
+
+    @Param({"10", "100"})
+    public int roomsPerLevel;
+
+    @Param("42")
+    public long seed;
+
+    public JsonReader reader;
+    public byte[] json;
+    public String jsonText;
+    public BuildingClasses wrapper;
+    public BuildingClasses.Building building;
+    public ColumnarBuilding columnar;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        reader = new JsonReader().preload(BuildingClasses.class);
+        wrapper = BuildingGenerator.generate(levels, roomsPerLevel, seed);
+        building = wrapper.building;
+        json = reader.writeBytes(wrapper);
+        jsonText = new String(json, StandardCharsets.UTF_8);
+        columnar = ColumnarBuilding.parse(new ByteArrayInputStream(json));
+    }
+}
@@ -0,0 +1,50 @@
+package pl.put.poznan.transformer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.put.poznan.transformer.logic.BuildingClasses;
+import pl.put.poznan.transformer.logic.ColumnarBuilding;
+import pl.put.poznan.transformer.logic.StreamingBuildingParser;
+import pl.put.poznan.transformer.logic.StreamingTotals;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of an uploaded building: object model, columnar model and streaming totals
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParsingBenchmark {
+
+    private final StreamingBuildingParser parser = new StreamingBuildingParser();
+
+    @Benchmark
+    public BuildingClasses jsonReaderBytes(BuildingState state) throws Exception {
+        return state.reader.read(state.json, BuildingClasses.class);
+    }
+
+    @Benchmark
+    public BuildingClasses jsonReaderString(BuildingState state) throws Exception {
+        return state.reader.read(state.jsonText, BuildingClasses.class);
+    }
+
+    @Benchmark
+    public ColumnarBuilding columnar(BuildingState state) throws Exception {
+        return ColumnarBuilding.parse(new ByteArrayInputStream(state.json));
+    }
+
+    @Benchmark
+    public StreamingTotals streamingTotals(BuildingState state) throws Exception {
+        StreamingTotals totals = new StreamingTotals();
+        parser.parse(new ByteArrayInputStream(state.json), totals);
+        return totals;
+    }
+}
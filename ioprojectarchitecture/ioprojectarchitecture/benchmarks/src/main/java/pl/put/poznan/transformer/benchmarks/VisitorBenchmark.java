@@ -0,0 +1,53 @@
+package pl.put.poznan.transformer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.put.poznan.transformer.rest.AreaReportVisitor;
+import pl.put.poznan.transformer.rest.HeatingReportVisitor;
+import pl.put.poznan.transformer.rest.LuminosityReportVisitor;
+import pl.put.poznan.transformer.rest.VolumeReportVisitor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code Building.accept} with each report visitor
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class VisitorBenchmark {
+
+    @Benchmark
+    public AreaReportVisitor.AreaReport area(BuildingState state) {
+        AreaReportVisitor visitor = new AreaReportVisitor();
+        state.building.accept(visitor);
+        return visitor.getReport();
+    }
+
+    @Benchmark
+    public VolumeReportVisitor.VolumeReport volume(BuildingState state) {
+        VolumeReportVisitor visitor = new VolumeReportVisitor();
+        state.building.accept(visitor);
+        return visitor.getReport();
+    }
+
+    @Benchmark
+    public LuminosityReportVisitor.LuminosityReport luminosity(BuildingState state) {
+        LuminosityReportVisitor visitor = new LuminosityReportVisitor();
+        state.building.accept(visitor);
+        return visitor.getReport();
+    }
+
+    @Benchmark
+    public HeatingReportVisitor.HeatingReport heating(BuildingState state) {
+        HeatingReportVisitor visitor = new HeatingReportVisitor();
+        state.building.accept(visitor);
+        return visitor.getReport();
+    }
+}
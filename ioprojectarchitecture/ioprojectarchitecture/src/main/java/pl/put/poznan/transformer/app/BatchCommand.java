@@ -0,0 +1,207 @@
+package pl.put.poznan.transformer.app;
+
+import pl.put.poznan.transformer.logic.BatchReportProcessor;
+import pl.put.poznan.transformer.logic.DataFormat;
+import pl.put.poznan.transformer.logic.ReportEngine;
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command line batch mode: reports of building files without starting the Spring context or HTTP server.
+ * Files are given as directories (all .json, .smile and .cbor files below them), globs or single files;
+ * the format is detected from the extension, files with other extensions are read as JSON.
+ * They are processed in parallel by {@link BatchReportProcessor} and written as NDJSON, one line per file
+ * in input order, to stdout or to reports.ndjson in the output directory. Statistics are printed to stderr
+ * at the end, also when processing fails; throughput counts only the successfully reported buildings.
+ *
+ * Usage: java -jar io-project-architecture-X.Y.jar batch [--metrics area,volume,luminosity]
+ * [--output DIR] [--threads N] PATH|GLOB...
+ */
+public class BatchCommand {
+    private static final String USAGE = "Usage: batch [--metrics area,volume,luminosity] [--output DIR] "
+            + "[--threads N] PATH|GLOB...\n"
+            + "PATH is a building file or a directory of .json, .smile and .cbor files, format by file extension";
+    private static final int WINDOW_PER_THREAD = 4;
+
+    private final PrintStream err;
+    private String[] metrics = {"area", "volume", "luminosity"};
+    private Path outputDir;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private final List<String> inputs = new ArrayList<>();
+
+    BatchCommand(PrintStream err) {
+        this.err = err;
+    }
+
+    /**
+     * Run batch mode
+     * @param args Arguments following "batch"
+     * @return Exit code: 0 when all files were reported, 1 when some failed, 2 on invalid arguments
+     */
+    public static int run(String[] args) {
+        return new BatchCommand(System.err).execute(args);
+    }
+
+    int execute(String[] args) {
+        Set<ReportEngine.Metric> requested;
+        List<Path> files;
+        try {
+            parseArguments(args);
+            requested = ReportEngine.Metric.parse(metrics);
+            files = findFiles();
+        } catch (IllegalArgumentException | IOException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        BatchReportProcessor processor = new BatchReportProcessor(pool, threads * WINDOW_PER_THREAD);
+        long start = System.nanoTime();
+        try (OutputStream output = openOutput()) {
+            processor.processFiles(files, requested, output);
+        } catch (IOException e) {
+            err.println("Batch processing failed: " + e.getMessage());
+            return 1;
+        } finally {
+            pool.shutdown();
+            printStats(processor.getProcessedCount(), processor.getErrorCount(), totalSize(files),
+                    System.nanoTime() - start);
+        }
+        return processor.getErrorCount() == 0 ? 0 : 1;
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--metrics":
+                    metrics = value(args, ++i).split(",");
+                    break;
+                case "--output":
+                    outputDir = Paths.get(value(args, ++i));
+                    break;
+                case "--threads":
+                    try {
+                        threads = Integer.parseInt(value(args, ++i));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid number of threads: " + args[i]);
+                    }
+                    if (threads < 1) {
+                        throw new IllegalArgumentException("Invalid number of threads: " + threads);
+                    }
+                    break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                    }
+                    inputs.add(args[i]);
+            }
+        }
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("No input files given");
+        }
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value of " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    /**
+     * Files of all inputs in argument order; files of a directory or glob are sorted by path
+     */
+    private List<Path> findFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String input : inputs) {
+            int wildcard = indexOfWildcard(input);
+            Path path = Paths.get(input);
+            if (wildcard >= 0) {
+                // Glob: walk from the directory part before the first wildcard
+                int separator = input.lastIndexOf('/', wildcard);
+                Path base = Paths.get(separator < 0 ? "." : input.substring(0, separator + 1));
+                PathMatcher matcher = base.getFileSystem().getPathMatcher("glob:" + input);
+                files.addAll(walk(base, file -> matcher.matches(separator < 0 ? base.relativize(file) : file)));
+            } else if (Files.isDirectory(path)) {
+                files.addAll(walk(path, file -> DataFormat.fromFileName(file.getFileName().toString()) != null));
+            } else if (Files.isRegularFile(path)) {
+                files.add(path);
+            } else {
+                throw new IllegalArgumentException("No such file or directory: " + input);
+            }
+        }
+        return files;
+    }
+
+    private static int indexOfWildcard(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if ("*?[{".indexOf(input.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<Path> walk(Path base, Predicate<Path> filter) throws IOException {
+        try (Stream<Path> paths = Files.walk(base)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(filter)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private OutputStream openOutput() throws IOException {
+        if (outputDir == null) {
+            // Not closed with the results, stdout stays usable for the JVM
+            return new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 64 * 1024) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        }
+        Files.createDirectories(outputDir);
+        return new BufferedOutputStream(Files.newOutputStream(outputDir.resolve("reports.ndjson")), 64 * 1024);
+    }
+
+    private static long totalSize(List<Path> files) {
+        long size = 0;
+        for (Path file : files) {
+            try {
+                size += Files.size(file);
+            } catch (IOException e) {
+                // Unreadable files are reported as errors, they do not add to the size
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Print statistics of the processed buildings; buildings/s counts only buildings reported without an error
+     */
+    private void printStats(long buildings, long errors, long bytes, long nanos) {
+        double seconds = nanos / 1e9;
+        err.printf(Locale.ROOT,
+                "%d buildings (%d failed), %.1f MB in %.3f s: %.1f buildings/s, %.1f MB/s, %d threads%n",
+                buildings, errors, bytes / 1e6, seconds, (buildings - errors) / seconds, bytes / 1e6 / seconds,
+                threads);
+    }
+}
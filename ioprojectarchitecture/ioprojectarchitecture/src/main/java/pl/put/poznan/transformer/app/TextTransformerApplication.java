@@ -2,16 +2,22 @@ package pl.put.poznan.transformer.app;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import java.util.Arrays;
 
 /**
  * Main Spring Boot Application class for the Text Transformer service.
  * This class serves as the entry point for the entire application and configures
  * the Spring Boot context with explicit component scanning.
+ * With "batch" as the first argument the application runs {@link BatchCommand} instead,
+ * without starting the Spring context.
  */
 @SpringBootApplication(scanBasePackages = {"pl.put.poznan.transformer.rest"})
 public class TextTransformerApplication {
 
     public static void main(String[] args) {
+        if (args.length > 0 && "batch".equals(args[0])) {
+            System.exit(BatchCommand.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
         SpringApplication.run(TextTransformerApplication.class, args);
     }
 }
@@ -0,0 +1,180 @@
+package pl.put.poznan.transformer.logic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Logger that hands messages to a background thread instead of logging on the caller thread.
+ * Level checks are done by the caller, formatting and appending by the background thread.
+ * The queue is bounded: when it is full the message is dropped, so callers never block.
+ * The number of dropped messages is logged as a warning once the queue drains.
+ *
+ * Arguments are formatted later on the background thread, so they must not be modified
+ * after logging; {@link #truncate(Object, int)} and {@link #lazy(Supplier)} defer
+ * expensive conversions to that thread as well.
+ */
+public final class AsyncLogger {
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final AtomicLong dropped = new AtomicLong();
+
+    static {
+        Thread worker = new Thread(AsyncLogger::drain, "async-logger");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private enum Level { TRACE, DEBUG, INFO, WARN }
+
+    private static class Event {
+        final Logger logger;
+        final Level level;
+        final String format;
+        final Object[] args;
+
+        Event(Logger logger, Level level, String format, Object[] args) {
+            this.logger = logger;
+            this.level = level;
+            this.format = format;
+            this.args = args;
+        }
+    }
+
+    private final Logger logger;
+
+    private AsyncLogger(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Get asynchronous logger for a class
+     * @param clazz Class named in the log
+     * @return Logger writing through the shared background thread
+     */
+    public static AsyncLogger getLogger(Class<?> clazz) {
+        return new AsyncLogger(LoggerFactory.getLogger(clazz));
+    }
+
+    public boolean isTraceEnabled() {
+        return logger.isTraceEnabled();
+    }
+
+    public boolean isDebugEnabled() {
+        return logger.isDebugEnabled();
+    }
+
+    public boolean isInfoEnabled() {
+        return logger.isInfoEnabled();
+    }
+
+    public void trace(String format, Object... args) {
+        if (logger.isTraceEnabled()) {
+            offer(Level.TRACE, format, args);
+        }
+    }
+
+    public void debug(String format, Object... args) {
+        if (logger.isDebugEnabled()) {
+            offer(Level.DEBUG, format, args);
+        }
+    }
+
+    public void info(String format, Object... args) {
+        if (logger.isInfoEnabled()) {
+            offer(Level.INFO, format, args);
+        }
+    }
+
+    public void warn(String format, Object... args) {
+        if (logger.isWarnEnabled()) {
+            offer(Level.WARN, format, args);
+        }
+    }
+
+    /**
+     * Number of messages dropped because the queue was full
+     * @return Dropped messages since start
+     */
+    public static long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Argument printing at most {@code maxChars} characters of the value
+     * @param value Value to print, converted to string on the background thread
+     * @param maxChars Maximum number of printed characters
+     * @return Argument for a log message
+     */
+    public static Object truncate(Object value, int maxChars) {
+        return lazy(() -> {
+            String text = String.valueOf(value);
+            if (text.length() <= maxChars) {
+                return text;
+            }
+            return text.substring(0, Math.max(0, maxChars)) + "... (" + text.length() + " chars)";
+        });
+    }
+
+    /**
+     * Argument computed only when the message is formatted
+     * @param supplier Computes the printed value
+     * @return Argument for a log message
+     */
+    public static Object lazy(Supplier<?> supplier) {
+        return new Object() {
+            @Override
+            public String toString() {
+                return String.valueOf(supplier.get());
+            }
+        };
+    }
+
+    private void offer(Level level, String format, Object[] args) {
+        if (!queue.offer(new Event(logger, level, format, args))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private static void drain() {
+        Logger self = LoggerFactory.getLogger(AsyncLogger.class);
+        long reported = 0;
+        while (true) {
+            try {
+                Event event = queue.take();
+                log(event);
+
+                long droppedNow = dropped.get();
+                if (droppedNow != reported && queue.isEmpty()) {
+                    self.warn("Dropped {} log messages, logging queue was full", droppedNow - reported);
+                    reported = droppedNow;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // A failing argument must not stop the logging thread
+                self.warn("Failed to write log message", e);
+            }
+        }
+    }
+
+    private static void log(Event event) {
+        switch (event.level) {
+            case TRACE:
+                event.logger.trace(event.format, event.args);
+                break;
+            case DEBUG:
+                event.logger.debug(event.format, event.args);
+                break;
+            case INFO:
+                event.logger.info(event.format, event.args);
+                break;
+            default:
+                event.logger.warn(event.format, event.args);
+                break;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package pl.put.poznan.transformer.logic;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Generates reports for many buildings in parallel.
+ * Buildings are read one by one from an NDJSON stream (one building document per line),
+ * from a zip archive of JSON files or from a list of JSON, Smile or CBOR files (format by extension),
+ * parsed and reported on a bounded pool, and the results are written as NDJSON in input order.
+ * At most {@code window} buildings are held in memory at a time, so the input can be arbitrarily long.
+ *
+ * Buildings larger than {@code maxItemBytes} are not read into memory: the rest of an oversized
+ * NDJSON line or zip entry is skipped and the building is reported as an error, so a single
+ * huge item cannot exhaust the heap.
+ */
+public class BatchReportProcessor {
+    private static final ObjectWriter resultWriter = new ObjectMapper().writerFor(Result.class);
+    /** Default size limit of a single building */
+    public static final int DEFAULT_MAX_ITEM_BYTES = 64 * 1024 * 1024;
+    /** Returned by readLine for a line longer than the limit */
+    private static final byte[] OVERSIZED_LINE = new byte[0];
+
+    /**
+     * One line of the output - report or error of a single building
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Result {
+        public long index;
+        public String name;
+        public ReportEngine.Report report;
+        public String error;
+    }
+
+    /**
+     * Building read from the input or a building file, not parsed yet
+     */
+    private static class Item {
+        final long index;
+        final String name;
+        final byte[] content;
+        final File file;
+        final DataFormat format;
+        /** Reason the building was not read, reported instead of parsing it */
+        final String error;
+
+        Item(long index, String name, byte[] content) {
+            this(index, name, content, null, DataFormat.JSON, null);
+        }
+
+        Item(long index, String name, byte[] content, File file, DataFormat format, String error) {
+            this.index = index;
+            this.name = name;
+            this.content = content;
+            this.file = file;
+            this.format = format;
+            this.error = error;
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final int window;
+    private final int maxItemBytes;
+    private final ReportEngine engine = new ReportEngine();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * @param pool Pool on which buildings are parsed and reported
+     * @param window Maximum number of buildings being processed or waiting to be written
+     */
+    public BatchReportProcessor(ForkJoinPool pool, int window) {
+        this(pool, window, DEFAULT_MAX_ITEM_BYTES);
+    }
+
+    /**
+     * @param pool Pool on which buildings are parsed and reported
+     * @param window Maximum number of buildings being processed or waiting to be written
+     * @param maxItemBytes Size limit of a single building, larger buildings are reported as errors
+     */
+    public BatchReportProcessor(ForkJoinPool pool, int window, int maxItemBytes) {
+        this.pool = pool;
+        this.window = Math.max(1, window);
+        // One byte over the limit is read to detect oversized items, so the limit stays below the array size limit
+        this.maxItemBytes = Math.max(1, Math.min(maxItemBytes, Integer.MAX_VALUE - 16));
+    }
+
+    /**
+     * Process NDJSON input, one building document per line (blank lines are ignored)
+     * @param input NDJSON input
+     * @param metrics Metrics to report
+     * @param output Output for NDJSON results
+     * @return Number of processed buildings
+     */
+    public long processNdjson(InputStream input, Set<ReportEngine.Metric> metrics, OutputStream output)
+            throws IOException {
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        InputStream buffered = new BufferedInputStream(input, 64 * 1024);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        long index = 0;
+        byte[] content;
+        while ((content = readLine(buffered, line, maxItemBytes)) != null) {
+            if (content == OVERSIZED_LINE) {
+                submit(new Item(index, null, null, null, DataFormat.JSON, tooLarge()), metrics, pending, output);
+                index++;
+            } else if (content.length > 0) {
+                submit(new Item(index, null, content), metrics, pending, output);
+                index++;
+            }
+        }
+        drain(pending, output, 0);
+        return index;
+    }
+
+    /**
+     * Process zip archive, every .json entry is one building
+     * @param input Zip archive
+     * @param metrics Metrics to report
+     * @param output Output for NDJSON results
+     * @return Number of processed buildings
+     */
+    public long processZip(InputStream input, Set<ReportEngine.Metric> metrics, OutputStream output)
+            throws IOException {
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        long index = 0;
+        try (ZipInputStream zip = new ZipInputStream(input)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory() && entry.getName().toLowerCase().endsWith(".json")) {
+                    // The rest of an oversized entry is skipped by getNextEntry
+                    byte[] content = zip.readNBytes(maxItemBytes + 1);
+                    Item item = content.length > maxItemBytes
+                            ? new Item(index, entry.getName(), null, null, DataFormat.JSON, tooLarge())
+                            : new Item(index, entry.getName(), content);
+                    submit(item, metrics, pending, output);
+                    index++;
+                }
+            }
+        }
+        drain(pending, output, 0);
+        return index;
+    }
+
+    /**
+     * Process building files; files are memory mapped and parsed on the pool,
+     * so only the files in the window are being read at a time.
+     * The format is detected from the extension (.json, .smile, .cbor), other files are read as JSON
+     * @param files Building files
+     * @param metrics Metrics to report
+     * @param output Output for NDJSON results, named by the file path
+     * @return Number of processed buildings
+     */
+    public long processFiles(List<Path> files, Set<ReportEngine.Metric> metrics, OutputStream output)
+            throws IOException {
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        long index = 0;
+        for (Path file : files) {
+            DataFormat format = DataFormat.fromFileName(file.toString());
+            if (format == null) {
+                format = DataFormat.JSON;
+            }
+            String error = size(file) > maxItemBytes ? tooLarge() : null;
+            submit(new Item(index, file.toString(), null, file.toFile(), format, error), metrics, pending, output);
+            index++;
+        }
+        drain(pending, output, 0);
+        return index;
+    }
+
+    /**
+     * Size of a building file, 0 if it cannot be read; unreadable files are reported when they are parsed
+     */
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private String tooLarge() {
+        return "Building exceeds the size limit of " + maxItemBytes + " bytes";
+    }
+
+    /**
+     * Number of buildings reported, with a report or an error, since the processor was created
+     */
+    public long getProcessedCount() {
+        return processed.sum();
+    }
+
+    /**
+     * Number of buildings reported with an error since the processor was created
+     */
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    private void submit(Item item, Set<ReportEngine.Metric> metrics, Deque<Future<byte[]>> pending,
+                        OutputStream output) throws IOException {
+        // Wait for the oldest results before reading more input, keeping memory bounded
+        drain(pending, output, window - 1);
+        pending.add(pool.submit(() -> report(item, metrics)));
+    }
+
+    /**
+     * Write finished results in input order until at most {@code remaining} are pending
+     */
+    private void drain(Deque<Future<byte[]>> pending, OutputStream output, int remaining) throws IOException {
+        while (pending.size() > remaining) {
+            try {
+                output.write(pending.poll().get());
+                output.flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pending.forEach(future -> future.cancel(true));
+                throw new InterruptedIOException("Batch processing interrupted");
+            } catch (ExecutionException e) {
+                throw new IOException("Batch processing failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Parse and report a single building, errors are reported in the result line
+     */
+    private byte[] report(Item item, Set<ReportEngine.Metric> metrics) throws IOException {
+        Result result = new Result();
+        result.index = item.index;
+        result.name = item.name;
+        if (item.error != null) {
+            result.error = item.error;
+        } else {
+            try {
+                ColumnarBuilding building = item.file != null
+                        ? ColumnarBuilding.parse(item.file, item.format)
+                        : ColumnarBuilding.parse(new ByteArrayInputStream(item.content), item.format);
+                if (building == null) {
+                    result.error = "Invalid building data";
+                } else {
+                    result.report = engine.generate(building, metrics);
+                }
+            } catch (IOException | RuntimeException e) {
+                result.error = e.getMessage();
+            }
+        }
+        if (result.error != null) {
+            errors.increment();
+        }
+        processed.increment();
+        byte[] json = resultWriter.writeValueAsBytes(result);
+        byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = '\n';
+        return line;
+    }
+
+    /**
+     * Read bytes up to the next line break; bytes of a line over the limit are skipped, not stored
+     * @return Line content without the line break, {@link #OVERSIZED_LINE} for a line over the limit,
+     * or null at the end of input
+     */
+    private static byte[] readLine(InputStream input, ByteArrayOutputStream line, int limit) throws IOException {
+        line.reset();
+        boolean oversized = false;
+        int b;
+        while ((b = input.read()) != -1 && b != '\n') {
+            if (b == '\r' || oversized) {
+                continue;
+            }
+            if (line.size() == limit) {
+                oversized = true;
+                line.reset();
+            } else {
+                line.write(b);
+            }
+        }
+        if (oversized) {
+            return OVERSIZED_LINE;
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return line.toByteArray();
+    }
+}
@@ -0,0 +1,44 @@
+package pl.put.poznan.transformer.logic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * Reader for binary Jackson formats (Smile, CBOR).
+ * Works like {@link JsonReader} on bytes, streams and files; binary content
+ * cannot be held in a String as is, so the String based operations read and write it Base64 encoded.
+ */
+public class BinaryReader extends JsonReader {
+
+    /**
+     * @param mapper Mapper created with a binary format factory
+     */
+    public BinaryReader(ObjectMapper mapper) {
+        super(mapper);
+    }
+
+    /**
+     * Read Base64 encoded binary content
+     * @param input Base64 encoding of the binary document
+     * @throws IOException if the input is not valid Base64 or not a valid document
+     */
+    @Override
+    public <T> T read(String input, Class<T> clazz) throws Exception {
+        byte[] content;
+        try {
+            content = Base64.getDecoder().decode(input);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid Base64 encoded " + mapper.getFactory().getFormatName() + " content", e);
+        }
+        return read(content, clazz);
+    }
+
+    /**
+     * Serialize object to Base64 encoded binary content
+     */
+    @Override
+    public String write(Object obj) throws Exception {
+        return Base64.getEncoder().encodeToString(writeBytes(obj));
+    }
+}
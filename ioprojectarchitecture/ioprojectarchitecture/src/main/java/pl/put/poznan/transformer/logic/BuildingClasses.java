@@ -1,12 +1,14 @@
 package pl.put.poznan.transformer.logic;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * Data classes for building structure
  * Used with Decorator Pattern for JSON serialization/deserialization
+ * Ids and names are interned in the shared {@link SymbolTable} when deserialized
  */
 public class BuildingClasses {
 
@@ -19,7 +21,9 @@ public class BuildingClasses {
     public Building building;
 
     public static class Building {
+        @JsonDeserialize(using = InternedStringDeserializer.class)
         public String id;
+        @JsonDeserialize(using = InternedStringDeserializer.class)
         public String name;
         public List<Level> levels;
 
@@ -34,7 +38,9 @@ public class BuildingClasses {
     }
 
     public static class Level {
+        @JsonDeserialize(using = InternedStringDeserializer.class)
         public String id;
+        @JsonDeserialize(using = InternedStringDeserializer.class)
         public String name;
         public List<Room> rooms;
 
@@ -49,7 +55,9 @@ public class BuildingClasses {
     }
 
     public static class Room {
+        @JsonDeserialize(using = InternedStringDeserializer.class)
         public String id;
+        @JsonDeserialize(using = InternedStringDeserializer.class)
         public String name;
         public double area;
         public double cube;
@@ -188,6 +196,63 @@ public class BuildingClasses {
 
 
 
+    /**
+     * Calculates the heating per cubic metre of a building
+     * (total heating of all rooms divided by the total volume).
+     *
+     * @param building The building for which to calculate the heating.
+     * @return The heating per cubic metre of the building.
+     */
+    public double calculateHeating(Building building) {
+        return heatingPerCube(building == null || building.levels == null ? 0.0
+                        : building.levels.stream().mapToDouble(this::totalHeating).sum(),
+                calculateVolume(building));
+    }
+
+    /**
+     * Calculates the heating per cubic metre of a level
+     * (total heating of its rooms divided by the total volume).
+     *
+     * @param level The level for which to calculate the heating.
+     * @return The heating per cubic metre of the level.
+     */
+    public double calculateHeating(Level level) {
+        return heatingPerCube(totalHeating(level), calculateVolume(level));
+    }
+
+    /**
+     * Calculates the heating per cubic metre of a room.
+     *
+     * @param room The room for which to calculate the heating.
+     * @return The heating per cubic metre of the room.
+     */
+    public double calculateHeating(Room room) {
+        if (room == null) {
+            return 0.0;
+        }
+        return heatingPerCube(room.heating, room.cube);
+    }
+
+    private double totalHeating(Level level) {
+        if (level == null || level.rooms == null) {
+            return 0.0;
+        }
+        return level.rooms.stream().mapToDouble(room -> room.heating).sum();
+    }
+
+    /**
+     * Heating divided by volume, 0 for spaces without volume.
+     *
+     * @param heating Heating of the space.
+     * @param cube Volume of the space.
+     * @return The heating per cubic metre.
+     */
+    public static double heatingPerCube(double heating, double cube) {
+        return cube == 0 ? 0.0 : heating / cube;
+    }
+
+
+
     /**
      * DTO class for detailed area report
      */
@@ -0,0 +1,43 @@
+package pl.put.poznan.transformer.logic;
+
+/**
+ * Callback interface used by {@link StreamingBuildingParser}.
+ * Receives the building structure as a sequence of events instead of an object graph,
+ * so a handler can process buildings of any size with constant memory.
+ *
+ * Ids and names of levels and the building are passed when their object ends,
+ * because in JSON they may appear after the nested lists.
+ */
+public interface BuildingHandler {
+
+    /**
+     * Called when a level object starts, before any of its rooms
+     */
+    default void startLevel() {
+    }
+
+    /**
+     * Called for every room of the current level
+     * @param id Room id
+     * @param name Room name
+     * @param area Room area
+     * @param cube Room volume
+     * @param heating Room heating
+     * @param light Room light
+     */
+    void room(String id, String name, double area, double cube, double heating, double light);
+
+    /**
+     * Called when the current level object ends
+     * @param id Level id
+     * @param name Level name
+     */
+    void endLevel(String id, String name);
+
+    /**
+     * Called when the building object ends
+     * @param id Building id
+     * @param name Building name
+     */
+    void endBuilding(String id, String name);
+}
@@ -0,0 +1,35 @@
+package pl.put.poznan.transformer.logic;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Single change of a stored building, applied by {@link EditableBuilding}.
+ * Levels are addressed by id, rooms by id within their level.
+ *
+ * ADD_LEVEL: level (with its rooms)
+ * REMOVE_LEVEL: levelId
+ * UPDATE_LEVEL: levelId, name
+ * ADD_ROOM: levelId, room
+ * REMOVE_ROOM: levelId, roomId
+ * UPDATE_ROOM: levelId, roomId and the changed values among name, area, cube, heating, light
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BuildingPatch {
+
+    public enum Operation {
+        ADD_LEVEL, REMOVE_LEVEL, UPDATE_LEVEL, ADD_ROOM, REMOVE_ROOM, UPDATE_ROOM
+    }
+
+    public Operation op;
+    public String levelId;
+    public String roomId;
+    public BuildingClasses.Level level;
+    public BuildingClasses.Room room;
+
+    // New values of UPDATE_LEVEL and UPDATE_ROOM, null values are left unchanged
+    public String name;
+    public Double area;
+    public Double cube;
+    public Double heating;
+    public Double light;
+}
@@ -0,0 +1,561 @@
+package pl.put.poznan.transformer.logic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Local store of buildings kept in an append-only log file.
+ * Every upload appends a record with the building id and the building encoded in Smile;
+ * changes of a stored building append only the {@link BuildingPatch}, deletes append a tombstone.
+ * An in-memory index maps building ids to the offset of their latest full record and of the
+ * patches appended after it, so a building is read back with a few positional reads.
+ * Records replaced or deleted stay in the log until {@link #compact()} rewrites it
+ * with live records only, folding patches into the building records.
+ *
+ * Record layout: type (1 byte), id length (4), payload length (4), CRC32C of
+ * type, id and payload (4), id (UTF-8), payload. A torn record at the end of the log
+ * (e.g. after a crash) is detected by its length or checksum and cut off on open.
+ *
+ * Recently read buildings are kept parsed, with their totals, in a bounded cache and are
+ * shared between callers, so returned buildings are changed only through {@link #patch}.
+ * All methods are thread-safe; reads run in parallel, writes and compaction are exclusive.
+ */
+public class BuildingStore implements Closeable {
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte PATCH = 3;
+    private static final int HEADER_SIZE = 13;
+
+    /**
+     * Location of the latest record of a building
+     */
+    private static class Entry {
+        final long offset;
+        final int length;
+        final int idLength;
+        final int checksum;
+
+        Entry(long offset, int length, int idLength, int checksum) {
+            this.offset = offset;
+            this.length = length;
+            this.idLength = idLength;
+            this.checksum = checksum;
+        }
+
+        long payloadOffset() {
+            return offset + HEADER_SIZE + idLength;
+        }
+
+        int payloadLength() {
+            return length - HEADER_SIZE - idLength;
+        }
+    }
+
+    /**
+     * Snapshot of store counters
+     */
+    public static class Stats {
+        public int buildings;
+        public long fileBytes;
+        public long liveBytes;
+        public long patches;
+        public long compactions;
+    }
+
+    private final Path path;
+    private final Reader payloadReader = DataFormat.SMILE.createReader();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Entry> index = new HashMap<>();
+    /** Patches appended after the latest full record of a building, in log order */
+    private final Map<String, List<Entry>> patches = new HashMap<>();
+    /** Parsed buildings, access synchronized on the map */
+    private final LruMap<String, EditableBuilding> cache;
+
+    private FileChannel channel;
+    private long fileBytes;
+    /** Bytes of the latest full records; patches are not counted, compaction folds them in */
+    private long liveBytes;
+    private long patchCount;
+    private long compactions;
+
+    private BuildingStore(Path path, int cacheEntries) {
+        this.path = path;
+        this.cache = new LruMap<>(cacheEntries);
+    }
+
+    /**
+     * Open store, creating the log file if it does not exist
+     * @param path Log file
+     * @param cacheEntries Number of parsed buildings kept in memory
+     * @return Opened store with the index rebuilt from the log
+     * @throws IOException if the log cannot be opened or read
+     */
+    public static BuildingStore open(Path path, int cacheEntries) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        BuildingStore store = new BuildingStore(path, cacheEntries);
+        store.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        store.recover();
+        return store;
+    }
+
+    /**
+     * Store building, replacing the stored building with the same id
+     * @param building Building with an id
+     * @throws IllegalArgumentException if the building has no id or invalid level or room ids;
+     * nothing is stored then
+     */
+    public void put(BuildingClasses.Building building) throws Exception {
+        if (building == null || building.id == null || building.id.isEmpty()) {
+            throw new IllegalArgumentException("Building id is required");
+        }
+        // Validate and index before anything is appended, a building that cannot be loaded is never stored
+        EditableBuilding editable = new EditableBuilding(building);
+        // Encode outside of the lock, only the append is exclusive
+        byte[] payload = payloadReader.writeBytes(building);
+
+        lock.writeLock().lock();
+        try {
+            Entry entry = append(PUT, building.id, payload);
+            Entry previous = index.put(building.id, entry);
+            if (previous != null) {
+                liveBytes -= previous.length;
+            }
+            liveBytes += entry.length;
+            dropPatches(building.id);
+            synchronized (cache) {
+                cache.put(building.id, editable);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get stored building
+     * @param id Building id
+     * @return Building with its totals, or null if no building with the id is stored
+     */
+    public EditableBuilding get(String id) throws Exception {
+        synchronized (cache) {
+            EditableBuilding cached = cache.get(id);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        Entry entry;
+        int patchCount;
+        List<byte[]> payloads;
+        lock.readLock().lock();
+        try {
+            entry = index.get(id);
+            if (entry == null) {
+                return null;
+            }
+            List<Entry> records = patchesOf(id);
+            patchCount = records.size();
+            payloads = new ArrayList<>(patchCount + 1);
+            payloads.add(readPayload(entry));
+            for (Entry patch : records) {
+                payloads.add(readPayload(patch));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        EditableBuilding building = decode(payloads);
+        lock.readLock().lock();
+        try {
+            // Do not cache a version replaced or patched while it was being parsed
+            if (index.get(id) == entry && patchesOf(id).size() == patchCount) {
+                synchronized (cache) {
+                    cache.putIfAbsent(id, building);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return building;
+    }
+
+    /**
+     * Version of stored building, read from the index without loading the building.
+     * The version is derived from the checksums of the building record and its patches, so it changes
+     * with every put and patch; compaction folding patches into a new record also changes it.
+     * @param id Building id
+     * @return Version, or null if no building with the id is stored
+     */
+    public String version(String id) {
+        lock.readLock().lock();
+        try {
+            Entry entry = index.get(id);
+            if (entry == null) {
+                return null;
+            }
+            List<Entry> records = patchesOf(id);
+            long patchHash = 0;
+            for (Entry patch : records) {
+                patchHash = 31 * patchHash + Integer.toUnsignedLong(patch.checksum);
+            }
+            return Integer.toHexString(entry.checksum) + "-" + records.size() + "-" + Long.toHexString(patchHash);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Apply a change to a stored building and append it to the log
+     * @param id Building id
+     * @param patch Change to apply
+     * @return Building after the change, or null if no building with the id is stored
+     * @throws IllegalArgumentException if the patch cannot be applied; nothing is stored then
+     */
+    public EditableBuilding patch(String id, BuildingPatch patch) throws Exception {
+        // Encode outside of the lock, only applying and appending is exclusive
+        byte[] payload = payloadReader.writeBytes(patch);
+
+        lock.writeLock().lock();
+        try {
+            EditableBuilding building = load(id);
+            if (building == null) {
+                return null;
+            }
+            building.apply(patch);
+            try {
+                Entry entry = append(PATCH, id, payload);
+                patches.computeIfAbsent(id, key -> new ArrayList<>()).add(entry);
+                patchCount++;
+            } catch (IOException e) {
+                // The change is applied in memory only, reload the building from the log next time
+                synchronized (cache) {
+                    cache.remove(id);
+                }
+                throw e;
+            }
+            synchronized (cache) {
+                cache.put(id, building);
+            }
+            return building;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Delete stored building
+     * @param id Building id
+     * @return true if the building was stored
+     */
+    public boolean delete(String id) throws IOException {
+        lock.writeLock().lock();
+        try {
+            Entry previous = index.remove(id);
+            if (previous == null) {
+                return false;
+            }
+            liveBytes -= previous.length;
+            dropPatches(id);
+            append(DELETE, id, new byte[0]);
+            synchronized (cache) {
+                cache.remove(id);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of all stored buildings
+     */
+    public List<String> ids() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(index.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrite the log with live records only, if replaced and deleted records and patches
+     * take more than the given share of the file
+     * @param minGarbageRatio Share of dead and patch bytes (0-1) above which the log is compacted
+     * @return true if the log was compacted
+     */
+    public boolean compactIfNeeded(double minGarbageRatio) throws Exception {
+        lock.readLock().lock();
+        try {
+            if (fileBytes == 0 || (double) (fileBytes - liveBytes) / fileBytes <= minGarbageRatio) {
+                return false;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        compact();
+        return true;
+    }
+
+    /**
+     * Rewrite the log with live records only, replacing patched buildings with a single full record.
+     * The new log is written and forced next to the current one, then atomically moved over it.
+     * The store switches to the new log only once the move succeeded; if writing or moving fails,
+     * the new log is deleted and the store keeps working on the current one.
+     */
+    public void compact() throws Exception {
+        lock.writeLock().lock();
+        try {
+            Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+            Map<String, Entry> newIndex = new HashMap<>();
+            long position = 0;
+            FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                for (Map.Entry<String, Entry> live : index.entrySet()) {
+                    String id = live.getKey();
+                    Entry entry = live.getValue();
+                    if (patchesOf(id).isEmpty()) {
+                        // transferTo writes at the channel position, records are written at explicit offsets
+                        target.position(position);
+                        long copied = 0;
+                        while (copied < entry.length) {
+                            copied += channel.transferTo(entry.offset + copied, entry.length - copied, target);
+                        }
+                    } else {
+                        EditableBuilding building = load(id);
+                        byte[] payload = building.read(payloadReader::writeBytes);
+                        entry = write(target, position, PUT, id, payload);
+                    }
+                    newIndex.put(id, new Entry(position, entry.length, entry.idLength, entry.checksum));
+                    position += entry.length;
+                }
+                target.force(true);
+                Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (Exception | Error e) {
+                try {
+                    target.close();
+                    Files.deleteIfExists(compacted);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+
+            // The open channel follows the moved file, the old log is released once its channel is closed
+            FileChannel previous = channel;
+            channel = target;
+            index.clear();
+            index.putAll(newIndex);
+            patches.clear();
+            patchCount = 0;
+            fileBytes = position;
+            liveBytes = position;
+            compactions++;
+            previous.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Stats getStats() {
+        lock.readLock().lock();
+        try {
+            Stats stats = new Stats();
+            stats.buildings = index.size();
+            stats.fileBytes = fileBytes;
+            stats.liveBytes = liveBytes;
+            stats.patches = patchCount;
+            stats.compactions = compactions;
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Append record at the end of the log and force it to disk, caller holds the write lock
+     */
+    private Entry append(byte type, String id, byte[] payload) throws IOException {
+        Entry entry = write(channel, fileBytes, type, id, payload);
+        channel.force(false);
+        fileBytes += entry.length;
+        return entry;
+    }
+
+    /**
+     * Write record to the channel at the given offset
+     */
+    private static Entry write(FileChannel target, long offset, byte type, String id, byte[] payload)
+            throws IOException {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        int length = HEADER_SIZE + idBytes.length + payload.length;
+
+        int checksum = checksum(type, idBytes, payload);
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.put(type).putInt(idBytes.length).putInt(payload.length).putInt(checksum);
+        record.put(idBytes).put(payload);
+        record.flip();
+
+        while (record.hasRemaining()) {
+            target.write(record, offset + record.position());
+        }
+        return new Entry(offset, length, idBytes.length, checksum);
+    }
+
+    /**
+     * Building from the cache or the log, caller holds the write lock
+     */
+    private EditableBuilding load(String id) throws Exception {
+        synchronized (cache) {
+            EditableBuilding cached = cache.get(id);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Entry entry = index.get(id);
+        if (entry == null) {
+            return null;
+        }
+        List<byte[]> payloads = new ArrayList<>();
+        payloads.add(readPayload(entry));
+        for (Entry patch : patchesOf(id)) {
+            payloads.add(readPayload(patch));
+        }
+        return decode(payloads);
+    }
+
+    /**
+     * Parse building record and replay its patches
+     * @param payloads Payload of the building record followed by payloads of its patches
+     */
+    private EditableBuilding decode(List<byte[]> payloads) throws Exception {
+        EditableBuilding building = new EditableBuilding(
+                payloadReader.read(payloads.get(0), BuildingClasses.Building.class));
+        for (int i = 1; i < payloads.size(); i++) {
+            building.apply(payloadReader.read(payloads.get(i), BuildingPatch.class));
+        }
+        return building;
+    }
+
+    private List<Entry> patchesOf(String id) {
+        return patches.getOrDefault(id, Collections.emptyList());
+    }
+
+    /**
+     * Forget patches of a replaced or deleted building, caller holds the write lock
+     */
+    private void dropPatches(String id) {
+        List<Entry> dropped = patches.remove(id);
+        if (dropped != null) {
+            patchCount -= dropped.size();
+        }
+    }
+
+    /**
+     * Rebuild the index from the log, cutting off a torn record at its end
+     */
+    private void recover() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            byte type = header.get();
+            int idLength = header.getInt();
+            int payloadLength = header.getInt();
+            int checksum = header.getInt();
+            if ((type != PUT && type != DELETE && type != PATCH) || idLength < 0 || payloadLength < 0
+                    || position + HEADER_SIZE + (long) idLength + payloadLength > size) {
+                break;
+            }
+            byte[] idBytes = readFully(position + HEADER_SIZE, idLength);
+            byte[] payload = readFully(position + HEADER_SIZE + idLength, payloadLength);
+            if (checksum(type, idBytes, payload) != checksum) {
+                break;
+            }
+
+            String id = new String(idBytes, StandardCharsets.UTF_8);
+            int length = HEADER_SIZE + idLength + payloadLength;
+            if (type == PATCH) {
+                if (index.containsKey(id)) {
+                    patches.computeIfAbsent(id, key -> new ArrayList<>())
+                            .add(new Entry(position, length, idLength, checksum));
+                    patchCount++;
+                }
+                position += length;
+                continue;
+            }
+            Entry previous = type == PUT
+                    ? index.put(id, new Entry(position, length, idLength, checksum))
+                    : index.remove(id);
+            if (previous != null) {
+                liveBytes -= previous.length;
+            }
+            if (type == PUT) {
+                liveBytes += length;
+            }
+            dropPatches(id);
+            position += length;
+        }
+        if (position < size) {
+            channel.truncate(position);
+        }
+        fileBytes = position;
+    }
+
+    private byte[] readPayload(Entry entry) throws IOException {
+        return readFully(entry.payloadOffset(), entry.payloadLength());
+    }
+
+    private byte[] readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(buffer, position);
+        return buffer.array();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - start) < 0) {
+                throw new IOException("Unexpected end of building store log");
+            }
+        }
+    }
+
+    private static int checksum(byte type, byte[] id, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(type);
+        crc.update(id);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
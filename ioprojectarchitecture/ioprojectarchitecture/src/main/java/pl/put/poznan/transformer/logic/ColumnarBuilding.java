@@ -0,0 +1,321 @@
+package pl.put.poznan.transformer.logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Compact columnar representation of a building.
+ * Room values are stored in primitive arrays (one array per attribute) and the rooms
+ * of level {@code i} occupy the index range {@code [levelStart(i), levelEnd(i))}.
+ * Compared to {@link BuildingClasses} there is no object per room and no boxed list,
+ * and calculations are plain loops over the arrays.
+ *
+ * Instances are built directly from the JSON tokens by {@link #parse(InputStream)}
+ * and are not modified afterwards.
+ */
+public class ColumnarBuilding {
+    private final String buildingId;
+    private final String buildingName;
+
+    private final String[] levelIds;
+    private final String[] levelNames;
+    /** Index of the first room of each level, with the total room count as the last entry */
+    private final int[] levelOffsets;
+
+    private final String[] roomIds;
+    private final String[] roomNames;
+    private final double[] area;
+    private final double[] cube;
+    private final double[] heating;
+    private final double[] light;
+
+    private ColumnarBuilding(Builder builder) {
+        int levels = builder.levelCount;
+        int rooms = builder.roomCount;
+        this.buildingId = builder.buildingId;
+        this.buildingName = builder.buildingName;
+        this.levelIds = Arrays.copyOf(builder.levelIds, levels);
+        this.levelNames = Arrays.copyOf(builder.levelNames, levels);
+        this.levelOffsets = Arrays.copyOf(builder.levelOffsets, levels + 1);
+        this.roomIds = Arrays.copyOf(builder.roomIds, rooms);
+        this.roomNames = Arrays.copyOf(builder.roomNames, rooms);
+        this.area = Arrays.copyOf(builder.area, rooms);
+        this.cube = Arrays.copyOf(builder.cube, rooms);
+        this.heating = Arrays.copyOf(builder.heating, rooms);
+        this.light = Arrays.copyOf(builder.light, rooms);
+    }
+
+    /**
+     * Parse building JSON straight into the columnar representation
+     * @param input JSON input stream
+     * @return Columnar building, or null if the document contains no building
+     */
+    public static ColumnarBuilding parse(InputStream input) throws IOException {
+        return parse(input, DataFormat.JSON);
+    }
+
+    /**
+     * Parse building document in the given format straight into the columnar representation
+     * @param input Input stream
+     * @param format Format of the document
+     * @return Columnar building, or null if the document contains no building
+     */
+    public static ColumnarBuilding parse(InputStream input, DataFormat format) throws IOException {
+        Builder builder = new Builder();
+        return new StreamingBuildingParser(format).parse(input, builder) ? builder.build() : null;
+    }
+
+    /**
+     * Parse building file straight into the columnar representation
+     * The file is memory mapped, only the columnar arrays are allocated on the heap
+     * @param file Building file, e.g. saved by /saveBuilding
+     * @param format Format of the file
+     * @return Columnar building, or null if the file contains no building
+     */
+    public static ColumnarBuilding parse(File file, DataFormat format) throws IOException {
+        Builder builder = new Builder();
+        return new StreamingBuildingParser(format).parse(file, builder) ? builder.build() : null;
+    }
+
+    /**
+     * Create columnar representation of an already parsed building
+     * @param building Building to convert
+     * @return Columnar building, or null if building is null
+     */
+    public static ColumnarBuilding of(BuildingClasses.Building building) {
+        if (building == null) {
+            return null;
+        }
+        Builder builder = new Builder();
+        if (building.levels != null) {
+            for (BuildingClasses.Level level : building.levels) {
+                builder.startLevel();
+                if (level.rooms != null) {
+                    for (BuildingClasses.Room room : level.rooms) {
+                        builder.room(room.id, room.name, room.area, room.cube, room.heating, room.light);
+                    }
+                }
+                builder.endLevel(level.id, level.name);
+            }
+        }
+        builder.endBuilding(building.id, building.name);
+        return builder.build();
+    }
+
+    public String getBuildingId() {
+        return buildingId;
+    }
+
+    public String getBuildingName() {
+        return buildingName;
+    }
+
+    public int levelCount() {
+        return levelIds.length;
+    }
+
+    public int roomCount() {
+        return area.length;
+    }
+
+    public String levelId(int level) {
+        return levelIds[level];
+    }
+
+    public String levelName(int level) {
+        return levelNames[level];
+    }
+
+    /** Index of the first room of a level */
+    public int levelStart(int level) {
+        return levelOffsets[level];
+    }
+
+    /** Index after the last room of a level */
+    public int levelEnd(int level) {
+        return levelOffsets[level + 1];
+    }
+
+    public String roomId(int room) {
+        return roomIds[room];
+    }
+
+    public String roomName(int room) {
+        return roomNames[room];
+    }
+
+    public double area(int room) {
+        return area[room];
+    }
+
+    public double cube(int room) {
+        return cube[room];
+    }
+
+    public double heating(int room) {
+        return heating[room];
+    }
+
+    public double light(int room) {
+        return light[room];
+    }
+
+    /**
+     * Aggregate all metrics of the rooms of a level
+     * @param level Level index
+     * @return Totals of the level
+     */
+    public MetricTotals levelTotals(int level) {
+        MetricTotals totals = new MetricTotals();
+        for (int r = levelOffsets[level], end = levelOffsets[level + 1]; r < end; r++) {
+            totals.add(area[r], cube[r], heating[r], light[r]);
+        }
+        return totals;
+    }
+
+    /**
+     * Calculates the total area of a level.
+     *
+     * @param level The level index.
+     * @return The total area of the level.
+     */
+    public double calculateArea(int level) {
+        return CompensatedSum.of(area, levelOffsets[level], levelOffsets[level + 1]);
+    }
+
+    /**
+     * Calculates the total area of the building.
+     *
+     * @return The total area of the building.
+     */
+    public double calculateArea() {
+        return sumOfLevels(area);
+    }
+
+    /**
+     * Calculates the total volume of a level.
+     *
+     * @param level The level index.
+     * @return The total volume of the level.
+     */
+    public double calculateVolume(int level) {
+        return CompensatedSum.of(cube, levelOffsets[level], levelOffsets[level + 1]);
+    }
+
+    /**
+     * Calculates the total volume of the building.
+     *
+     * @return The total volume of the building.
+     */
+    public double calculateVolume() {
+        return sumOfLevels(cube);
+    }
+
+    /**
+     * Calculates the average luminosity of a level.
+     *
+     * @param level The level index.
+     * @return The average luminosity of the level.
+     */
+    public double calculateLuminosity(int level) {
+        return averageLuminosity(levelOffsets[level], levelOffsets[level + 1]);
+    }
+
+    /**
+     * Calculates the average luminosity of the building across all rooms.
+     *
+     * @return The average luminosity of the building.
+     */
+    public double calculateLuminosity() {
+        return averageLuminosity(0, area.length);
+    }
+
+    /**
+     * Building total as the sum of the level totals
+     */
+    private double sumOfLevels(double[] values) {
+        CompensatedSum sum = new CompensatedSum();
+        for (int level = 0; level < levelCount(); level++) {
+            sum.add(CompensatedSum.of(values, levelOffsets[level], levelOffsets[level + 1]));
+        }
+        return sum.get();
+    }
+
+    private double averageLuminosity(int from, int to) {
+        if (from == to) {
+            return 0.0;
+        }
+        CompensatedSum sum = new CompensatedSum();
+        for (int i = from; i < to; i++) {
+            sum.add(MetricTotals.luminosity(area[i], light[i]));
+        }
+        return sum.get() / (to - from);
+    }
+
+    /**
+     * {@link BuildingHandler} filling growable arrays while the document is parsed
+     */
+    public static class Builder implements BuildingHandler {
+        private String buildingId;
+        private String buildingName;
+
+        private int levelCount;
+        private String[] levelIds = new String[8];
+        private String[] levelNames = new String[8];
+        private int[] levelOffsets = new int[9];
+
+        private int roomCount;
+        private String[] roomIds = new String[64];
+        private String[] roomNames = new String[64];
+        private double[] area = new double[64];
+        private double[] cube = new double[64];
+        private double[] heating = new double[64];
+        private double[] light = new double[64];
+
+        @Override
+        public void room(String id, String name, double area, double cube, double heating, double light) {
+            if (roomCount == this.area.length) {
+                int capacity = roomCount * 2;
+                roomIds = Arrays.copyOf(roomIds, capacity);
+                roomNames = Arrays.copyOf(roomNames, capacity);
+                this.area = Arrays.copyOf(this.area, capacity);
+                this.cube = Arrays.copyOf(this.cube, capacity);
+                this.heating = Arrays.copyOf(this.heating, capacity);
+                this.light = Arrays.copyOf(this.light, capacity);
+            }
+            roomIds[roomCount] = id;
+            roomNames[roomCount] = name;
+            this.area[roomCount] = area;
+            this.cube[roomCount] = cube;
+            this.heating[roomCount] = heating;
+            this.light[roomCount] = light;
+            roomCount++;
+        }
+
+        @Override
+        public void endLevel(String id, String name) {
+            if (levelCount == levelIds.length) {
+                int capacity = levelCount * 2;
+                levelIds = Arrays.copyOf(levelIds, capacity);
+                levelNames = Arrays.copyOf(levelNames, capacity);
+                levelOffsets = Arrays.copyOf(levelOffsets, capacity + 1);
+            }
+            levelIds[levelCount] = id;
+            levelNames[levelCount] = name;
+            levelCount++;
+            levelOffsets[levelCount] = roomCount;
+        }
+
+        @Override
+        public void endBuilding(String id, String name) {
+            buildingId = id;
+            buildingName = name;
+        }
+
+        public ColumnarBuilding build() {
+            return new ColumnarBuilding(this);
+        }
+    }
+}
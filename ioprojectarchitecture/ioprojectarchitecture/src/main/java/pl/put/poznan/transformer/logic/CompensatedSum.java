@@ -0,0 +1,54 @@
+package pl.put.poznan.transformer.logic;
+
+/**
+ * Running sum with Kahan compensation, the summation of {@link java.util.stream.DoubleStream#sum()}.
+ * The rounding error of every addition is carried over to the next one, so the result does not drift
+ * with the number of summands the way a plain {@code +=} loop does (e.g. adding 0.1 ten million times).
+ * Subtracting a value is adding its negation, so totals adjusted room by room stay compensated too.
+ */
+public final class CompensatedSum {
+    private double sum;
+    /** Rounding error of the additions so far, subtracted from the next summand */
+    private double compensation;
+    /** Plain sum, the result when infinite summands make the compensated sum NaN */
+    private double simpleSum;
+
+    public void add(double value) {
+        simpleSum += value;
+        double corrected = value - compensation;
+        double total = sum + corrected;
+        compensation = (total - sum) - corrected;
+        sum = total;
+    }
+
+    /**
+     * @return Sum of all added values
+     */
+    public double get() {
+        double total = sum - compensation;
+        if (Double.isNaN(total) && Double.isInfinite(simpleSum)) {
+            return simpleSum;
+        }
+        return total;
+    }
+
+    public void reset() {
+        sum = 0.0;
+        compensation = 0.0;
+        simpleSum = 0.0;
+    }
+
+    /**
+     * Compensated sum of a range of values
+     * @param values Values to sum
+     * @param from First index, inclusive
+     * @param to Last index, exclusive
+     */
+    public static double of(double[] values, int from, int to) {
+        CompensatedSum sum = new CompensatedSum();
+        for (int i = from; i < to; i++) {
+            sum.add(values[i]);
+        }
+        return sum.get();
+    }
+}
@@ -0,0 +1,110 @@
+package pl.put.poznan.transformer.logic;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.util.Locale;
+
+/**
+ * Serialization formats of building data and reports.
+ * All formats share the Jackson data model, so the same parsers, readers and
+ * DTOs work with each of them; only the token factory differs. Smile and CBOR
+ * are binary and considerably faster to parse and smaller than text JSON.
+ */
+public enum DataFormat {
+    JSON(DataFormat.JSON_VALUE, new JsonFactory()),
+    SMILE(DataFormat.SMILE_VALUE, new SmileFactory()),
+    CBOR(DataFormat.CBOR_VALUE, new CBORFactory());
+
+    public static final String JSON_VALUE = "application/json";
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+    public static final String CBOR_VALUE = "application/cbor";
+
+    private final String mediaType;
+    private final JsonFactory factory;
+
+    DataFormat(String mediaType, JsonFactory factory) {
+        this.mediaType = mediaType;
+        this.factory = factory;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Token factory of the format, thread-safe and shared
+     */
+    public JsonFactory getFactory() {
+        return factory;
+    }
+
+    public boolean isBinary() {
+        return this != JSON;
+    }
+
+    /**
+     * Create a new base reader for the format
+     * @return JsonReader for JSON, BinaryReader for binary formats
+     */
+    public JsonReader createReader() {
+        return isBinary() ? new BinaryReader(new ObjectMapper(factory)) : new JsonReader();
+    }
+
+    /**
+     * Format of a request body
+     * @param contentType Content-Type header, may be null
+     * @return Matching format, JSON when missing or not recognized
+     */
+    public static DataFormat fromContentType(String contentType) {
+        DataFormat format = match(contentType);
+        return format == null ? JSON : format;
+    }
+
+    /**
+     * Format of a response
+     * @param accept Accept header, may be null
+     * @return First accepted format, JSON when none is listed
+     */
+    public static DataFormat fromAccept(String accept) {
+        if (accept != null) {
+            for (String type : accept.split(",")) {
+                DataFormat format = match(type);
+                if (format != null) {
+                    return format;
+                }
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * Format of a building file by its extension (.json, .smile or .cbor, case insensitive)
+     * @param fileName File name or path
+     * @return Matching format, null when the extension is not recognized
+     */
+    public static DataFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        for (DataFormat format : values()) {
+            if (name.endsWith("." + format.name().toLowerCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    private static DataFormat match(String type) {
+        if (type == null) {
+            return null;
+        }
+        int parameters = type.indexOf(';');
+        String mediaType = (parameters < 0 ? type : type.substring(0, parameters)).trim().toLowerCase(Locale.ROOT);
+        for (DataFormat format : values()) {
+            if (format.mediaType.equals(mediaType)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
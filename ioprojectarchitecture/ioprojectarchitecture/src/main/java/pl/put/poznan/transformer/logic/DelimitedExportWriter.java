@@ -0,0 +1,222 @@
+package pl.put.poznan.transformer.logic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * {@link BuildingHandler} writing one CSV or TSV row per room while the building is read.
+ * Columns: level id and name, room id and name, area, cube, heating, light and luminosity
+ * (light per area, as in the luminosity report). Rows end with CRLF, as in RFC 4180.
+ *
+ * Ids and names of a level are known only when the level ends, since they may follow its rooms in the
+ * document, so the room columns of the current level are collected in a reused buffer and written with
+ * the level columns at the level end. Memory use therefore grows with the rooms of the largest level,
+ * but not with the number of levels. Rows are built in reused buffers and numbers are appended
+ * without creating strings.
+ *
+ * Ids and names starting with =, +, -, @, tab or carriage return are prefixed with an apostrophe
+ * in both formats, so spreadsheets opening the export do not evaluate them as formulas.
+ */
+public class DelimitedExportWriter implements BuildingHandler {
+
+    /**
+     * Delimited text formats
+     */
+    public enum Format {
+        CSV(',', "text/csv"),
+        TSV('\t', "text/tab-separated-values");
+
+        private final char delimiter;
+        private final String mediaType;
+
+        Format(char delimiter, String mediaType) {
+            this.delimiter = delimiter;
+            this.mediaType = mediaType;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        /**
+         * File extension of the format, without the dot
+         */
+        public String getExtension() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final String[] COLUMNS = {
+            "level_id", "level_name", "room_id", "room_name", "area", "cube", "heating", "light", "luminosity"
+    };
+
+    private final Writer writer;
+    private final Format format;
+    /** Room columns of the rows of the current level */
+    private final StringBuilder levelRows = new StringBuilder(4096);
+    /** End offset of every row in levelRows */
+    private int[] rowEnds = new int[64];
+    private int rowCount;
+    /** Row being written, level columns followed by room columns */
+    private final StringBuilder row = new StringBuilder(256);
+    private char[] chars = new char[256];
+    private long rows;
+
+    /**
+     * @param writer Output of the rows, not closed by the exporter
+     * @param format Row format
+     */
+    public DelimitedExportWriter(Writer writer, Format format) {
+        this.writer = writer;
+        this.format = format;
+    }
+
+    /**
+     * Write header and rows of the building parsed from the stream
+     * @param parser Parser of the input format
+     * @param input Building document
+     * @param projection Levels to export, must include all room values
+     * @return true if the document contained a building, only the header is written otherwise
+     */
+    public boolean write(StreamingBuildingParser parser, InputStream input, Projection projection)
+            throws IOException {
+        row.setLength(0);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) {
+                row.append(format.delimiter);
+            }
+            row.append(COLUMNS[i]);
+        }
+        writeRow();
+        boolean found;
+        try {
+            found = parser.parse(input, this, projection);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return found;
+    }
+
+    /**
+     * Number of room rows written
+     */
+    public long getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public void startLevel() {
+        levelRows.setLength(0);
+        rowCount = 0;
+    }
+
+    @Override
+    public void room(String id, String name, double area, double cube, double heating, double light) {
+        appendField(levelRows, id);
+        levelRows.append(format.delimiter);
+        appendField(levelRows, name);
+        levelRows.append(format.delimiter).append(area);
+        levelRows.append(format.delimiter).append(cube);
+        levelRows.append(format.delimiter).append(heating);
+        levelRows.append(format.delimiter).append(light);
+        levelRows.append(format.delimiter).append(MetricTotals.luminosity(area, light));
+        if (rowCount == rowEnds.length) {
+            rowEnds = Arrays.copyOf(rowEnds, rowCount * 2);
+        }
+        rowEnds[rowCount++] = levelRows.length();
+    }
+
+    @Override
+    public void endLevel(String id, String name) {
+        try {
+            int start = 0;
+            for (int i = 0; i < rowCount; i++) {
+                row.setLength(0);
+                appendField(row, id);
+                row.append(format.delimiter);
+                appendField(row, name);
+                row.append(format.delimiter);
+                row.append(levelRows, start, rowEnds[i]);
+                writeRow();
+                start = rowEnds[i];
+            }
+            rows += rowCount;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void endBuilding(String id, String name) {
+    }
+
+    /**
+     * Write the row buffer followed by CRLF, without converting it to a string
+     */
+    private void writeRow() throws IOException {
+        row.append("\r\n");
+        int length = row.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        row.getChars(0, length, chars, 0);
+        writer.write(chars, 0, length);
+    }
+
+    /**
+     * Append text field; CSV fields with delimiters, quotes or line breaks are quoted,
+     * in TSV tabs and line breaks are replaced by spaces.
+     * Fields that a spreadsheet would read as a formula are prefixed with an apostrophe first.
+     */
+    private void appendField(StringBuilder target, String value) {
+        if (value == null) {
+            return;
+        }
+        if (isFormula(value)) {
+            value = "'" + value;
+        }
+        if (format == Format.TSV) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                target.append(c == '\t' || c == '\n' || c == '\r' ? ' ' : c);
+            }
+            return;
+        }
+        if (!needsQuotes(value)) {
+            target.append(value);
+            return;
+        }
+        target.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                target.append('"');
+            }
+            target.append(c);
+        }
+        target.append('"');
+    }
+
+    private static boolean isFormula(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        char first = value.charAt(0);
+        return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+    }
+
+    private boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == format.delimiter || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,466 @@
+package pl.put.poznan.transformer.logic;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Building with maintained totals, changed in place by {@link BuildingPatch} operations.
+ * Totals of every level and of the whole building, including the luminosity sum and room count
+ * behind the average, are adjusted by each change instead of being recomputed, so an edit
+ * costs O(1) aggregate updates whatever the size of the building.
+ *
+ * Every level and every room needs an id unique in the building; the constructor and patches
+ * reject buildings breaking this, so an id always addresses a single level or room.
+ * Levels and rooms with integer ids (as documented in the README) are also indexed by
+ * int-keyed open addressing maps, so a single level or room is found by id in O(1)
+ * without scanning the level and room lists.
+ *
+ * Instances are shared between requests: the building is read only inside {@link #read}
+ * and changed only through {@link #apply}. Reads run in parallel, changes are exclusive.
+ */
+public class EditableBuilding {
+
+    /**
+     * Snapshot of maintained totals
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Totals {
+        public String buildingId;
+        public String buildingName;
+        public MetricTotals totals;
+        public List<LevelTotals> levels;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class LevelTotals {
+        public String levelId;
+        public String levelName;
+        public MetricTotals totals;
+    }
+
+    /**
+     * Single level with its maintained totals
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class LevelDetails {
+        public String buildingId;
+        public String levelId;
+        public String levelName;
+        public MetricTotals totals;
+    }
+
+    /**
+     * Single room with its metrics
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class RoomDetails {
+        public String buildingId;
+        public String levelId;
+        public String roomId;
+        public String roomName;
+        public double area;
+        public double cube;
+        public double heating;
+        public double light;
+        public double luminosity;
+        public double heatingPerCube;
+    }
+
+    /**
+     * Read access to the building
+     */
+    public interface Reading<T> {
+        T apply(BuildingClasses.Building building) throws Exception;
+    }
+
+    /**
+     * Level with the totals and id index of its rooms
+     */
+    private static class LevelState {
+        final BuildingClasses.Level level;
+        final MetricTotals totals = new MetricTotals();
+        final Map<String, BuildingClasses.Room> rooms = new HashMap<>();
+
+        LevelState(BuildingClasses.Level level) {
+            this.level = level;
+        }
+    }
+
+    /** Returned by {@link #intId} for ids that are not integers */
+    private static final long NOT_INT = Long.MIN_VALUE;
+
+    private final BuildingClasses.Building building;
+    private final Map<String, LevelState> levels = new HashMap<>();
+    /** Ids of all rooms of the building */
+    private final Set<String> roomIds = new HashSet<>();
+    private final MetricTotals totals = new MetricTotals();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Integer id index: level id -> position in building.levels,
+    // room id -> id of its level and position in level.rooms
+    private final IntIntHashMap levelPositions = new IntIntHashMap();
+    private final IntIntHashMap roomLevels = new IntIntHashMap();
+    private final IntIntHashMap roomPositions = new IntIntHashMap();
+
+    /**
+     * Index building and compute its totals once
+     * @param building Building, owned by this instance from now on
+     * @throws IllegalArgumentException if a level or room has no id or an id is repeated
+     */
+    public EditableBuilding(BuildingClasses.Building building) {
+        this.building = building;
+        if (building.levels == null) {
+            building.levels = new ArrayList<>();
+        }
+        for (int i = 0; i < building.levels.size(); i++) {
+            BuildingClasses.Level level = building.levels.get(i);
+            validate(level);
+            require(!levels.containsKey(level.id), "Duplicate level id: " + level.id);
+            for (BuildingClasses.Room room : level.rooms) {
+                require(roomIds.add(room.id), "Duplicate room id: " + room.id);
+            }
+            index(level, i);
+        }
+    }
+
+    public String getId() {
+        return building.id;
+    }
+
+    /**
+     * Read building while no change is applied
+     * @param reading Read operation, must not modify the building or keep references to it
+     * @return Result of the read operation
+     */
+    public <T> T read(Reading<T> reading) throws Exception {
+        lock.readLock().lock();
+        try {
+            return reading.apply(building);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Apply a change, updating the totals of the affected level and of the building
+     * @param patch Change to apply
+     * @throws IllegalArgumentException if the patch is incomplete or refers to missing levels or rooms;
+     * the building is left unchanged
+     */
+    public void apply(BuildingPatch patch) {
+        if (patch == null || patch.op == null) {
+            throw new IllegalArgumentException("Patch operation is required");
+        }
+        lock.writeLock().lock();
+        try {
+            applyLocked(patch);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applyLocked(BuildingPatch patch) {
+        switch (patch.op) {
+            case ADD_LEVEL:
+                addLevel(patch.level);
+                break;
+            case REMOVE_LEVEL:
+                removeLevel(patch.levelId);
+                break;
+            case UPDATE_LEVEL:
+                require(patch.name != null, "Level name is required");
+                level(patch.levelId).level.name = patch.name;
+                break;
+            case ADD_ROOM:
+                addRoom(patch.levelId, patch.room);
+                break;
+            case REMOVE_ROOM:
+                removeRoom(patch.levelId, patch.roomId);
+                break;
+            case UPDATE_ROOM:
+                updateRoom(patch);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported patch operation: " + patch.op);
+        }
+    }
+
+    /**
+     * Copy of the current totals of the building and its levels
+     */
+    public Totals getTotals() {
+        lock.readLock().lock();
+        try {
+            Totals snapshot = new Totals();
+            snapshot.buildingId = building.id;
+            snapshot.buildingName = building.name;
+            snapshot.totals = copy(totals);
+            snapshot.levels = new ArrayList<>(building.levels.size());
+            for (BuildingClasses.Level level : building.levels) {
+                LevelTotals levelTotals = new LevelTotals();
+                levelTotals.levelId = level.id;
+                levelTotals.levelName = level.name;
+                levelTotals.totals = copy(levels.get(level.id).totals);
+                snapshot.levels.add(levelTotals);
+            }
+            return snapshot;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find level by its integer id
+     * @return Level with its totals, or null if there is no such level
+     */
+    public LevelDetails findLevel(int levelId) {
+        lock.readLock().lock();
+        try {
+            int position = levelPositions.get(levelId, -1);
+            if (position < 0) {
+                return null;
+            }
+            BuildingClasses.Level level = building.levels.get(position);
+            LevelDetails details = new LevelDetails();
+            details.buildingId = building.id;
+            details.levelId = level.id;
+            details.levelName = level.name;
+            details.totals = copy(levels.get(level.id).totals);
+            return details;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find room by its integer id
+     * @return Room with its metrics, or null if there is no such room
+     */
+    public RoomDetails findRoom(int roomId) {
+        lock.readLock().lock();
+        try {
+            int position = roomPositions.get(roomId, -1);
+            if (position < 0) {
+                return null;
+            }
+            int levelPosition = levelPositions.get(roomLevels.get(roomId, 0), -1);
+            if (levelPosition < 0) {
+                return null;
+            }
+            BuildingClasses.Level level = building.levels.get(levelPosition);
+            BuildingClasses.Room room = level.rooms.get(position);
+            RoomDetails details = new RoomDetails();
+            details.buildingId = building.id;
+            details.levelId = level.id;
+            details.roomId = room.id;
+            details.roomName = room.name;
+            details.area = room.area;
+            details.cube = room.cube;
+            details.heating = room.heating;
+            details.light = room.light;
+            details.luminosity = MetricTotals.luminosity(room.area, room.light);
+            details.heatingPerCube = BuildingClasses.heatingPerCube(room.heating, room.cube);
+            return details;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addLevel(BuildingClasses.Level level) {
+        validate(level);
+        require(!levels.containsKey(level.id), "Level already exists: " + level.id);
+        for (BuildingClasses.Room room : level.rooms) {
+            require(!roomIds.contains(room.id), "Room already exists: " + room.id);
+        }
+        for (BuildingClasses.Room room : level.rooms) {
+            roomIds.add(room.id);
+        }
+        building.levels.add(level);
+        index(level, building.levels.size() - 1);
+    }
+
+    private void removeLevel(String levelId) {
+        LevelState state = level(levelId);
+        int position = building.levels.indexOf(state.level);
+        building.levels.remove(position);
+        levels.remove(levelId);
+        totals.remove(state.totals);
+
+        long intId = intId(levelId);
+        if (intId != NOT_INT) {
+            levelPositions.remove((int) intId);
+        }
+        for (BuildingClasses.Room room : state.level.rooms) {
+            roomIds.remove(room.id);
+            unindexRoom(room);
+        }
+        // Later levels moved one position back
+        for (int i = position; i < building.levels.size(); i++) {
+            indexLevel(building.levels.get(i), i);
+        }
+    }
+
+    private void addRoom(String levelId, BuildingClasses.Room room) {
+        require(room != null && room.id != null, "Room with an id is required");
+        LevelState state = level(levelId);
+        require(!roomIds.contains(room.id), "Room already exists: " + room.id);
+        roomIds.add(room.id);
+        state.level.rooms.add(room);
+        indexRoom(state.level, room, state.level.rooms.size() - 1);
+        state.rooms.put(room.id, room);
+        state.totals.add(room);
+        totals.add(room);
+    }
+
+    private void removeRoom(String levelId, String roomId) {
+        LevelState state = level(levelId);
+        BuildingClasses.Room room = room(state, roomId);
+        int position = state.level.rooms.indexOf(room);
+        state.level.rooms.remove(position);
+        state.rooms.remove(roomId);
+        roomIds.remove(roomId);
+        unindexRoom(room);
+        // Later rooms of the level moved one position back
+        for (int i = position; i < state.level.rooms.size(); i++) {
+            indexRoom(state.level, state.level.rooms.get(i), i);
+        }
+        state.totals.remove(room);
+        totals.remove(room);
+    }
+
+    private void updateRoom(BuildingPatch patch) {
+        LevelState state = level(patch.levelId);
+        BuildingClasses.Room room = room(state, patch.roomId);
+
+        // Take the old values out of the totals and add the new ones back
+        state.totals.remove(room);
+        totals.remove(room);
+        if (patch.name != null) {
+            room.name = patch.name;
+        }
+        if (patch.area != null) {
+            room.area = patch.area;
+        }
+        if (patch.cube != null) {
+            room.cube = patch.cube;
+        }
+        if (patch.heating != null) {
+            room.heating = patch.heating;
+        }
+        if (patch.light != null) {
+            room.light = patch.light;
+        }
+        state.totals.add(room);
+        totals.add(room);
+    }
+
+    /**
+     * Check that the level and its rooms have ids and room ids are not repeated in the level;
+     * a missing room list is replaced by an empty one
+     */
+    private static void validate(BuildingClasses.Level level) {
+        require(level != null && level.id != null, "Level with an id is required");
+        if (level.rooms == null) {
+            level.rooms = new ArrayList<>();
+        }
+        Set<String> roomIds = new HashSet<>();
+        for (BuildingClasses.Room room : level.rooms) {
+            require(room != null && room.id != null, "Room with an id is required in level " + level.id);
+            require(roomIds.add(room.id), "Duplicate room id in level " + level.id + ": " + room.id);
+        }
+    }
+
+    private void index(BuildingClasses.Level level, int position) {
+        if (level.rooms == null) {
+            level.rooms = new ArrayList<>();
+        }
+        LevelState state = new LevelState(level);
+        for (int i = 0; i < level.rooms.size(); i++) {
+            BuildingClasses.Room room = level.rooms.get(i);
+            state.rooms.put(room.id, room);
+            state.totals.add(room);
+            indexRoom(level, room, i);
+        }
+        levels.put(level.id, state);
+        totals.add(state.totals);
+        indexLevel(level, position);
+    }
+
+    private void indexLevel(BuildingClasses.Level level, int position) {
+        long levelId = intId(level.id);
+        if (levelId != NOT_INT) {
+            levelPositions.put((int) levelId, position);
+        }
+    }
+
+    private void indexRoom(BuildingClasses.Level level, BuildingClasses.Room room, int position) {
+        long levelId = intId(level.id);
+        long roomId = intId(room.id);
+        if (levelId != NOT_INT && roomId != NOT_INT) {
+            roomLevels.put((int) roomId, (int) levelId);
+            roomPositions.put((int) roomId, position);
+        }
+    }
+
+    private void unindexRoom(BuildingClasses.Room room) {
+        long roomId = intId(room.id);
+        if (roomId != NOT_INT) {
+            roomLevels.remove((int) roomId);
+            roomPositions.remove((int) roomId);
+        }
+    }
+
+    /**
+     * Integer value of an id, parsed without exceptions for ids that are not integers
+     * @return Value of the id, or NOT_INT
+     */
+    private static long intId(String id) {
+        if (id == null || id.isEmpty() || id.length() > 11) {
+            return NOT_INT;
+        }
+        int start = id.charAt(0) == '-' ? 1 : 0;
+        if (start == id.length()) {
+            return NOT_INT;
+        }
+        long value = 0;
+        for (int i = start; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return NOT_INT;
+            }
+            value = value * 10 + (c - '0');
+        }
+        value = start == 1 ? -value : value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? NOT_INT : value;
+    }
+
+    private LevelState level(String levelId) {
+        LevelState state = levels.get(levelId);
+        require(state != null, "Level not found: " + levelId);
+        return state;
+    }
+
+    private static BuildingClasses.Room room(LevelState state, String roomId) {
+        BuildingClasses.Room room = state.rooms.get(roomId);
+        require(room != null, "Room not found: " + roomId);
+        return room;
+    }
+
+    private static MetricTotals copy(MetricTotals totals) {
+        MetricTotals copy = new MetricTotals();
+        copy.add(totals);
+        return copy;
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
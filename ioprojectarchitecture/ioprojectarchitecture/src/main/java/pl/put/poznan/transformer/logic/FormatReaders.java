@@ -0,0 +1,33 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Reader chains of all supported data formats.
+ * Requests pick the chain matching their Content-Type or Accept header.
+ */
+public class FormatReaders {
+    private final Map<DataFormat, Reader> readers;
+
+    /**
+     * @param readers Reader of every supported format
+     */
+    public FormatReaders(Map<DataFormat, Reader> readers) {
+        this.readers = new EnumMap<>(readers);
+    }
+
+    /**
+     * Get reader of a format
+     * @param format Data format
+     * @return Reader for the format
+     * @throws IllegalArgumentException if no reader is configured for the format
+     */
+    public Reader get(DataFormat format) {
+        Reader reader = readers.get(format);
+        if (reader == null) {
+            throw new IllegalArgumentException("Unsupported data format: " + format);
+        }
+        return reader;
+    }
+}
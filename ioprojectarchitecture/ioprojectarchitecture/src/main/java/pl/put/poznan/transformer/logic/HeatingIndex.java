@@ -0,0 +1,155 @@
+package pl.put.poznan.transformer.logic;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rooms of a building sorted by heating per cubic metre.
+ * The index is built once per building; a threshold query is then a binary search
+ * followed by copying the matching tail, instead of a scan over all rooms.
+ * Instances are immutable and can be queried from many threads.
+ */
+public class HeatingIndex {
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Entry {
+        public String roomId;
+        public String roomName;
+        public String levelId;
+        public double heating;
+        public double cube;
+        public double heatingPerCube;
+    }
+
+    private final ColumnarBuilding building;
+    /** Room indexes ordered by ascending heating per cubic metre */
+    private final int[] order;
+    /** Heating per cubic metre of the rooms, in the same order as {@link #order} */
+    private final double[] sortedValues;
+    /** Level index of every room */
+    private final int[] roomLevels;
+
+    private HeatingIndex(ColumnarBuilding building) {
+        this.building = building;
+        int rooms = building.roomCount();
+
+        double[] values = new double[rooms];
+        roomLevels = new int[rooms];
+        for (int level = 0; level < building.levelCount(); level++) {
+            for (int room = building.levelStart(level); room < building.levelEnd(level); room++) {
+                values[room] = BuildingClasses.heatingPerCube(building.heating(room), building.cube(room));
+                roomLevels[room] = level;
+            }
+        }
+
+        order = sortedOrder(values);
+        sortedValues = new double[rooms];
+        for (int i = 0; i < rooms; i++) {
+            sortedValues[i] = values[order[i]];
+        }
+    }
+
+    /**
+     * Room indexes ordered by ascending value, rooms with equal values in room order.
+     * Every room is packed into one long: the value's bits mapped to a signed long with the same
+     * order, with the low bits replaced by the room index. The keys are sorted as primitives,
+     * without boxing a comparator argument per comparison; rooms are then read from the low bits.
+     * Values differing only in the replaced bits may end up in room order, an insertion pass over
+     * the exact values restores their order. Ordering is that of {@link Double#compare}.
+     */
+    static int[] sortedOrder(double[] values) {
+        int rooms = values.length;
+        int roomBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(rooms));
+        long roomMask = (1L << roomBits) - 1;
+        long[] keys = new long[rooms];
+        for (int room = 0; room < rooms; room++) {
+            long bits = Double.doubleToLongBits(values[room]);
+            // Negative values: flip all but the sign bit, so larger magnitudes sort lower
+            long ordered = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+            keys[room] = (ordered & ~roomMask) | room;
+        }
+        Arrays.sort(keys);
+
+        int[] order = new int[rooms];
+        for (int i = 0; i < rooms; i++) {
+            order[i] = (int) (keys[i] & roomMask);
+        }
+        for (int i = 1; i < rooms; i++) {
+            int room = order[i];
+            int j = i - 1;
+            while (j >= 0 && Double.compare(values[order[j]], values[room]) > 0) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = room;
+        }
+        return order;
+    }
+
+    /**
+     * Build heating index of a building
+     * @param building Building in columnar form
+     * @return Index of the building rooms
+     */
+    public static HeatingIndex of(ColumnarBuilding building) {
+        return new HeatingIndex(building);
+    }
+
+    public String getBuildingId() {
+        return building.getBuildingId();
+    }
+
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * Find rooms with heating per cubic metre strictly above the threshold
+     * @param threshold Heating per cubic metre
+     * @param limit Maximum number of rooms to return, 0 or less for no limit
+     * @return Matching rooms, highest heating per cubic metre first
+     */
+    public List<Entry> above(double threshold, int limit) {
+        int first = upperBound(threshold);
+        int count = order.length - first;
+        if (limit > 0) {
+            count = Math.min(count, limit);
+        }
+        List<Entry> result = new ArrayList<>(count);
+        for (int i = order.length - 1; i >= order.length - count; i--) {
+            result.add(entry(i));
+        }
+        return result;
+    }
+
+    /**
+     * Index of the first value greater than the threshold
+     */
+    private int upperBound(double threshold) {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedValues[mid] <= threshold) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Entry entry(int position) {
+        int room = order[position];
+        Entry entry = new Entry();
+        entry.roomId = building.roomId(room);
+        entry.roomName = building.roomName(room);
+        entry.levelId = building.levelId(roomLevels[room]);
+        entry.heating = building.heating(room);
+        entry.cube = building.cube(room);
+        entry.heatingPerCube = sortedValues[position];
+        return entry;
+    }
+}
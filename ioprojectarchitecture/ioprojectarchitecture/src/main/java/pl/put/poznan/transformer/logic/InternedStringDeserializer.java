@@ -0,0 +1,29 @@
+package pl.put.poznan.transformer.logic;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+import java.io.IOException;
+
+/**
+ * Deserializer of building ids and names returning instances from the shared {@link SymbolTable}.
+ * String tokens are interned straight from the parser buffer; other tokens (e.g. numeric ids)
+ * are converted like by the default String deserializer and then interned.
+ */
+public class InternedStringDeserializer extends StdScalarDeserializer<String> {
+
+    public InternedStringDeserializer() {
+        super(String.class);
+    }
+
+    @Override
+    public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        SymbolTable symbols = SymbolTable.shared();
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            return symbols.intern(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        return symbols.intern(StringDeserializer.instance.deserialize(parser, context));
+    }
+}
@@ -1,16 +1,57 @@
 package pl.put.poznan.transformer.logic;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Base implementation of Reader interface for JSON operations.
  * This is the concrete component in the Decorator pattern.
  * Provides basic JSON reading, writing, and object creation functionality.
+ *
+ * One instance is meant to be shared: the mapper and the per class
+ * {@link ObjectReader}/{@link ObjectWriter} instances are thread-safe and are
+ * resolved once, so Jackson's (de)serializer caches are reused between calls.
  */
 public class JsonReader implements Reader {
-    protected ObjectMapper mapper = new ObjectMapper();
+    protected final ObjectMapper mapper;
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ObjectWriter> prettyWriters = new ConcurrentHashMap<>();
+
+    public JsonReader() {
+        this(new ObjectMapper());
+    }
+
+    /**
+     * Constructor with custom mapper
+     * @param mapper Mapper used for all reads and writes
+     */
+    public JsonReader(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Resolve readers and writers of the given classes up front,
+     * so the first request does not pay for introspection
+     * @param types Classes that will be read or written
+     * @return this reader
+     */
+    public JsonReader preload(Class<?>... types) {
+        for (Class<?> type : types) {
+            readerFor(type);
+            writerFor(type);
+        }
+        return this;
+    }
 
     /**
      * Read JSON string and convert to object of specified class
@@ -20,18 +61,44 @@ public class JsonReader implements Reader {
      */
     @Override
     public <T> T read(String input, Class<T> clazz) throws Exception {
-        return mapper.readValue(input, clazz);
+        return readerFor(clazz).readValue(input);
     }
 
     /**
      * Read JSON from file and convert to object
+     * The file is memory mapped, so large files are parsed without loading them into the heap
      * @param file JSON file
      * @param clazz Target class type
      * @return Deserialized object
      */
     @Override
     public <T> T readFromFile(File file, Class<T> clazz) throws Exception {
-        return mapper.readValue(file, clazz);
+        // The parser reads straight from the mapped file, no heap copy of the whole content
+        try (InputStream input = new MappedFileInputStream(file)) {
+            return readerFor(clazz).readValue(input);
+        }
+    }
+
+    /**
+     * Read JSON from stream and convert to object
+     * @param input JSON input stream
+     * @param clazz Target class type
+     * @return Deserialized object
+     */
+    @Override
+    public <T> T read(InputStream input, Class<T> clazz) throws Exception {
+        return readerFor(clazz).readValue(input);
+    }
+
+    /**
+     * Read JSON from byte array and convert to object
+     * @param input JSON content as bytes
+     * @param clazz Target class type
+     * @return Deserialized object
+     */
+    @Override
+    public <T> T read(byte[] input, Class<T> clazz) throws Exception {
+        return readerFor(clazz).readValue(input);
     }
 
     /**
@@ -41,16 +108,45 @@ public class JsonReader implements Reader {
      */
     @Override
     public String write(Object obj) throws Exception {
-        return mapper.writeValueAsString(obj);
+        return writerFor(obj.getClass()).writeValueAsString(obj);
+    }
+
+    /**
+     * Write object to JSON bytes
+     * @param obj Object to serialize
+     * @return UTF-8 encoded JSON
+     */
+    @Override
+    public byte[] writeBytes(Object obj) throws Exception {
+        return writerFor(obj.getClass()).writeValueAsBytes(obj);
     }
 
     /**
      * Write object to JSON file
+     * The content is written to a temporary file next to the target, which then replaces the target
+     * in one atomic move. The target is never truncated in place, so readers that have it mapped
+     * ({@link #readFromFile}) keep reading the previous complete content.
      * @param obj Object to serialize
      * @param file Target file
      */
     @Override
     public void writeToFile(Object obj, File file) throws Exception {
-        mapper.writerWithDefaultPrettyPrinter().writeValue(file, obj);
+        Path target = file.toPath().toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+        try {
+            prettyWriters.computeIfAbsent(obj.getClass(), type -> writerFor(type).withDefaultPrettyPrinter())
+                    .writeValue(temporary.toFile(), obj);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private ObjectReader readerFor(Class<?> type) {
+        return readers.computeIfAbsent(type, mapper::readerFor);
+    }
+
+    private ObjectWriter writerFor(Class<?> type) {
+        return writers.computeIfAbsent(type, mapper::writerFor);
     }
-}
\ No newline at end of file
+}
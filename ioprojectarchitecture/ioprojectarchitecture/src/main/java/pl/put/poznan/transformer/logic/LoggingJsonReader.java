@@ -1,72 +1,130 @@
 package pl.put.poznan.transformer.logic;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import java.io.File;
+import java.io.InputStream;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Decorator that adds logging functionality to Reader operations.
  * This is a concrete decorator in the Decorator pattern.
- * Logs all read and write operations before delegating to wrapped Reader.
+ * Logs read and write operations of the wrapped Reader through {@link AsyncLogger},
+ * so the calling thread never formats or writes log lines itself.
+ * Only a sample of operations is logged, and payloads are truncated and
+ * converted to strings on the logging thread.
  */
 public class LoggingJsonReader implements Reader {
-    private static final Logger logger = LoggerFactory.getLogger(LoggingJsonReader.class);
-    private Reader wrapped;
+    private static final AsyncLogger logger = AsyncLogger.getLogger(LoggingJsonReader.class);
+
+    /** Default maximum number of payload characters in debug logs */
+    public static final int DEFAULT_MAX_PAYLOAD_CHARS = 256;
+
+    private final Reader wrapped;
+    private final double sampleRate;
+    private final int maxPayloadChars;
 
     /**
-     * Constructor - wraps another Reader with logging functionality
+     * Constructor - wraps another Reader with logging functionality, every operation is logged
      * @param wrapped The Reader instance to decorate
      */
     public LoggingJsonReader(Reader wrapped) {
+        this(wrapped, 1.0, DEFAULT_MAX_PAYLOAD_CHARS);
+    }
+
+    /**
+     * Constructor - wraps another Reader with sampled logging
+     * @param wrapped The Reader instance to decorate
+     * @param sampleRate Fraction of operations to log, from 0 (none) to 1 (all)
+     * @param maxPayloadChars Maximum number of payload characters in debug logs
+     */
+    public LoggingJsonReader(Reader wrapped, double sampleRate, int maxPayloadChars) {
         this.wrapped = wrapped;
+        this.sampleRate = sampleRate;
+        this.maxPayloadChars = maxPayloadChars;
     }
 
     @Override
     public <T> T read(String input, Class<T> clazz) throws Exception {
-        logger.info("Reading JSON string for class: {}", clazz.getSimpleName());
-        logger.debug("JSON content: {}", input);
-
         T result = wrapped.read(input, clazz);
 
-        logger.info("Successfully parsed object of type: {}", clazz.getSimpleName());
-        logger.debug("Parsed object: {}", result);
+        if (sampled()) {
+            logger.info("Parsed {} from JSON string of {} chars", clazz.getSimpleName(), input.length());
+            logger.debug("JSON content: {}", AsyncLogger.truncate(input, maxPayloadChars));
+        }
 
         return result;
     }
 
     @Override
     public <T> T readFromFile(File file, Class<T> clazz) throws Exception {
-        logger.info("Reading JSON from file: {} for class: {}", file.getAbsolutePath(), clazz.getSimpleName());
-
         T result = wrapped.readFromFile(file, clazz);
 
-        logger.info("Successfully parsed object from file: {}", file.getName());
-        logger.debug("Parsed object: {}", result);
+        if (sampled()) {
+            logger.info("Parsed {} from file: {} ({} bytes)", clazz.getSimpleName(), file.getAbsolutePath(),
+                    AsyncLogger.lazy(file::length));
+        }
 
         return result;
     }
 
     @Override
-    public String write(Object obj) throws Exception {
-        logger.info("Writing object to JSON string: {}", obj.getClass().getSimpleName());
-        logger.debug("Object content: {}", obj);
+    public <T> T read(InputStream input, Class<T> clazz) throws Exception {
+        T result = wrapped.read(input, clazz);
+
+        if (sampled()) {
+            logger.info("Parsed {} from stream", clazz.getSimpleName());
+        }
+
+        return result;
+    }
+
+    @Override
+    public <T> T read(byte[] input, Class<T> clazz) throws Exception {
+        T result = wrapped.read(input, clazz);
 
+        if (sampled()) {
+            logger.info("Parsed {} from {} bytes of JSON", clazz.getSimpleName(), input.length);
+        }
+
+        return result;
+    }
+
+    @Override
+    public String write(Object obj) throws Exception {
         String result = wrapped.write(obj);
 
-        logger.info("Successfully serialized object to JSON");
-        logger.debug("JSON output: {}", result);
+        if (sampled()) {
+            logger.info("Serialized {} to JSON string of {} chars", obj.getClass().getSimpleName(), result.length());
+            logger.debug("JSON output: {}", AsyncLogger.truncate(result, maxPayloadChars));
+        }
 
         return result;
     }
 
     @Override
-    public void writeToFile(Object obj, File file) throws Exception {
-        logger.info("Writing object to JSON file: {} (type: {})",
-                file.getAbsolutePath(), obj.getClass().getSimpleName());
-        logger.debug("Object content: {}", obj);
+    public byte[] writeBytes(Object obj) throws Exception {
+        byte[] result = wrapped.writeBytes(obj);
 
+        if (sampled()) {
+            logger.info("Serialized {} to {} bytes", obj.getClass().getSimpleName(), result.length);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void writeToFile(Object obj, File file) throws Exception {
         wrapped.writeToFile(obj, file);
 
-        logger.info("Successfully wrote JSON to file: {}", file.getName());
+        if (sampled()) {
+            logger.info("Wrote {} to JSON file: {} ({} bytes)", obj.getClass().getSimpleName(),
+                    file.getAbsolutePath(), AsyncLogger.lazy(file::length));
+        }
+    }
+
+    /**
+     * Decide whether the current operation is logged
+     */
+    private boolean sampled() {
+        return sampleRate >= 1.0 || (sampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
     }
-}
\ No newline at end of file
+}
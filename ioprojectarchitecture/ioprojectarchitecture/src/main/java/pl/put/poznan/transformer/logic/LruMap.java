@@ -0,0 +1,25 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Map bounded by number of entries, evicting the least recently used entry first.
+ * Not thread-safe, access has to be synchronized by the owner.
+ */
+public class LruMap<K, V> extends LinkedHashMap<K, V> {
+    private final int maxEntries;
+
+    /**
+     * @param maxEntries Maximum number of entries kept in the map
+     */
+    public LruMap(int maxEntries) {
+        super(16, 0.75f, true);
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > maxEntries;
+    }
+}
@@ -0,0 +1,119 @@
+package pl.put.poznan.transformer.logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Input stream reading a file through memory mapped windows.
+ * File content is paged in by the operating system and copied only into the
+ * caller's buffer, so reading a large file needs no heap buffer of its size.
+ * Files larger than one window (and larger than 2 GB) are mapped window by window.
+ */
+public class MappedFileInputStream extends InputStream {
+    /** Size of one mapped window */
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private long windowEnd;
+    private MappedByteBuffer window;
+
+    /**
+     * Open file for reading
+     * @param file File to read
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public MappedFileInputStream(File file) throws IOException {
+        this(file, WINDOW_SIZE);
+    }
+
+    /**
+     * Open file for reading with a custom window size
+     * @param file File to read
+     * @param windowSize Maximum number of bytes mapped at once
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public MappedFileInputStream(File file, long windowSize) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            this.windowSize = windowSize;
+            nextWindow();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return window.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int n = Math.min(len, window.remaining());
+        window.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && ensureData()) {
+            int step = (int) Math.min(n - skipped, window.remaining());
+            window.position(window.position() + step);
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return window == null ? 0 : window.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Make sure the current window has data, mapping the next one if needed
+     * @return false at the end of the file
+     */
+    private boolean ensureData() throws IOException {
+        if (window == null) {
+            throw new IOException("Stream closed");
+        }
+        while (!window.hasRemaining()) {
+            if (windowEnd >= size) {
+                return false;
+            }
+            nextWindow();
+        }
+        return true;
+    }
+
+    private void nextWindow() throws IOException {
+        long start = windowEnd;
+        long length = Math.min(windowSize, size - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        windowEnd = start + length;
+    }
+}
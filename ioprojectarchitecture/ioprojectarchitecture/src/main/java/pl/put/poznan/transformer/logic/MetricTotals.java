@@ -0,0 +1,138 @@
+package pl.put.poznan.transformer.logic;
+
+/**
+ * Running aggregates of room metrics for a level or a whole building.
+ * Rooms are folded in one at a time and partial totals can be merged,
+ * so aggregates are computed bottom-up without walking the rooms twice.
+ * Sums are compensated ({@link CompensatedSum}) like the DoubleStream sums they replace; merged totals
+ * add up the totals of their parts, so building totals are sums of level totals.
+ */
+public class MetricTotals {
+    private final CompensatedSum area = new CompensatedSum();
+    private final CompensatedSum volume = new CompensatedSum();
+    private final CompensatedSum heating = new CompensatedSum();
+    private final CompensatedSum luminositySum = new CompensatedSum();
+    private long roomCount;
+
+    /**
+     * Add a single room to the totals
+     * @param room Room to add
+     */
+    public void add(BuildingClasses.Room room) {
+        if (room == null) {
+            return;
+        }
+        add(room.area, room.cube, room.heating, room.light);
+    }
+
+    /**
+     * Add a single room given by its raw values
+     * @param area Room area
+     * @param cube Room volume
+     * @param heating Room heating
+     * @param light Room light
+     */
+    public void add(double area, double cube, double heating, double light) {
+        this.area.add(area);
+        this.volume.add(cube);
+        this.heating.add(heating);
+        this.luminositySum.add(luminosity(area, light));
+        this.roomCount++;
+    }
+
+    /**
+     * Merge already aggregated totals (e.g. of a level) into these totals
+     * @param other Totals to merge
+     */
+    public void add(MetricTotals other) {
+        area.add(other.area.get());
+        volume.add(other.volume.get());
+        heating.add(other.heating.get());
+        luminositySum.add(other.luminositySum.get());
+        roomCount += other.roomCount;
+    }
+
+    /**
+     * Remove a single room previously added to the totals
+     * @param room Room to remove
+     */
+    public void remove(BuildingClasses.Room room) {
+        if (room == null) {
+            return;
+        }
+        area.add(-room.area);
+        volume.add(-room.cube);
+        heating.add(-room.heating);
+        luminositySum.add(-luminosity(room.area, room.light));
+        roomCount--;
+        resetIfEmpty();
+    }
+
+    /**
+     * Remove totals previously merged into these totals
+     * @param other Totals to remove
+     */
+    public void remove(MetricTotals other) {
+        area.add(-other.area.get());
+        volume.add(-other.volume.get());
+        heating.add(-other.heating.get());
+        luminositySum.add(-other.luminositySum.get());
+        roomCount -= other.roomCount;
+        resetIfEmpty();
+    }
+
+    /**
+     * Drop rounding residue of subtractions once no rooms are left
+     */
+    private void resetIfEmpty() {
+        if (roomCount == 0) {
+            area.reset();
+            volume.reset();
+            heating.reset();
+            luminositySum.reset();
+        }
+    }
+
+    public double getArea() {
+        return area.get();
+    }
+
+    public double getVolume() {
+        return volume.get();
+    }
+
+    public double getHeating() {
+        return heating.get();
+    }
+
+    /**
+     * Heating per cubic metre of all rooms added so far
+     * @return Total heating divided by total volume, or 0 without volume
+     */
+    public double getHeatingPerCube() {
+        return BuildingClasses.heatingPerCube(heating.get(), volume.get());
+    }
+
+    public long getRoomCount() {
+        return roomCount;
+    }
+
+    /**
+     * Average luminosity of all rooms added so far
+     * @return Average luminosity, or 0 when no rooms were added
+     */
+    public double getAverageLuminosity() {
+        return roomCount == 0 ? 0.0 : luminositySum.get() / roomCount;
+    }
+
+    /**
+     * Luminosity of a single room, same definition as
+     * {@link BuildingClasses#calculateLuminosity(BuildingClasses.Room)}.
+     * @param area Room area
+     * @param light Room light
+     * @return light per unit of area, or 0 for rooms without area
+     */
+    public static double luminosity(double area, double light) {
+        return area == 0 ? 0.0 : light / area;
+    }
+}
@@ -0,0 +1,209 @@
+package pl.put.poznan.transformer.logic;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decorator that records metrics of Reader operations.
+ * This is a concrete decorator in the Decorator pattern.
+ * Every call is timed into the {@code reader.operations} timer and its payload size is
+ * recorded into the {@code reader.payload} histogram. Meters are tagged with the operation,
+ * the target class, a payload size bucket and the outcome (success or error).
+ */
+public class MetricsReader implements Reader {
+    private static final String TIMER = "reader.operations";
+    private static final String PAYLOAD = "reader.payload";
+
+    private final Reader wrapped;
+    private final MeterRegistry registry;
+
+    /**
+     * Constructor - wraps another Reader with metrics
+     * @param wrapped The Reader instance to decorate
+     * @param registry Registry the meters are registered in
+     */
+    public MetricsReader(Reader wrapped, MeterRegistry registry) {
+        this.wrapped = wrapped;
+        this.registry = registry;
+    }
+
+    @Override
+    public <T> T read(String input, Class<T> clazz) throws Exception {
+        Timer.Sample sample = Timer.start(registry);
+        boolean success = false;
+        try {
+            T result = wrapped.read(input, clazz);
+            success = true;
+            return result;
+        } finally {
+            // Size of a string is counted in characters
+            record(sample, "read", clazz, input.length(), success);
+        }
+    }
+
+    @Override
+    public <T> T readFromFile(File file, Class<T> clazz) throws Exception {
+        Timer.Sample sample = Timer.start(registry);
+        boolean success = false;
+        try {
+            T result = wrapped.readFromFile(file, clazz);
+            success = true;
+            return result;
+        } finally {
+            record(sample, "readFromFile", clazz, file.length(), success);
+        }
+    }
+
+    @Override
+    public <T> T read(InputStream input, Class<T> clazz) throws Exception {
+        // The size of a stream is known only after it was read, count bytes on the way
+        CountingInputStream counting = new CountingInputStream(input);
+        Timer.Sample sample = Timer.start(registry);
+        boolean success = false;
+        try {
+            T result = wrapped.read(counting, clazz);
+            success = true;
+            return result;
+        } finally {
+            record(sample, "read", clazz, counting.count, success);
+        }
+    }
+
+    @Override
+    public <T> T read(byte[] input, Class<T> clazz) throws Exception {
+        Timer.Sample sample = Timer.start(registry);
+        boolean success = false;
+        try {
+            T result = wrapped.read(input, clazz);
+            success = true;
+            return result;
+        } finally {
+            record(sample, "read", clazz, input.length, success);
+        }
+    }
+
+    @Override
+    public String write(Object obj) throws Exception {
+        Timer.Sample sample = Timer.start(registry);
+        String result = null;
+        try {
+            result = wrapped.write(obj);
+            return result;
+        } finally {
+            record(sample, "write", obj.getClass(), result == null ? -1 : result.length(), result != null);
+        }
+    }
+
+    @Override
+    public byte[] writeBytes(Object obj) throws Exception {
+        Timer.Sample sample = Timer.start(registry);
+        byte[] result = null;
+        try {
+            result = wrapped.writeBytes(obj);
+            return result;
+        } finally {
+            record(sample, "writeBytes", obj.getClass(), result == null ? -1 : result.length, result != null);
+        }
+    }
+
+    @Override
+    public void writeToFile(Object obj, File file) throws Exception {
+        Timer.Sample sample = Timer.start(registry);
+        boolean success = false;
+        try {
+            wrapped.writeToFile(obj, file);
+            success = true;
+        } finally {
+            record(sample, "writeToFile", obj.getClass(), success ? file.length() : -1, success);
+        }
+    }
+
+    /**
+     * Stop the sample and record the payload size
+     * @param size Payload size, negative when unknown
+     */
+    private void record(Timer.Sample sample, String operation, Class<?> type, long size, boolean success) {
+        sample.stop(Timer.builder(TIMER)
+                .description("Time of Reader operations")
+                .tag("operation", operation)
+                .tag("class", type.getSimpleName())
+                .tag("size", sizeBucket(size))
+                .tag("outcome", success ? "success" : "error")
+                .publishPercentileHistogram()
+                .register(registry));
+
+        if (size >= 0) {
+            DistributionSummary.builder(PAYLOAD)
+                    .description("Payload size of Reader operations")
+                    .baseUnit("bytes")
+                    .tag("operation", operation)
+                    .tag("class", type.getSimpleName())
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(size);
+        }
+    }
+
+    /**
+     * Coarse payload size, keeps the number of tag values (and so of timers) small
+     */
+    private static String sizeBucket(long size) {
+        if (size < 0) {
+            return "unknown";
+        }
+        if (size < 1024) {
+            return "<1KB";
+        }
+        if (size < 64 * 1024) {
+            return "<64KB";
+        }
+        if (size < 1024 * 1024) {
+            return "<1MB";
+        }
+        if (size < 16 * 1024 * 1024) {
+            return "<16MB";
+        }
+        return ">=16MB";
+    }
+
+    /**
+     * Stream counting bytes read through it
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.Set;
+
+/**
+ * Part of a building document read by {@link StreamingBuildingParser}.
+ * Room values not needed by the requested metrics are skipped without being decoded,
+ * and with a level filter the rooms of all other levels are skipped as whole subtrees.
+ * Skipped room values are reported to the handler as null or 0.
+ */
+public final class Projection {
+
+    /**
+     * Whole document
+     */
+    public static final Projection ALL = new Projection(true, true, true, true, true, true, null);
+
+    private final boolean roomIds;
+    private final boolean roomNames;
+    private final boolean area;
+    private final boolean cube;
+    private final boolean heating;
+    private final boolean light;
+    private final String levelId;
+
+    private Projection(boolean roomIds, boolean roomNames, boolean area, boolean cube, boolean heating,
+                       boolean light, String levelId) {
+        this.roomIds = roomIds;
+        this.roomNames = roomNames;
+        this.area = area;
+        this.cube = cube;
+        this.heating = heating;
+        this.light = light;
+        this.levelId = levelId;
+    }
+
+    /**
+     * Room values needed by level and building totals of the metrics
+     * @param metrics Reported metrics
+     */
+    public static Projection totals(Set<ReportEngine.Metric> metrics) {
+        return of(metrics, false);
+    }
+
+    /**
+     * Room values needed by reports listing every room of the metrics, including room ids and names
+     * @param metrics Reported metrics
+     */
+    public static Projection rooms(Set<ReportEngine.Metric> metrics) {
+        return of(metrics, true);
+    }
+
+    private static Projection of(Set<ReportEngine.Metric> metrics, boolean roomDetails) {
+        boolean luminosity = metrics.contains(ReportEngine.Metric.LUMINOSITY);
+        boolean heating = metrics.contains(ReportEngine.Metric.HEATING);
+        return new Projection(roomDetails, roomDetails,
+                metrics.contains(ReportEngine.Metric.AREA) || luminosity,
+                metrics.contains(ReportEngine.Metric.VOLUME) || heating,
+                heating, luminosity, null);
+    }
+
+    /**
+     * Same projection restricted to a single level
+     * @param levelId Id of the level to read, null for all levels
+     */
+    public Projection level(String levelId) {
+        return new Projection(roomIds, roomNames, area, cube, heating, light, levelId);
+    }
+
+    boolean filtersLevels() {
+        return levelId != null;
+    }
+
+    boolean includesLevel(String id) {
+        return levelId == null || levelId.equals(id);
+    }
+
+    boolean roomIds() {
+        return roomIds;
+    }
+
+    boolean roomNames() {
+        return roomNames;
+    }
+
+    boolean area() {
+        return area;
+    }
+
+    boolean cube() {
+        return cube;
+    }
+
+    boolean heating() {
+        return heating;
+    }
+
+    boolean light() {
+        return light;
+    }
+}
@@ -1,6 +1,7 @@
 package pl.put.poznan.transformer.logic;
 
 import java.io.File;
+import java.io.InputStream;
 
 /**
  * Component interface in the Decorator pattern.
@@ -26,6 +27,25 @@ public interface Reader {
      */
     <T> T readFromFile(File file, Class<T> clazz) throws Exception;
 
+    /**
+     * Read JSON from stream and deserialize to object
+     * The stream is read directly, without copying it to a file or string first
+     * @param input JSON input stream
+     * @param clazz Target class
+     * @return Deserialized object of type T
+     * @throws Exception if reading or parsing fails
+     */
+    <T> T read(InputStream input, Class<T> clazz) throws Exception;
+
+    /**
+     * Read JSON from byte array and deserialize to object
+     * @param input JSON content as bytes
+     * @param clazz Target class
+     * @return Deserialized object of type T
+     * @throws Exception if parsing fails
+     */
+    <T> T read(byte[] input, Class<T> clazz) throws Exception;
+
     /**
      * Serialize object to JSON string
      * @param obj Object to serialize
@@ -34,6 +54,14 @@ public interface Reader {
      */
     String write(Object obj) throws Exception;
 
+    /**
+     * Serialize object to encoded bytes
+     * @param obj Object to serialize
+     * @return Serialized object
+     * @throws Exception if serialization fails
+     */
+    byte[] writeBytes(Object obj) throws Exception;
+
     /**
      * Serialize object and save to JSON file
      * @param obj Object to serialize
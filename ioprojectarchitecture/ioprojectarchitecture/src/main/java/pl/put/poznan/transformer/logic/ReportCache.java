@@ -0,0 +1,176 @@
+package pl.put.poznan.transformer.logic;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of serialized reports keyed by the content of the uploaded building and the report type.
+ * The cache is bounded both by number of entries and by the total size of cached reports,
+ * least recently used entries are evicted first. All methods are thread-safe.
+ */
+public class ReportCache {
+
+    /**
+     * Cache key - fingerprint of the uploaded bytes combined with the report type
+     */
+    public static final class Key {
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+        private final String reportType;
+        private final byte[] digest;
+
+        private Key(String reportType, byte[] digest) {
+            this.reportType = reportType;
+            this.digest = digest;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Arrays.equals(digest, other.digest) && reportType.equals(other.reportType);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * reportType.hashCode() + Arrays.hashCode(digest);
+        }
+
+        /**
+         * Fingerprint of the content alone, without the report type
+         * @return Hex encoded SHA-256 digest of the content
+         */
+        public String fingerprint() {
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[2 * i] = HEX[(digest[i] >> 4) & 0xF];
+                hex[2 * i + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(hex);
+        }
+
+        @Override
+        public String toString() {
+            return reportType + ":" + fingerprint();
+        }
+    }
+
+    /**
+     * Snapshot of cache counters
+     */
+    public static class Stats {
+        public long hits;
+        public long misses;
+        public long evictions;
+        public int entries;
+        public long bytes;
+        public int maxEntries;
+        public long maxBytes;
+    }
+
+    private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxEntries;
+    private final long maxBytes;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxEntries Maximum number of cached reports
+     * @param maxBytes Maximum total size of cached reports in bytes
+     */
+    public ReportCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Create key for uploaded content and report type.
+     * The fingerprint is the SHA-256 digest of the content: uploads are chosen by clients, so the
+     * fingerprint has to be collision resistant, otherwise a forged upload could be answered with
+     * the cached report of another building. Hashing is still much cheaper than parsing the content.
+     * @param content Uploaded bytes
+     * @param reportType Report type, including any parameters changing the report
+     * @return Cache key
+     */
+    public static Key key(byte[] content, String reportType) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        return new Key(reportType, sha256.digest(content));
+    }
+
+    /**
+     * Get cached report
+     * @param key Cache key
+     * @return Serialized report, or null if not cached
+     */
+    public synchronized byte[] get(Key key) {
+        byte[] report = entries.get(key);
+        if (report == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return report;
+    }
+
+    /**
+     * Store report in the cache, evicting least recently used entries if needed.
+     * Reports larger than the byte limit are not cached.
+     * @param key Cache key
+     * @param report Serialized report
+     */
+    public synchronized void put(Key key, byte[] report) {
+        if (maxEntries <= 0 || report.length > maxBytes) {
+            return;
+        }
+        byte[] previous = entries.put(key, report);
+        if (previous != null) {
+            bytes -= previous.length;
+        }
+        bytes += report.length;
+
+        Iterator<Map.Entry<Key, byte[]>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            Map.Entry<Key, byte[]> entry = eldest.next();
+            bytes -= entry.getValue().length;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Remove all cached reports, counters are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized Stats getStats() {
+        Stats stats = new Stats();
+        stats.hits = hits;
+        stats.misses = misses;
+        stats.evictions = evictions;
+        stats.entries = entries.size();
+        stats.bytes = bytes;
+        stats.maxEntries = maxEntries;
+        stats.maxBytes = maxBytes;
+        return stats;
+    }
+}
@@ -0,0 +1,290 @@
+package pl.put.poznan.transformer.logic;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Report engine computing several metrics of a building in a single traversal.
+ * Room values are folded into level totals and level totals into building totals
+ * (bottom-up), so every room is visited exactly once whatever metrics are requested.
+ * The engine keeps no state between calls and can be shared between requests.
+ */
+public class ReportEngine {
+
+    /** Number of rooms below which a range of levels is reported on the current thread */
+    private static final int PARALLEL_ROOM_THRESHOLD = 4096;
+
+    /**
+     * Metrics supported by the engine
+     */
+    public enum Metric {
+        AREA, VOLUME, LUMINOSITY, HEATING;
+
+        /**
+         * Parse metric names (case insensitive), e.g. {"area", "volume"}
+         * @param names Metric names
+         * @return Set of requested metrics
+         * @throws IllegalArgumentException if a name is not a known metric
+         */
+        public static Set<Metric> parse(String... names) {
+            Set<Metric> metrics = EnumSet.noneOf(Metric.class);
+            if (names == null) {
+                return metrics;
+            }
+            for (String name : names) {
+                if (name == null || name.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    metrics.add(Metric.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown metric: " + name.trim());
+                }
+            }
+            return metrics;
+        }
+    }
+
+    // --- DTO classes as inner classes ---
+
+    /**
+     * Metric values shared by building and level reports.
+     * Values of metrics that were not requested stay null and are not serialized.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class MetricValues {
+        public Double totalArea;
+        public Double totalVolume;
+        public Double averageLuminosity;
+        public Double totalHeating;
+
+        void fill(MetricTotals totals, Set<Metric> metrics) {
+            totalArea = metrics.contains(Metric.AREA) ? totals.getArea() : null;
+            totalVolume = metrics.contains(Metric.VOLUME) ? totals.getVolume() : null;
+            averageLuminosity = metrics.contains(Metric.LUMINOSITY) ? totals.getAverageLuminosity() : null;
+            totalHeating = metrics.contains(Metric.HEATING) ? totals.getHeating() : null;
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonPropertyOrder({"buildingId", "buildingName"})
+    public static class Report extends MetricValues {
+        public String buildingId;
+        public String buildingName;
+        public List<LevelReport> levels;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonPropertyOrder({"levelId", "levelName"})
+    public static class LevelReport extends MetricValues {
+        public String levelId;
+        public String levelName;
+        public List<RoomReport> rooms;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class RoomReport {
+        public String roomId;
+        public String roomName;
+        public Double area;
+        public Double volume;
+        public Double luminosity;
+        public Double heating;
+    }
+    // -----------------------------------------
+
+    /**
+     * Generate a report with the requested metrics for a building
+     * @param building Building to report on
+     * @param metrics Metrics to include in the report
+     * @return Report for the building, or null if building is null
+     */
+    public Report generate(BuildingClasses.Building building, Set<Metric> metrics) {
+        if (building == null) {
+            return null;
+        }
+
+        Report report = new Report();
+        report.buildingId = building.id;
+        report.buildingName = building.name;
+        report.levels = new ArrayList<>(building.levels == null ? 0 : building.levels.size());
+
+        MetricTotals buildingTotals = new MetricTotals();
+        if (building.levels != null) {
+            for (BuildingClasses.Level level : building.levels) {
+                MetricTotals levelTotals = new MetricTotals();
+                report.levels.add(generate(level, metrics, levelTotals));
+                buildingTotals.add(levelTotals);
+            }
+        }
+        report.fill(buildingTotals, metrics);
+
+        return report;
+    }
+
+    /**
+     * Generate the report of one level, accumulating its totals on the way
+     */
+    private LevelReport generate(BuildingClasses.Level level, Set<Metric> metrics, MetricTotals levelTotals) {
+        LevelReport levelReport = new LevelReport();
+        levelReport.levelId = level.id;
+        levelReport.levelName = level.name;
+        levelReport.rooms = new ArrayList<>(level.rooms == null ? 0 : level.rooms.size());
+
+        if (level.rooms != null) {
+            for (BuildingClasses.Room room : level.rooms) {
+                levelTotals.add(room);
+                levelReport.rooms.add(generate(room, metrics));
+            }
+        }
+        levelReport.fill(levelTotals, metrics);
+
+        return levelReport;
+    }
+
+    /**
+     * Generate a report with the requested metrics for a building in columnar form
+     * Level totals are computed with plain loops over the room arrays.
+     * @param building Columnar building to report on
+     * @param metrics Metrics to include in the report
+     * @return Report for the building, or null if building is null
+     */
+    public Report generate(ColumnarBuilding building, Set<Metric> metrics) {
+        if (building == null) {
+            return null;
+        }
+
+        Report report = new Report();
+        report.buildingId = building.getBuildingId();
+        report.buildingName = building.getBuildingName();
+        report.levels = new ArrayList<>(building.levelCount());
+
+        MetricTotals buildingTotals = new MetricTotals();
+        for (int level = 0; level < building.levelCount(); level++) {
+            MetricTotals levelTotals = building.levelTotals(level);
+            report.levels.add(generate(building, level, metrics, levelTotals));
+            buildingTotals.add(levelTotals);
+        }
+        report.fill(buildingTotals, metrics);
+
+        return report;
+    }
+
+    /**
+     * Generate a report for a building in columnar form, computing levels in parallel.
+     * Ranges of levels are split on the pool until they hold few enough rooms; every level
+     * report and its totals land in the slot of its level, and the building totals are then
+     * summed in level order, so the report is identical to {@link #generate(ColumnarBuilding, Set)}.
+     * The building is not modified, so any number of reports can run on it at once.
+     * @param building Columnar building to report on
+     * @param metrics Metrics to include in the report
+     * @param pool Pool computing the levels
+     * @return Report for the building, or null if building is null
+     */
+    public Report generate(ColumnarBuilding building, Set<Metric> metrics, ForkJoinPool pool) {
+        if (building == null) {
+            return null;
+        }
+        if (building.roomCount() < PARALLEL_ROOM_THRESHOLD || building.levelCount() < 2) {
+            return generate(building, metrics);
+        }
+
+        int levels = building.levelCount();
+        LevelReport[] levelReports = new LevelReport[levels];
+        MetricTotals[] levelTotals = new MetricTotals[levels];
+        pool.invoke(new LevelRangeTask(building, metrics, 0, levels, levelReports, levelTotals));
+
+        Report report = new Report();
+        report.buildingId = building.getBuildingId();
+        report.buildingName = building.getBuildingName();
+        report.levels = new ArrayList<>(Arrays.asList(levelReports));
+
+        MetricTotals buildingTotals = new MetricTotals();
+        for (MetricTotals totals : levelTotals) {
+            buildingTotals.add(totals);
+        }
+        report.fill(buildingTotals, metrics);
+
+        return report;
+    }
+
+    /**
+     * Reports levels {@code [from, to)} of a building, splitting the range in halves
+     * while it holds more rooms than {@link #PARALLEL_ROOM_THRESHOLD}
+     */
+    private class LevelRangeTask extends RecursiveAction {
+        private final ColumnarBuilding building;
+        private final Set<Metric> metrics;
+        private final int from;
+        private final int to;
+        private final LevelReport[] levelReports;
+        private final MetricTotals[] levelTotals;
+
+        LevelRangeTask(ColumnarBuilding building, Set<Metric> metrics, int from, int to,
+                       LevelReport[] levelReports, MetricTotals[] levelTotals) {
+            this.building = building;
+            this.metrics = metrics;
+            this.from = from;
+            this.to = to;
+            this.levelReports = levelReports;
+            this.levelTotals = levelTotals;
+        }
+
+        @Override
+        protected void compute() {
+            int rooms = building.levelEnd(to - 1) - building.levelStart(from);
+            if (to - from < 2 || rooms < PARALLEL_ROOM_THRESHOLD) {
+                for (int level = from; level < to; level++) {
+                    levelTotals[level] = building.levelTotals(level);
+                    levelReports[level] = generate(building, level, metrics, levelTotals[level]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new LevelRangeTask(building, metrics, from, mid, levelReports, levelTotals),
+                    new LevelRangeTask(building, metrics, mid, to, levelReports, levelTotals));
+        }
+    }
+
+    private LevelReport generate(ColumnarBuilding building, int level, Set<Metric> metrics, MetricTotals levelTotals) {
+        LevelReport levelReport = new LevelReport();
+        levelReport.levelId = building.levelId(level);
+        levelReport.levelName = building.levelName(level);
+        levelReport.rooms = new ArrayList<>(building.levelEnd(level) - building.levelStart(level));
+
+        for (int room = building.levelStart(level); room < building.levelEnd(level); room++) {
+            RoomReport roomReport = new RoomReport();
+            roomReport.roomId = building.roomId(room);
+            roomReport.roomName = building.roomName(room);
+            roomReport.area = metrics.contains(Metric.AREA) ? building.area(room) : null;
+            roomReport.volume = metrics.contains(Metric.VOLUME) ? building.cube(room) : null;
+            roomReport.luminosity = metrics.contains(Metric.LUMINOSITY)
+                    ? MetricTotals.luminosity(building.area(room), building.light(room)) : null;
+            roomReport.heating = metrics.contains(Metric.HEATING) ? building.heating(room) : null;
+            levelReport.rooms.add(roomReport);
+        }
+        levelReport.fill(levelTotals, metrics);
+
+        return levelReport;
+    }
+
+    private RoomReport generate(BuildingClasses.Room room, Set<Metric> metrics) {
+        RoomReport roomReport = new RoomReport();
+        roomReport.roomId = room.id;
+        roomReport.roomName = room.name;
+        roomReport.area = metrics.contains(Metric.AREA) ? room.area : null;
+        roomReport.volume = metrics.contains(Metric.VOLUME) ? room.cube : null;
+        roomReport.luminosity = metrics.contains(Metric.LUMINOSITY)
+                ? MetricTotals.luminosity(room.area, room.light) : null;
+        roomReport.heating = metrics.contains(Metric.HEATING) ? room.heating : null;
+        return roomReport;
+    }
+}
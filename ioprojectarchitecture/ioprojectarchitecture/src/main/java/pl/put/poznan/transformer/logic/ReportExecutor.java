@@ -0,0 +1,81 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded executor of heavy requests (parsing and reporting whole buildings).
+ * A fixed number of worker threads takes tasks from a queue of limited capacity;
+ * when both are full new tasks are rejected immediately instead of waiting,
+ * so callers can shed load rather than let every request time out.
+ */
+public class ReportExecutor {
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param threads Number of worker threads, 0 for the number of processors
+     * @param queueCapacity Maximum number of tasks waiting for a worker
+     */
+    public ReportExecutor(int threads, int queueCapacity) {
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "report-worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Run task on a worker thread
+     * @param task Task to run
+     * @return Future completed with the result of the task, or exceptionally with its exception
+     * @throws RejectedExecutionException if all workers are busy and the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+        return future;
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Number of tasks rejected because the executor was saturated
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Stop accepting tasks, queued tasks are still run
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
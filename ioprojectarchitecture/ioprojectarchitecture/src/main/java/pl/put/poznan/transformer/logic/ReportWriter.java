@@ -0,0 +1,180 @@
+package pl.put.poznan.transformer.logic;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.EnumSet;
+
+/**
+ * {@link BuildingHandler} writing the report of a single metric while the building is read.
+ * Every room is written to the generator as soon as it is received and level and building
+ * values are written when their object ends, so no report objects are built and memory use
+ * does not depend on the number of rooms.
+ *
+ * The written document has the same fields as the report DTO of the metric
+ * (e.g. AreaReportVisitor.AreaReport); ids, names and totals of a level follow its rooms.
+ * When the projection selects a single level, building totals are left out: they would
+ * cover the selected level only. An unknown level gives an empty level list.
+ */
+public class ReportWriter implements BuildingHandler {
+    private final JsonGenerator generator;
+    private final ReportEngine.Metric metric;
+    private final MetricTotals buildingTotals = new MetricTotals();
+    private MetricTotals levelTotals;
+    private boolean started;
+    /** Whether the building totals cover the whole building, false when levels are filtered */
+    private boolean wholeBuilding = true;
+
+    /**
+     * @param generator Generator of the report document, not closed by the writer
+     * @param metric Reported metric
+     */
+    public ReportWriter(JsonGenerator generator, ReportEngine.Metric metric) {
+        this.generator = generator;
+        this.metric = metric;
+    }
+
+    /**
+     * Write report of the building parsed from the stream
+     * @param parser Parser of the input format
+     * @param input Building document
+     * @return true if the document contained a building, an empty object is written otherwise
+     */
+    public boolean write(StreamingBuildingParser parser, InputStream input) throws IOException {
+        return write(parser, input, Projection.rooms(EnumSet.of(metric)));
+    }
+
+    /**
+     * Write report of the part of the building given by the projection
+     * @param parser Parser of the input format
+     * @param input Building document
+     * @param projection Room values and levels to read, must include the values of the reported metric
+     * @return true if the document contained a building, an empty object is written otherwise
+     */
+    public boolean write(StreamingBuildingParser parser, InputStream input, Projection projection)
+            throws IOException {
+        wholeBuilding = !projection.filtersLevels();
+        boolean found;
+        try {
+            found = parser.parse(input, this, projection);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (!found) {
+            generator.writeStartObject();
+            generator.writeEndObject();
+        }
+        generator.flush();
+        return found;
+    }
+
+    @Override
+    public void startLevel() {
+        try {
+            startBuilding();
+            levelTotals = new MetricTotals();
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("rooms");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void room(String id, String name, double area, double cube, double heating, double light) {
+        levelTotals.add(area, cube, heating, light);
+        try {
+            generator.writeStartObject();
+            writeString("roomId", id);
+            writeString("roomName", name);
+            switch (metric) {
+                case AREA:
+                    generator.writeNumberField("area", area);
+                    break;
+                case VOLUME:
+                    generator.writeNumberField("volume", cube);
+                    break;
+                case LUMINOSITY:
+                    generator.writeNumberField("luminosity", MetricTotals.luminosity(area, light));
+                    break;
+                case HEATING:
+                    generator.writeNumberField("heating", heating);
+                    generator.writeNumberField("heatingPerCube", BuildingClasses.heatingPerCube(heating, cube));
+                    break;
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void endLevel(String id, String name) {
+        try {
+            generator.writeEndArray();
+            writeString("levelId", id);
+            writeString("levelName", name);
+            writeTotals(levelTotals);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buildingTotals.add(levelTotals);
+        levelTotals = null;
+    }
+
+    @Override
+    public void endBuilding(String id, String name) {
+        try {
+            startBuilding();
+            generator.writeEndArray();
+            writeString("buildingId", id);
+            writeString("buildingName", name);
+            if (wholeBuilding) {
+                writeTotals(buildingTotals);
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Open the report object and its level list before the first level
+     */
+    private void startBuilding() throws IOException {
+        if (!started) {
+            started = true;
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("levels");
+        }
+    }
+
+    private void writeTotals(MetricTotals totals) throws IOException {
+        switch (metric) {
+            case AREA:
+                generator.writeNumberField("totalArea", totals.getArea());
+                break;
+            case VOLUME:
+                generator.writeNumberField("totalVolume", totals.getVolume());
+                break;
+            case LUMINOSITY:
+                generator.writeNumberField("averageLuminosity", totals.getAverageLuminosity());
+                break;
+            case HEATING:
+                generator.writeNumberField("totalHeating", totals.getHeating());
+                generator.writeNumberField("heatingPerCube", totals.getHeatingPerCube());
+                break;
+        }
+    }
+
+    /**
+     * Write string field, null values are left out like in the report DTOs
+     */
+    private void writeString(String field, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(field, value);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package pl.put.poznan.transformer.logic;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Token based parser for building documents (JSON or one of the binary {@link DataFormat}s).
+ * Walks the document with Jackson's {@link JsonParser} and reports rooms, levels and
+ * the building to a {@link BuildingHandler} without binding {@link BuildingClasses}
+ * objects, so memory use does not depend on the number of rooms.
+ * Unknown fields are skipped. Ids and names are interned in the shared {@link SymbolTable}.
+ */
+public class StreamingBuildingParser {
+    private final JsonFactory factory;
+
+    /**
+     * Parser of JSON documents
+     */
+    public StreamingBuildingParser() {
+        this(DataFormat.JSON);
+    }
+
+    /**
+     * Parser of documents in the given format
+     * @param format Format of parsed documents
+     */
+    public StreamingBuildingParser(DataFormat format) {
+        this.factory = format.getFactory();
+    }
+
+    /**
+     * Parse building JSON from a stream
+     * @param input JSON input stream
+     * @param handler Handler receiving the building events
+     * @return true if the document contained a building
+     */
+    public boolean parse(InputStream input, BuildingHandler handler) throws IOException {
+        return parse(input, handler, Projection.ALL);
+    }
+
+    /**
+     * Parse only the part of a building document given by the projection
+     * @param input JSON input stream
+     * @param handler Handler receiving the building events, only for levels included in the projection
+     * @param projection Room values and levels to read
+     * @return true if the document contained a building
+     */
+    public boolean parse(InputStream input, BuildingHandler handler, Projection projection) throws IOException {
+        try (JsonParser parser = factory.createParser(input)) {
+            return parse(parser, handler, projection);
+        }
+    }
+
+    /**
+     * Parse building JSON from a file
+     * @param file JSON file
+     * @param handler Handler receiving the building events
+     * @return true if the document contained a building
+     */
+    public boolean parse(File file, BuildingHandler handler) throws IOException {
+        try (JsonParser parser = factory.createParser(new MappedFileInputStream(file))) {
+            return parse(parser, handler);
+        }
+    }
+
+    /**
+     * Parse building JSON from an already created parser
+     * @param parser Parser positioned before the root object
+     * @param handler Handler receiving the building events
+     * @return true if the document contained a building
+     */
+    public boolean parse(JsonParser parser, BuildingHandler handler) throws IOException {
+        return parse(parser, handler, Projection.ALL);
+    }
+
+    /**
+     * Parse only the part of a building document given by the projection from an already created parser
+     * @param parser Parser positioned before the root object
+     * @param handler Handler receiving the building events, only for levels included in the projection
+     * @param projection Room values and levels to read
+     * @return true if the document contained a building
+     */
+    public boolean parse(JsonParser parser, BuildingHandler handler, Projection projection) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected JSON object at the root of the document");
+        }
+        boolean found = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("building".equals(field) && token == JsonToken.START_OBJECT) {
+                parseBuilding(parser, handler, projection);
+                found = true;
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return found;
+    }
+
+    private void parseBuilding(JsonParser parser, BuildingHandler handler, Projection projection)
+            throws IOException {
+        String id = null;
+        String name = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("id".equals(field)) {
+                id = text(parser, token);
+            } else if ("name".equals(field)) {
+                name = text(parser, token);
+            } else if ("levels".equals(field) && token == JsonToken.START_ARRAY) {
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == JsonToken.START_OBJECT) {
+                        parseLevel(parser, handler, projection);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        handler.endBuilding(id, name);
+    }
+
+    /**
+     * Parse level, skipping its rooms unless the level is included in the projection.
+     * The level is started only once it is known to be included; rooms listed before the level id
+     * are kept as tokens until the id is read.
+     */
+    private void parseLevel(JsonParser parser, BuildingHandler handler, Projection projection)
+            throws IOException {
+        String id = null;
+        String name = null;
+        boolean started = false;
+        TokenBuffer deferredRooms = null;
+        if (!projection.filtersLevels()) {
+            handler.startLevel();
+            started = true;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("id".equals(field)) {
+                id = text(parser, token);
+            } else if ("name".equals(field)) {
+                name = text(parser, token);
+            } else if ("rooms".equals(field) && token == JsonToken.START_ARRAY) {
+                if (started) {
+                    parseRooms(parser, handler, projection);
+                } else if (id == null) {
+                    deferredRooms = new TokenBuffer(parser);
+                    deferredRooms.copyCurrentStructure(parser);
+                } else if (projection.includesLevel(id)) {
+                    handler.startLevel();
+                    started = true;
+                    parseRooms(parser, handler, projection);
+                } else {
+                    parser.skipChildren();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (!projection.includesLevel(id)) {
+            return;
+        }
+        if (!started) {
+            handler.startLevel();
+        }
+        if (deferredRooms != null) {
+            try (JsonParser rooms = deferredRooms.asParser()) {
+                rooms.nextToken();
+                parseRooms(rooms, handler, projection);
+            }
+        }
+        handler.endLevel(id, name);
+    }
+
+    /**
+     * Parse rooms array, the parser is positioned at its start
+     */
+    private void parseRooms(JsonParser parser, BuildingHandler handler, Projection projection)
+            throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                parseRoom(parser, handler, projection);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Parse room, values not included in the projection are skipped without decoding
+     */
+    private void parseRoom(JsonParser parser, BuildingHandler handler, Projection projection)
+            throws IOException {
+        String id = null;
+        String name = null;
+        double area = 0;
+        double cube = 0;
+        double heating = 0;
+        double light = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "id":
+                    id = projection.roomIds() ? text(parser, token) : skip(parser);
+                    break;
+                case "name":
+                    name = projection.roomNames() ? text(parser, token) : skip(parser);
+                    break;
+                case "area":
+                    area = projection.area() ? number(parser, token) : skipNumber(parser);
+                    break;
+                case "cube":
+                    cube = projection.cube() ? number(parser, token) : skipNumber(parser);
+                    break;
+                case "heating":
+                    heating = projection.heating() ? number(parser, token) : skipNumber(parser);
+                    break;
+                case "light":
+                    light = projection.light() ? number(parser, token) : skipNumber(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        handler.room(id, name, area, cube, heating, light);
+    }
+
+    private static String skip(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return null;
+    }
+
+    private static double skipNumber(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return 0.0;
+    }
+
+    private static double number(JsonParser parser, JsonToken token) throws IOException {
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return 0.0;
+        }
+        return parser.getValueAsDouble();
+    }
+
+    private static String text(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return SymbolTable.shared().intern(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+    }
+}
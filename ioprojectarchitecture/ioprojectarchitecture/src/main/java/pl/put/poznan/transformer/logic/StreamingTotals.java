@@ -0,0 +1,71 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link BuildingHandler} aggregating building and level totals while the document is parsed.
+ * Only one {@link MetricTotals} per level is kept, rooms are discarded as soon as they are counted.
+ */
+public class StreamingTotals implements BuildingHandler {
+
+    /**
+     * Totals of a single level
+     */
+    public static class LevelTotals {
+        public final String id;
+        public final String name;
+        public final MetricTotals totals;
+
+        LevelTotals(String id, String name, MetricTotals totals) {
+            this.id = id;
+            this.name = name;
+            this.totals = totals;
+        }
+    }
+
+    private final List<LevelTotals> levels = new ArrayList<>();
+    private final MetricTotals buildingTotals = new MetricTotals();
+    private MetricTotals currentLevel;
+    private String buildingId;
+    private String buildingName;
+
+    @Override
+    public void startLevel() {
+        currentLevel = new MetricTotals();
+    }
+
+    @Override
+    public void room(String id, String name, double area, double cube, double heating, double light) {
+        currentLevel.add(area, cube, heating, light);
+    }
+
+    @Override
+    public void endLevel(String id, String name) {
+        levels.add(new LevelTotals(id, name, currentLevel));
+        buildingTotals.add(currentLevel);
+        currentLevel = null;
+    }
+
+    @Override
+    public void endBuilding(String id, String name) {
+        buildingId = id;
+        buildingName = name;
+    }
+
+    public String getBuildingId() {
+        return buildingId;
+    }
+
+    public String getBuildingName() {
+        return buildingName;
+    }
+
+    public MetricTotals getTotals() {
+        return buildingTotals;
+    }
+
+    public List<LevelTotals> getLevels() {
+        return levels;
+    }
+}
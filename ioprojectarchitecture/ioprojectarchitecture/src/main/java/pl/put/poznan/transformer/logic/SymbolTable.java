@@ -0,0 +1,137 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded table canonicalizing building ids and names, so buildings held in memory
+ * share one String instance per distinct value instead of a copy per room and upload.
+ *
+ * The table is a fixed size array indexed by the string hash: a value found in its slot
+ * is returned instead of the new copy, otherwise it replaces the slot. Memory use is bounded
+ * by the capacity, colliding values simply evict each other, and lookups need no locks.
+ * Values longer than the length limit are not interned.
+ */
+public class SymbolTable {
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int DEFAULT_MAX_LENGTH = 64;
+
+    private static final SymbolTable SHARED = new SymbolTable(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+
+    /**
+     * Snapshot of table counters
+     */
+    public static class Stats {
+        public int capacity;
+        public int used;
+        public long hits;
+        public long misses;
+        public long skipped;
+        public double hitRatio;
+    }
+
+    private final AtomicReferenceArray<String> table;
+    private final int mask;
+    private final int maxLength;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    /**
+     * @param capacity Number of slots, rounded up to a power of two
+     * @param maxLength Longest interned value
+     */
+    public SymbolTable(int capacity, int maxLength) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.table = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Table shared by all parsers of building documents
+     */
+    public static SymbolTable shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return Canonical instance equal to the value, null for null
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.length() > maxLength) {
+            skipped.increment();
+            return value;
+        }
+        int slot = slot(value.hashCode());
+        String cached = table.get(slot);
+        if (value.equals(cached)) {
+            hits.increment();
+            return cached;
+        }
+        table.lazySet(slot, value);
+        misses.increment();
+        return value;
+    }
+
+    /**
+     * Intern characters straight from a parser buffer; no String is created when the value is in the table
+     * @return Canonical instance equal to the characters
+     */
+    public String intern(char[] chars, int offset, int length) {
+        if (length > maxLength) {
+            skipped.increment();
+            return new String(chars, offset, length);
+        }
+        // Same hash as String.hashCode, so both intern methods use the same slots
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int slot = slot(hash);
+        String cached = table.get(slot);
+        if (cached != null && contentEquals(cached, chars, offset, length)) {
+            hits.increment();
+            return cached;
+        }
+        String value = new String(chars, offset, length);
+        table.lazySet(slot, value);
+        misses.increment();
+        return value;
+    }
+
+    public Stats getStats() {
+        Stats stats = new Stats();
+        stats.capacity = table.length();
+        for (int i = 0; i < table.length(); i++) {
+            if (table.get(i) != null) {
+                stats.used++;
+            }
+        }
+        stats.hits = hits.sum();
+        stats.misses = misses.sum();
+        stats.skipped = skipped.sum();
+        long lookups = stats.hits + stats.misses;
+        stats.hitRatio = lookups == 0 ? 0.0 : (double) stats.hits / lookups;
+        return stats;
+    }
+
+    private int slot(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static boolean contentEquals(String value, char[] chars, int offset, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -7,6 +7,7 @@ import java.io.File;
  * Demonstrates the use of Decorator pattern for JSON operations.
  */
 public class TextTransformer {
+    private static final AsyncLogger logger = AsyncLogger.getLogger(TextTransformer.class);
 
     private final String[] transforms;
     private final Reader reader;
@@ -41,26 +42,7 @@ public class TextTransformer {
             // Use decorated reader to read from file
             BuildingClasses wrapper = reader.readFromFile(file, BuildingClasses.class);
 
-            if (wrapper.building != null) {
-                BuildingClasses.Building building = wrapper.building;
-                System.out.println("Building: " + building.name + " (id=" + building.id + ")");
-
-                if (building.levels != null) {
-                    for (BuildingClasses.Level level : building.levels) {
-                        System.out.println("  Level: " + level.name + " (id=" + level.id + ")");
-                        if (level.rooms != null) {
-                            for (BuildingClasses.Room room : level.rooms) {
-                                System.out.println("    Room: " + room.name +
-                                        " (id=" + room.id +
-                                        ", area=" + room.area +
-                                        ", cube=" + room.cube +
-                                        ", heating=" + room.heating +
-                                        ", light=" + room.light + ")");
-                            }
-                        }
-                    }
-                }
-            }
+            print(wrapper);
 
         } catch (Exception e) {
             System.err.println("Error processing file: " + e.getMessage());
@@ -68,6 +50,15 @@ public class TextTransformer {
         }
     }
 
+    /**
+     * Transform building data already read by the caller, e.g. straight from an upload stream,
+     * so the caller can report read errors itself
+     * @param wrapper Building data
+     */
+    public void transform(BuildingClasses wrapper) {
+        print(wrapper);
+    }
+
     /**
      * Transform building data from JSON string
      * Uses decorator pattern for reading JSON string
@@ -78,26 +69,7 @@ public class TextTransformer {
             // Use decorated reader to read from string
             BuildingClasses wrapper = reader.read(jsonString, BuildingClasses.class);
 
-            if (wrapper.building != null) {
-                BuildingClasses.Building building = wrapper.building;
-                System.out.println("Building: " + building.name + " (id=" + building.id + ")");
-
-                if (building.levels != null) {
-                    for (BuildingClasses.Level level : building.levels) {
-                        System.out.println("  Level: " + level.name + " (id=" + level.id + ")");
-                        if (level.rooms != null) {
-                            for (BuildingClasses.Room room : level.rooms) {
-                                System.out.println("    Room: " + room.name +
-                                        " (id=" + room.id +
-                                        ", area=" + room.area +
-                                        ", cube=" + room.cube +
-                                        ", heating=" + room.heating +
-                                        ", light=" + room.light + ")");
-                            }
-                        }
-                    }
-                }
-            }
+            print(wrapper);
 
         } catch (Exception e) {
             System.err.println("Error processing JSON string: " + e.getMessage());
@@ -105,6 +77,35 @@ public class TextTransformer {
         }
     }
 
+    /**
+     * Log building structure: summary at INFO, levels at DEBUG and rooms at TRACE.
+     * Lines are only built for enabled levels and are written asynchronously.
+     * @param wrapper BuildingClasses object to print
+     */
+    private void print(BuildingClasses wrapper) {
+        if (wrapper.building == null) {
+            return;
+        }
+        BuildingClasses.Building building = wrapper.building;
+        int levelCount = building.levels == null ? 0 : building.levels.size();
+        logger.info("Building: {} (id={}) with {} levels", building.name, building.id, levelCount);
+
+        if (building.levels == null || !logger.isDebugEnabled()) {
+            return;
+        }
+        boolean rooms = logger.isTraceEnabled();
+        for (BuildingClasses.Level level : building.levels) {
+            logger.debug("  Level: {} (id={}) with {} rooms", level.name, level.id,
+                    level.rooms == null ? 0 : level.rooms.size());
+            if (rooms && level.rooms != null) {
+                for (BuildingClasses.Room room : level.rooms) {
+                    logger.trace("    Room: {} (id={}, area={}, cube={}, heating={}, light={})",
+                            room.name, room.id, room.area, room.cube, room.heating, room.light);
+                }
+            }
+        }
+    }
+
     /**
      * Save building data to file
      * Uses decorator pattern for writing JSON file
@@ -115,7 +116,7 @@ public class TextTransformer {
         try {
             // Use decorated reader to write to file
             reader.writeToFile(wrapper, file);
-            System.out.println("Successfully saved building data to: " + file.getAbsolutePath());
+            logger.info("Successfully saved building data to: {}", file.getAbsolutePath());
 
         } catch (Exception e) {
             System.err.println("Error saving to file: " + e.getMessage());
@@ -2,6 +2,8 @@ package pl.put. poznan.transformer.rest;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import pl.put.poznan.transformer. logic.BuildingClasses;
+import pl.put.poznan.transformer.logic.CompensatedSum;
+import pl.put.poznan.transformer.logic.StreamingTotals;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,24 +40,30 @@ public class AreaReportVisitor implements BuildingClasses.Visitor {
 
     private AreaReport report;
     private LevelReport currentLevelReport;
-    private final BuildingClasses calculator = new BuildingClasses();
+
+    // Compensated sums behind the totals; the building total is the sum of the level totals
+    private final CompensatedSum buildingArea = new CompensatedSum();
+    private final CompensatedSum levelArea = new CompensatedSum();
 
     @Override
     public void visit(BuildingClasses.Building building) {
         report = new AreaReport();
         report.buildingId = building.id;
         report.buildingName = building.name;
-        report. totalArea = calculator.calculateArea(building);
+        report.totalArea = 0.0;
         report.levels = new ArrayList<>();
+        buildingArea.reset();
     }
 
     @Override
     public void visit(BuildingClasses. Level level) {
+        addLevelTotal();
         currentLevelReport = new LevelReport();
         currentLevelReport.levelId = level.id;
         currentLevelReport.levelName = level.name;
-        currentLevelReport.totalArea = calculator. calculateArea(level);
+        currentLevelReport.totalArea = 0.0;
         currentLevelReport.rooms = new ArrayList<>();
+        levelArea.reset();
         if (report != null) {
             report.levels.add(currentLevelReport);
         }
@@ -69,10 +77,46 @@ public class AreaReportVisitor implements BuildingClasses.Visitor {
             roomReport.roomName = room. name;
             roomReport.area = room.area;
             currentLevelReport.rooms.add(roomReport);
+
+            // Totals are accumulated bottom-up while visiting rooms
+            levelArea.add(room.area);
+            currentLevelReport.totalArea = levelArea.get();
         }
     }
 
     public AreaReport getReport() {
+        addLevelTotal();
         return report;
     }
+
+    /**
+     * Add the total of the last visited level to the building total, once
+     */
+    private void addLevelTotal() {
+        if (currentLevelReport != null && report != null) {
+            buildingArea.add(currentLevelReport.totalArea);
+            report.totalArea = buildingArea.get();
+        }
+        currentLevelReport = null;
+    }
+
+    /**
+     * Build area report from totals aggregated by the streaming parser.
+     * Room details are not available in streaming mode, so levels contain totals only.
+     */
+    public static AreaReport fromTotals(StreamingTotals totals) {
+        AreaReport areaReport = new AreaReport();
+        areaReport.buildingId = totals.getBuildingId();
+        areaReport.buildingName = totals.getBuildingName();
+        areaReport.totalArea = totals.getTotals().getArea();
+        areaReport.levels = new ArrayList<>();
+        for (StreamingTotals.LevelTotals level : totals.getLevels()) {
+            LevelReport levelReport = new LevelReport();
+            levelReport.levelId = level.id;
+            levelReport.levelName = level.name;
+            levelReport.totalArea = level.totals.getArea();
+            areaReport.levels.add(levelReport);
+        }
+        return areaReport;
+    }
 }
\ No newline at end of file
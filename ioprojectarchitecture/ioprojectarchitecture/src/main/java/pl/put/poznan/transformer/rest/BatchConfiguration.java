@@ -0,0 +1,31 @@
+package pl.put.poznan.transformer.rest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import pl.put.poznan.transformer.logic.BatchReportProcessor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Spring configuration of parallel report processing.
+ * Batches and levels of large buildings run on one bounded pool, so parallel work does not
+ * starve the common pool or the request threads. Limits are set in application.properties.
+ */
+@Configuration
+public class BatchConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool reportPool(@Value("${report.pool.parallelism:0}") int parallelism) {
+        if (parallelism <= 0) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        return new ForkJoinPool(parallelism);
+    }
+
+    @Bean
+    public BatchReportProcessor batchReportProcessor(ForkJoinPool reportPool,
+                                                     @Value("${batch.window-per-thread:4}") int windowPerThread,
+                                                     @Value("${batch.max-item-bytes:67108864}") int maxItemBytes) {
+        return new BatchReportProcessor(reportPool, reportPool.getParallelism() * windowPerThread, maxItemBytes);
+    }
+}
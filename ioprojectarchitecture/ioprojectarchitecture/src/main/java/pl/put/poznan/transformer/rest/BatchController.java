@@ -0,0 +1,101 @@
+package pl.put.poznan.transformer.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import pl.put.poznan.transformer.logic.BatchReportProcessor;
+import pl.put.poznan.transformer.logic.ReportEngine;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
+
+/**
+ * REST Controller for batch reports
+ * Accepts many buildings in one request and streams one NDJSON report line per building,
+ * in the same order as the buildings were sent. Batches run on the bounded report executor,
+ * see {@link HeavyRequests}. Large batches take far longer than single reports, so they have
+ * their own time limit instead of spring.mvc.async.request-timeout.
+ */
+@Controller
+public class BatchController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchController.class);
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String ZIP = "application/zip";
+
+    private final BatchReportProcessor processor;
+    private final HeavyRequests heavyRequests;
+    /** Time limit of a batch request in milliseconds, 0 for none */
+    private final long requestTimeout;
+
+    public BatchController(BatchReportProcessor processor, HeavyRequests heavyRequests,
+                           @Value("${batch.request-timeout-ms:0}") long requestTimeout) {
+        this.processor = processor;
+        this.heavyRequests = heavyRequests;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Reports of buildings sent as NDJSON, one building document per line
+     * @param metrics Comma separated metric names: area, volume, luminosity, heating
+     */
+    @PostMapping(value = "/batch/report", consumes = NDJSON, produces = NDJSON)
+    @ResponseBody
+    public DeferredResult<ResponseEntity<?>> batchNdjson(InputStream body,
+                                                         @RequestParam(name = "metrics",
+                                                                 defaultValue = "area,volume,luminosity")
+                                                                 String[] metrics,
+                                                         HttpServletResponse response) {
+        return batch(metrics, response, (requested, output) -> processor.processNdjson(body, requested, output));
+    }
+
+    /**
+     * Reports of buildings sent as zip archive, every .json entry is one building
+     * @param metrics Comma separated metric names: area, volume, luminosity, heating
+     */
+    @PostMapping(value = "/batch/report", consumes = ZIP, produces = NDJSON)
+    @ResponseBody
+    public DeferredResult<ResponseEntity<?>> batchZip(InputStream body,
+                                                      @RequestParam(name = "metrics",
+                                                              defaultValue = "area,volume,luminosity")
+                                                              String[] metrics,
+                                                      HttpServletResponse response) {
+        return batch(metrics, response, (requested, output) -> processor.processZip(body, requested, output));
+    }
+
+    /**
+     * Processing of one batch input format
+     */
+    private interface BatchFunction {
+        long apply(Set<ReportEngine.Metric> metrics, OutputStream output) throws IOException;
+    }
+
+    private DeferredResult<ResponseEntity<?>> batch(String[] metrics, HttpServletResponse response,
+                                                    BatchFunction function) {
+        Set<ReportEngine.Metric> requested;
+        try {
+            requested = ReportEngine.Metric.parse(metrics);
+        } catch (IllegalArgumentException e) {
+            return HeavyRequests.completed(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage()));
+        }
+        logger.info("Processing batch report {}", requested);
+
+        // Buildings are read and reports written while the response is being sent
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(NDJSON));
+        return heavyRequests.stream(response, headers, requestTimeout, output -> {
+            long count = function.apply(requested, output);
+            logger.info("Batch of {} buildings processed", count);
+        });
+    }
+}
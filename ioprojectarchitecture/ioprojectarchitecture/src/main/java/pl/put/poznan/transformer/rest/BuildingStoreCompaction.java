@@ -0,0 +1,40 @@
+package pl.put.poznan.transformer.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pl.put.poznan.transformer.logic.BuildingStore;
+
+/**
+ * Periodic compaction of the building store log.
+ * The log is rewritten only when replaced and deleted buildings take more than
+ * the configured share of it.
+ */
+@Component
+public class BuildingStoreCompaction {
+
+    private static final Logger logger = LoggerFactory.getLogger(BuildingStoreCompaction.class);
+
+    private final BuildingStore buildingStore;
+    private final double minGarbageRatio;
+
+    public BuildingStoreCompaction(BuildingStore buildingStore,
+                                   @Value("${building.store.compaction-garbage-ratio:0.5}") double minGarbageRatio) {
+        this.buildingStore = buildingStore;
+        this.minGarbageRatio = minGarbageRatio;
+    }
+
+    @Scheduled(fixedDelayString = "${building.store.compaction-interval-ms:600000}",
+            initialDelayString = "${building.store.compaction-interval-ms:600000}")
+    public void compact() {
+        try {
+            if (buildingStore.compactIfNeeded(minGarbageRatio)) {
+                logger.info("Compacted building store to {} bytes", buildingStore.getStats().fileBytes);
+            }
+        } catch (Exception e) {
+            logger.error("Error compacting building store", e);
+        }
+    }
+}
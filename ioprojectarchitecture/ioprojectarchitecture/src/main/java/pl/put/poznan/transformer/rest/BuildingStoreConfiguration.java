@@ -0,0 +1,32 @@
+package pl.put.poznan.transformer.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import pl.put.poznan.transformer.logic.BuildingStore;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Spring configuration of the local building store.
+ * Location and limits are set in application.properties,
+ * compaction runs in {@link BuildingStoreCompaction}.
+ */
+@Configuration
+@EnableScheduling
+public class BuildingStoreConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(BuildingStoreConfiguration.class);
+
+    @Bean(destroyMethod = "close")
+    public BuildingStore buildingStore(@Value("${building.store.path:data/buildings.log}") String path,
+                                       @Value("${building.store.cache-entries:256}") int cacheEntries)
+            throws IOException {
+        BuildingStore store = BuildingStore.open(Paths.get(path), cacheEntries);
+        logger.info("Opened building store {} with {} buildings", path, store.getStats().buildings);
+        return store;
+    }
+}
@@ -0,0 +1,391 @@
+package pl.put.poznan.transformer.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import pl.put.poznan.transformer.logic.BuildingClasses;
+import pl.put.poznan.transformer.logic.BuildingPatch;
+import pl.put.poznan.transformer.logic.BuildingStore;
+import pl.put.poznan.transformer.logic.DataFormat;
+import pl.put.poznan.transformer.logic.EditableBuilding;
+import pl.put.poznan.transformer.logic.FormatReaders;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * REST Controller for buildings kept in the local building store
+ * A building is uploaded once and its reports are then requested by building id,
+ * without sending the building again. Uploads are parsed on the bounded report executor,
+ * see {@link HeavyRequests}.
+ */
+@Controller
+public class BuildingStoreController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BuildingStoreController.class);
+
+    /**
+     * Id of a stored building
+     */
+    public static class StoredBuilding {
+        public String id;
+    }
+
+    private final BuildingStore buildingStore;
+    /** Shared decorated readers of all data formats, assembled in {@link ReaderConfiguration} */
+    private final FormatReaders formatReaders;
+    private final HeavyRequests heavyRequests;
+
+    public BuildingStoreController(BuildingStore buildingStore, FormatReaders formatReaders,
+                                   HeavyRequests heavyRequests) {
+        this.buildingStore = buildingStore;
+        this.formatReaders = formatReaders;
+        this.heavyRequests = heavyRequests;
+    }
+
+    /**
+     * Store uploaded building, replacing the stored building with the same id
+     */
+    @PostMapping(value = "/buildings", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<?>> storeBuilding(@RequestParam("file") MultipartFile file) {
+        return heavyRequests.submit(() -> {
+            try (InputStream input = file.getInputStream()) {
+                logger.info("Storing building from file: {}", file.getOriginalFilename());
+                return storeBuilding(input, DataFormat.fromContentType(file.getContentType()));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+            } catch (Exception e) {
+                logger.error("Error storing building", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error storing building: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Store building sent as request body (JSON, Smile or CBOR)
+     */
+    @PostMapping(value = "/buildings",
+            consumes = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<?>> storeBuildingFromBody(InputStream body,
+                                                                      @RequestHeader(name = HttpHeaders.CONTENT_TYPE,
+                                                                              required = false) String contentType) {
+        return heavyRequests.submit(() -> {
+            try {
+                logger.info("Storing building from request body");
+                return storeBuilding(body, DataFormat.fromContentType(contentType));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+            } catch (Exception e) {
+                logger.error("Error storing building", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error storing building: " + e.getMessage());
+            }
+        });
+    }
+
+    private ResponseEntity<?> storeBuilding(InputStream input, DataFormat format) throws Exception {
+        BuildingClasses wrapper = formatReaders.get(format).read(input, BuildingClasses.class);
+        if (wrapper == null || wrapper.building == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid building data in file.");
+        }
+        if (wrapper.building.id == null || wrapper.building.id.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Building id is required.");
+        }
+        buildingStore.put(wrapper.building);
+        logger.info("Building {} stored", wrapper.building.id);
+
+        StoredBuilding stored = new StoredBuilding();
+        stored.id = wrapper.building.id;
+        return ResponseEntity.status(HttpStatus.CREATED).body(stored);
+    }
+
+    /**
+     * Ids of all stored buildings
+     */
+    @GetMapping(value = "/buildings", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<String> buildingIds() {
+        return buildingStore.ids();
+    }
+
+    /**
+     * Stored building in the accepted format (JSON by default)
+     */
+    @GetMapping(value = "/buildings/{id}",
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public ResponseEntity<?> getBuilding(@PathVariable("id") String id,
+                                         @RequestHeader(name = HttpHeaders.ACCEPT, required = false)
+                                                 String accept,
+                                         @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                 String ifNoneMatch) {
+        try {
+            DataFormat output = DataFormat.fromAccept(accept);
+            return conditional(id, "building." + output, ifNoneMatch, stored -> stored.read(building -> {
+                BuildingClasses wrapper = new BuildingClasses();
+                wrapper.building = building;
+                return respond(wrapper, output);
+            }));
+        } catch (Exception e) {
+            logger.error("Error loading stored building", e);
+            return ResponseEntity.status(PayloadTooLargeException.status(e))
+                    .body("Error loading building: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Add, remove or change a level or room of stored building
+     * Only the change is stored and the maintained totals are adjusted, the building is not rebuilt
+     * @return Totals of the building after the change
+     */
+    @PatchMapping(value = "/buildings/{id}", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> patchBuilding(@PathVariable("id") String id, @RequestBody BuildingPatch patch) {
+        try {
+            EditableBuilding stored = buildingStore.patch(id, patch);
+            if (stored == null) {
+                return notFound(id);
+            }
+            logger.debug("Building {} patched: {}", id, patch.op);
+            return ResponseEntity.ok(stored.getTotals());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error patching stored building", e);
+            return ResponseEntity.status(PayloadTooLargeException.status(e))
+                    .body("Error patching building: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Maintained totals of stored building and its levels, returned without traversing the building
+     */
+    @GetMapping(value = "/buildings/{id}/totals", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> totals(@PathVariable("id") String id,
+                                    @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false)
+                                            String ifNoneMatch) {
+        try {
+            return conditional(id, "totals", ifNoneMatch, stored -> ResponseEntity.ok(stored.getTotals()));
+        } catch (Exception e) {
+            logger.error("Error loading stored building", e);
+            return ResponseEntity.status(PayloadTooLargeException.status(e))
+                    .body("Error loading building: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Single level of stored building with its totals, found by integer level id
+     */
+    @GetMapping(value = "/buildings/{id}/levels/{levelId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> level(@PathVariable("id") String id, @PathVariable("levelId") int levelId) {
+        try {
+            EditableBuilding stored = buildingStore.get(id);
+            if (stored == null) {
+                return notFound(id);
+            }
+            EditableBuilding.LevelDetails level = stored.findLevel(levelId);
+            if (level == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Level not found: " + levelId);
+            }
+            return ResponseEntity.ok(level);
+        } catch (Exception e) {
+            logger.error("Error loading stored building", e);
+            return ResponseEntity.status(PayloadTooLargeException.status(e))
+                    .body("Error loading level: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Single room of stored building with its metrics, found by integer room id
+     */
+    @GetMapping(value = "/buildings/{id}/rooms/{roomId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> room(@PathVariable("id") String id, @PathVariable("roomId") int roomId) {
+        try {
+            EditableBuilding stored = buildingStore.get(id);
+            if (stored == null) {
+                return notFound(id);
+            }
+            EditableBuilding.RoomDetails room = stored.findRoom(roomId);
+            if (room == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Room not found: " + roomId);
+            }
+            return ResponseEntity.ok(room);
+        } catch (Exception e) {
+            logger.error("Error loading stored building", e);
+            return ResponseEntity.status(PayloadTooLargeException.status(e))
+                    .body("Error loading room: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Delete stored building
+     */
+    @DeleteMapping("/buildings/{id}")
+    @ResponseBody
+    public ResponseEntity<?> deleteBuilding(@PathVariable("id") String id) {
+        try {
+            if (!buildingStore.delete(id)) {
+                return notFound(id);
+            }
+            logger.info("Building {} deleted", id);
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            logger.error("Error deleting stored building", e);
+            return ResponseEntity.status(PayloadTooLargeException.status(e))
+                    .body("Error deleting building: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Total area of stored building
+     */
+    @GetMapping(value = "/buildings/{id}/area",
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public ResponseEntity<?> area(@PathVariable("id") String id,
+                                  @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                  @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false)
+                                          String ifNoneMatch) {
+        AreaReportVisitor visitor = new AreaReportVisitor();
+        return report(id, "area", visitor, visitor::getReport, DataFormat.fromAccept(accept), ifNoneMatch);
+    }
+
+    /**
+     * Total volume of stored building
+     */
+    @GetMapping(value = "/buildings/{id}/volume",
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public ResponseEntity<?> volume(@PathVariable("id") String id,
+                                    @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                    @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false)
+                                            String ifNoneMatch) {
+        VolumeReportVisitor visitor = new VolumeReportVisitor();
+        return report(id, "volume", visitor, visitor::getReport, DataFormat.fromAccept(accept), ifNoneMatch);
+    }
+
+    /**
+     * Luminosity of stored building
+     */
+    @GetMapping(value = "/buildings/{id}/luminosity",
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public ResponseEntity<?> luminosity(@PathVariable("id") String id,
+                                        @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                String ifNoneMatch) {
+        LuminosityReportVisitor visitor = new LuminosityReportVisitor();
+        return report(id, "luminosity", visitor, visitor::getReport, DataFormat.fromAccept(accept), ifNoneMatch);
+    }
+
+    /**
+     * Heating per cubic metre of stored building
+     */
+    @GetMapping(value = "/buildings/{id}/heating",
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public ResponseEntity<?> heating(@PathVariable("id") String id,
+                                     @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                     @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false)
+                                             String ifNoneMatch) {
+        HeatingReportVisitor visitor = new HeatingReportVisitor();
+        return report(id, "heating", visitor, visitor::getReport, DataFormat.fromAccept(accept), ifNoneMatch);
+    }
+
+    /**
+     * Building store counters
+     */
+    @GetMapping(value = "/buildings/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public BuildingStore.Stats stats() {
+        return buildingStore.getStats();
+    }
+
+    /**
+     * Report of a visitor collecting its result
+     */
+    private interface ReportSupplier {
+        Object get();
+    }
+
+    /**
+     * Traverse stored building with the visitor and return its report
+     */
+    private ResponseEntity<?> report(String id, String reportType, BuildingClasses.Visitor visitor,
+                                     ReportSupplier report, DataFormat output, String ifNoneMatch) {
+        try {
+            logger.info("Calculating {} of stored building {}", reportType, id);
+            return conditional(id, reportType + "." + output, ifNoneMatch, stored -> {
+                stored.read(building -> {
+                    building.accept(visitor);
+                    return null;
+                });
+                return respond(report.get(), output);
+            });
+        } catch (Exception e) {
+            logger.error("Error calculating {}", reportType, e);
+            return ResponseEntity.status(PayloadTooLargeException.status(e))
+                    .body("Error calculating " + reportType + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Response computed from stored building
+     */
+    private interface StoredResponse {
+        ResponseEntity<?> apply(EditableBuilding stored) throws Exception;
+    }
+
+    /**
+     * Response of stored building tagged with an ETag of the building version and response type.
+     * If If-None-Match lists the current tag, 304 is returned without loading the building.
+     */
+    private ResponseEntity<?> conditional(String id, String responseType, String ifNoneMatch,
+                                          StoredResponse response) throws Exception {
+        String version = buildingStore.version(id);
+        if (version == null) {
+            return notFound(id);
+        }
+        String etag = EntityTags.of(responseType, version);
+        if (EntityTags.matches(ifNoneMatch, etag)) {
+            return EntityTags.notModified(etag);
+        }
+        EditableBuilding stored = buildingStore.get(id);
+        if (stored == null) {
+            return notFound(id);
+        }
+        ResponseEntity<?> result = response.apply(stored);
+        // A building replaced or patched meanwhile may have been read in its new version, so it is not tagged
+        if (result.getStatusCode() != HttpStatus.OK || !version.equals(buildingStore.version(id))) {
+            return result;
+        }
+        return ResponseEntity.ok().headers(result.getHeaders()).eTag(etag).body(result.getBody());
+    }
+
+    /**
+     * Response body serialized in the output format
+     */
+    private ResponseEntity<?> respond(Object body, DataFormat output) throws Exception {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(output.getMediaType()))
+                .body(formatReaders.get(output).writeBytes(body));
+    }
+
+    private static ResponseEntity<String> notFound(String id) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Building not found: " + id);
+    }
+}
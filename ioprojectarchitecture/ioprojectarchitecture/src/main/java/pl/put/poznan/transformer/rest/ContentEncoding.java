@@ -0,0 +1,144 @@
+package pl.put.poznan.transformer.rest;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * HTTP content codings of uploaded buildings and reports.
+ * Streams are decoded and encoded while they are read or written, so compressed
+ * documents go straight into the parser and from the generator without being buffered whole.
+ */
+public enum ContentEncoding {
+    IDENTITY("identity"),
+    ZSTD("zstd"),
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Name of the coding in Content-Encoding and Accept-Encoding headers
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Decompressing view of a stream in this coding
+     */
+    public InputStream decode(InputStream input) throws IOException {
+        switch (this) {
+            case ZSTD:
+                return new ZstdInputStream(input);
+            case GZIP:
+                return new GZIPInputStream(input, BUFFER_SIZE);
+            case DEFLATE:
+                return new InflaterInputStream(input);
+            default:
+                return input;
+        }
+    }
+
+    /**
+     * Compressing stream writing to the output in this coding; closing it finishes the coding and closes the output.
+     * Flushing it sends everything written so far, so streamed reports are not held back by the compressor.
+     */
+    public OutputStream encode(OutputStream output) throws IOException {
+        switch (this) {
+            case ZSTD:
+                return new ZstdOutputStream(output);
+            case GZIP:
+                return new GZIPOutputStream(output, BUFFER_SIZE, true);
+            case DEFLATE:
+                return new DeflaterOutputStream(output, true);
+            default:
+                return output;
+        }
+    }
+
+    /**
+     * Coding of a request body
+     * @param contentEncoding Content-Encoding header, may be null
+     * @return Matching coding, IDENTITY when missing
+     * @throws IllegalArgumentException if the coding is not supported
+     */
+    public static ContentEncoding fromContentEncoding(String contentEncoding) {
+        if (contentEncoding == null || contentEncoding.trim().isEmpty()) {
+            return IDENTITY;
+        }
+        ContentEncoding encoding = match(contentEncoding);
+        if (encoding == null) {
+            throw new IllegalArgumentException("Unsupported Content-Encoding: " + contentEncoding);
+        }
+        return encoding;
+    }
+
+    /**
+     * Coding of a response
+     * @param acceptEncoding Accept-Encoding header, may be null
+     * @return Accepted coding with the highest quality, preferring zstd, gzip and deflate in that order
+     * on equal quality; IDENTITY when none is accepted
+     */
+    public static ContentEncoding fromAcceptEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return IDENTITY;
+        }
+        ContentEncoding best = IDENTITY;
+        double bestQuality = 0.0;
+        for (String item : acceptEncoding.split(",")) {
+            String[] parts = item.split(";");
+            ContentEncoding encoding = match(parts[0]);
+            if (encoding == null || encoding == IDENTITY) {
+                continue;
+            }
+            double quality = quality(parts);
+            boolean preferred = quality == bestQuality && quality > 0 && encoding.ordinal() < best.ordinal();
+            if (quality > bestQuality || preferred) {
+                best = encoding;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0.0;
+                }
+            }
+        }
+        return 1.0;
+    }
+
+    private static ContentEncoding match(String token) {
+        String name = token.trim().toLowerCase(Locale.ROOT);
+        if ("x-gzip".equals(name)) {
+            return GZIP;
+        }
+        for (ContentEncoding encoding : values()) {
+            if (encoding.token.equals(name)) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,37 @@
+package pl.put.poznan.transformer.rest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+
+/**
+ * Spring configuration of compressed uploads and responses (gzip, zstd, deflate).
+ * Request bodies are decoded by Content-Encoding and responses encoded by Accept-Encoding in
+ * {@link ContentEncodingFilter}; multipart file parts are decoded by their own Content-Encoding
+ * in {@link DecodingMultipartResolver}, which replaces the default multipart resolver.
+ * Both limit the decompressed size (content-encoding.max-decoded-bytes).
+ */
+@Configuration
+public class ContentEncodingConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<ContentEncodingFilter> contentEncodingFilter(
+            @Value("${content-encoding.max-decoded-bytes:134217728}") long maxDecodedBytes) {
+        FilterRegistrationBean<ContentEncodingFilter> registration =
+                new FilterRegistrationBean<>(new ContentEncodingFilter(maxDecodedBytes));
+        // Outermost filter, so other filters see uncompressed bodies
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        registration.setAsyncSupported(true);
+        return registration;
+    }
+
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public MultipartResolver multipartResolver(
+            @Value("${content-encoding.max-decoded-bytes:134217728}") long maxDecodedBytes) {
+        return new DecodingMultipartResolver(maxDecodedBytes);
+    }
+}
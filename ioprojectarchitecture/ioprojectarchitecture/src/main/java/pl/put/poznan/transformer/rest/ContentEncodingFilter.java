@@ -0,0 +1,344 @@
+package pl.put.poznan.transformer.rest;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Filter decoding compressed request bodies and compressing responses.
+ * A body sent with Content-Encoding gzip, zstd or deflate is decompressed while the handler reads it,
+ * and the response is compressed while it is written in the coding preferred by Accept-Encoding.
+ * Neither side is buffered, so streamed uploads and reports stay streamed.
+ * Reading more than {@code maxDecodedBytes} of a decompressed body fails with {@link PayloadTooLargeException}.
+ *
+ * Multipart requests cannot be decoded as a whole because the container parses their parts itself;
+ * compressed files are sent as parts with their own Content-Encoding header instead
+ * (see {@link DecodingMultipartResolver}).
+ */
+public class ContentEncodingFilter extends OncePerRequestFilter {
+    private final long maxDecodedBytes;
+
+    /**
+     * @param maxDecodedBytes Size limit of a decompressed request body
+     */
+    public ContentEncodingFilter(long maxDecodedBytes) {
+        this.maxDecodedBytes = maxDecodedBytes;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        HttpServletRequest decodedRequest = request;
+        if (!isAsyncDispatch(request)) {
+            ContentEncoding encoding;
+            try {
+                encoding = ContentEncoding.fromContentEncoding(request.getHeader(HttpHeaders.CONTENT_ENCODING));
+            } catch (IllegalArgumentException e) {
+                response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(), e.getMessage());
+                return;
+            }
+            if (encoding != ContentEncoding.IDENTITY) {
+                if (isMultipart(request)) {
+                    response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(),
+                            "Compressed multipart requests are not supported, set Content-Encoding on the file part");
+                    return;
+                }
+                decodedRequest = new DecodingRequest(request, encoding, maxDecodedBytes);
+            }
+        }
+
+        // Asynchronous requests are dispatched again with the wrapper created by the first dispatch
+        EncodingResponse encodedResponse = WebUtils.getNativeResponse(response, EncodingResponse.class);
+        if (encodedResponse == null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            ContentEncoding encoding = ContentEncoding.fromAcceptEncoding(
+                    request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+            if (encoding != ContentEncoding.IDENTITY) {
+                encodedResponse = new EncodingResponse(response, encoding);
+            }
+        }
+
+        chain.doFilter(decodedRequest, encodedResponse != null ? encodedResponse : response);
+
+        if (encodedResponse != null && !decodedRequest.isAsyncStarted()) {
+            encodedResponse.finish();
+        }
+    }
+
+    /**
+     * Also runs on asynchronous dispatches, which write the responses of reports computed off the request threads
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    private static boolean isMultipart(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("multipart/");
+    }
+
+    /**
+     * Request whose body is decompressed while it is read
+     */
+    private static class DecodingRequest extends HttpServletRequestWrapper {
+        private final ContentEncoding encoding;
+        private final long maxDecodedBytes;
+        private ServletInputStream input;
+
+        DecodingRequest(HttpServletRequest request, ContentEncoding encoding, long maxDecodedBytes) {
+            super(request);
+            this.encoding = encoding;
+            this.maxDecodedBytes = maxDecodedBytes;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (input == null) {
+                ServletInputStream body = super.getInputStream();
+                input = new DecodedInputStream(body, new LimitedInputStream(encoding.decode(body), maxDecodedBytes));
+            }
+            return input;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+    }
+
+    private static class DecodedInputStream extends ServletInputStream {
+        private final ServletInputStream body;
+        private final InputStream decoded;
+        private boolean finished;
+
+        DecodedInputStream(ServletInputStream body, InputStream decoded) {
+            this.body = body;
+            this.decoded = decoded;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = decoded.read();
+            finished = b < 0;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = decoded.read(buffer, offset, length);
+            finished = read < 0;
+            return read;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return body.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            throw new UnsupportedOperationException("Non-blocking reads of compressed bodies are not supported");
+        }
+
+        @Override
+        public void close() throws IOException {
+            decoded.close();
+        }
+    }
+
+    /**
+     * Response compressed while it is written.
+     * The coding starts with the first written byte, so responses without a body get no Content-Encoding.
+     * Content-Length set by handlers is dropped because it is the length before compression.
+     */
+    private static class EncodingResponse extends HttpServletResponseWrapper {
+        private final ContentEncoding encoding;
+        private EncodedOutputStream output;
+        private PrintWriter writer;
+
+        EncodingResponse(HttpServletResponse response, ContentEncoding encoding) {
+            super(response);
+            this.encoding = encoding;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            return encodedOutput();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (output != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called");
+                }
+                writer = new PrintWriter(new OutputStreamWriter(encodedOutput(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        private EncodedOutputStream encodedOutput() throws IOException {
+            if (output == null) {
+                output = new EncodedOutputStream(this, super.getOutputStream());
+            }
+            return output;
+        }
+
+        @Override
+        public void setContentLength(int length) {
+        }
+
+        @Override
+        public void setContentLengthLong(long length) {
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            } else if (output != null) {
+                output.flush();
+            }
+            super.flushBuffer();
+        }
+
+        /**
+         * Write the end of the coding, called when the handler has written the whole response
+         */
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (output != null) {
+                output.finish();
+            }
+        }
+
+        /**
+         * Start the coding before the first byte is written
+         * @return Compressing stream, or the response stream if the response cannot be compressed any more
+         */
+        OutputStream startEncoding(ServletOutputStream body) throws IOException {
+            if (isCommitted() || getHeader(HttpHeaders.CONTENT_ENCODING) != null) {
+                return body;
+            }
+            super.setHeader(HttpHeaders.CONTENT_ENCODING, encoding.getToken());
+            // Finishing the coding must not close the response stream, the container does that
+            return encoding.encode(new FilterOutputStream(body) {
+                @Override
+                public void write(byte[] buffer, int offset, int length) throws IOException {
+                    out.write(buffer, offset, length);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            });
+        }
+    }
+
+    private static class EncodedOutputStream extends ServletOutputStream {
+        private final EncodingResponse response;
+        private final ServletOutputStream body;
+        private OutputStream encoded;
+
+        EncodedOutputStream(EncodingResponse response, ServletOutputStream body) {
+            this.response = response;
+            this.body = body;
+        }
+
+        private OutputStream encoded() throws IOException {
+            if (encoded == null) {
+                encoded = response.startEncoding(body);
+            }
+            return encoded;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            encoded().write(b);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            encoded().write(buffer, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (encoded != null) {
+                encoded.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            body.close();
+        }
+
+        void finish() throws IOException {
+            if (encoded != null && encoded != body) {
+                encoded.close();
+                encoded = body;
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return body.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            throw new UnsupportedOperationException("Non-blocking writes of compressed responses are not supported");
+        }
+    }
+}
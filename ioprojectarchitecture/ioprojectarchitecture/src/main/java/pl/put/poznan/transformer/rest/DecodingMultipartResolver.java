@@ -0,0 +1,136 @@
+package pl.put.poznan.transformer.rest;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.multipart.MultipartException;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.multipart.support.StandardMultipartHttpServletRequest;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import javax.servlet.http.HttpServletRequest;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multipart resolver decompressing uploaded files sent with a Content-Encoding part header
+ * (e.g. curl -F 'file=@building.json.gz;type=application/json;headers="Content-Encoding: gzip"').
+ * The files are decompressed while handlers read them, so a compressed upload goes straight into the parser;
+ * reading more than {@code maxDecodedBytes} of a decompressed file fails with {@link PayloadTooLargeException}.
+ */
+public class DecodingMultipartResolver extends StandardServletMultipartResolver {
+    private final long maxDecodedBytes;
+
+    /**
+     * @param maxDecodedBytes Size limit of a decompressed file
+     */
+    public DecodingMultipartResolver(long maxDecodedBytes) {
+        this.maxDecodedBytes = maxDecodedBytes;
+    }
+
+    @Override
+    public MultipartHttpServletRequest resolveMultipart(HttpServletRequest request) throws MultipartException {
+        return new DecodingMultipartRequest(request, maxDecodedBytes);
+    }
+
+    private static class DecodingMultipartRequest extends StandardMultipartHttpServletRequest {
+        private final long maxDecodedBytes;
+        private boolean wrapped;
+
+        DecodingMultipartRequest(HttpServletRequest request, long maxDecodedBytes) throws MultipartException {
+            super(request);
+            this.maxDecodedBytes = maxDecodedBytes;
+        }
+
+        @Override
+        protected MultiValueMap<String, MultipartFile> getMultipartFiles() {
+            MultiValueMap<String, MultipartFile> files = super.getMultipartFiles();
+            if (wrapped) {
+                return files;
+            }
+            MultiValueMap<String, MultipartFile> decoded = new LinkedMultiValueMap<>();
+            for (Map.Entry<String, List<MultipartFile>> entry : files.entrySet()) {
+                HttpHeaders headers = getMultipartHeaders(entry.getKey());
+                ContentEncoding encoding;
+                try {
+                    encoding = ContentEncoding.fromContentEncoding(
+                            headers == null ? null : headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+                } catch (IllegalArgumentException e) {
+                    throw new MultipartException(e.getMessage(), e);
+                }
+                for (MultipartFile file : entry.getValue()) {
+                    decoded.add(entry.getKey(),
+                            encoding == ContentEncoding.IDENTITY ? file
+                                    : new DecodedMultipartFile(file, encoding, maxDecodedBytes));
+                }
+            }
+            setMultipartFiles(decoded);
+            wrapped = true;
+            return decoded;
+        }
+    }
+
+    /**
+     * Uploaded file decompressed while it is read; its size is the compressed size
+     */
+    private static class DecodedMultipartFile implements MultipartFile {
+        private final MultipartFile file;
+        private final ContentEncoding encoding;
+        private final long maxDecodedBytes;
+
+        DecodedMultipartFile(MultipartFile file, ContentEncoding encoding, long maxDecodedBytes) {
+            this.file = file;
+            this.encoding = encoding;
+            this.maxDecodedBytes = maxDecodedBytes;
+        }
+
+        @Override
+        public String getName() {
+            return file.getName();
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return file.getOriginalFilename();
+        }
+
+        @Override
+        public String getContentType() {
+            return file.getContentType();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return file.isEmpty();
+        }
+
+        @Override
+        public long getSize() {
+            return file.getSize();
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            try (InputStream input = getInputStream()) {
+                return input.readAllBytes();
+            }
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new LimitedInputStream(encoding.decode(file.getInputStream()), maxDecodedBytes);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            try (InputStream input = getInputStream()) {
+                Files.copy(input, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
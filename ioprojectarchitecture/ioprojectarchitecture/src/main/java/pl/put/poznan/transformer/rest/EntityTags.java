@@ -0,0 +1,66 @@
+package pl.put.poznan.transformer.rest;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Weak entity tags of reports and buildings and matching of If-None-Match.
+ * A tag combines the version of the building content (fingerprint of uploaded bytes or version of
+ * a stored building) with the response type and format. Tags are weak because responses may be
+ * compressed or serialized differently while representing the same content.
+ *
+ * A GET or HEAD request whose If-None-Match lists the tag is answered with 304 Not Modified before
+ * the building is parsed or traversed; an uploading POST request gets 412 Precondition Failed,
+ * as HTTP requires for methods other than GET and HEAD.
+ */
+final class EntityTags {
+    private static final String WEAK_PREFIX = "W/";
+
+    private EntityTags() {
+    }
+
+    /**
+     * @param responseType Report or response type, including the output format
+     * @param version Version of the building content
+     * @return Weak entity tag
+     */
+    static String of(String responseType, String version) {
+        return WEAK_PREFIX + "\"" + responseType.replaceAll("[^A-Za-z0-9._-]", "") + "-" + version + "\"";
+    }
+
+    /**
+     * Whether If-None-Match lists the tag, using the weak comparison required for If-None-Match
+     * @param ifNoneMatch If-None-Match header, may be null
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = opaqueTag(etag);
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || opaqueTag(tag).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String tag) {
+        return tag.startsWith(WEAK_PREFIX) ? tag.substring(WEAK_PREFIX.length()) : tag;
+    }
+
+    /**
+     * 304 response of a GET or HEAD request with a matched tag
+     */
+    static ResponseEntity<?> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+
+    /**
+     * 412 response of a POST request with a matched tag
+     */
+    static ResponseEntity<?> preconditionFailed(String etag) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(etag).build();
+    }
+}
@@ -0,0 +1,140 @@
+package pl.put.poznan.transformer.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import pl.put.poznan.transformer.logic.ColumnarBuilding;
+import pl.put.poznan.transformer.logic.DataFormat;
+import pl.put.poznan.transformer.logic.HeatingIndex;
+import pl.put.poznan.transformer.logic.LruMap;
+import pl.put.poznan.transformer.logic.ReportCache;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * REST Controller for heating audits
+ * A building is indexed once by heating per cubic metre, threshold queries are then
+ * answered from the index. Indexes are identified by the fingerprint of the uploaded
+ * content, so uploading the same building again reuses its index. Indexes are built on the
+ * bounded report executor, see {@link HeavyRequests}.
+ */
+@Controller
+public class HeatingIndexController {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeatingIndexController.class);
+
+    /**
+     * Summary of a built index
+     */
+    public static class IndexInfo {
+        public String indexId;
+        public String buildingId;
+        public int rooms;
+    }
+
+    /** Most recently used indexes, access synchronized on the map */
+    private final LruMap<String, HeatingIndex> indexes;
+    private final HeavyRequests heavyRequests;
+
+    public HeatingIndexController(@Value("${heating.index.max-entries:64}") int maxEntries,
+                                  HeavyRequests heavyRequests) {
+        this.indexes = new LruMap<>(maxEntries);
+        this.heavyRequests = heavyRequests;
+    }
+
+    /**
+     * Build heating index of uploaded building
+     */
+    @PostMapping(value = "/heatingIndex", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<?>> buildIndex(@RequestParam("file") MultipartFile file) {
+        return heavyRequests.submit(() -> {
+            try {
+                return buildIndex(file.getBytes(), DataFormat.fromContentType(file.getContentType()));
+            } catch (Exception e) {
+                logger.error("Error building heating index", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error building heating index: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Build heating index of building sent as request body (JSON, Smile or CBOR)
+     */
+    @PostMapping(value = "/heatingIndex",
+            consumes = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<?>> buildIndexFromBody(InputStream body,
+                                                                   @RequestHeader(name = HttpHeaders.CONTENT_TYPE,
+                                                                           required = false) String contentType) {
+        return heavyRequests.submit(() -> {
+            try {
+                return buildIndex(body.readAllBytes(), DataFormat.fromContentType(contentType));
+            } catch (Exception e) {
+                logger.error("Error building heating index", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error building heating index: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Rooms of an indexed building with heating per cubic metre above the threshold
+     * @param indexId Id returned when the index was built
+     * @param above Heating per cubic metre threshold
+     * @param limit Maximum number of rooms, 0 for all
+     * @return Matching rooms, highest heating per cubic metre first
+     */
+    @GetMapping(value = "/heatingIndex/{indexId}/rooms", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> roomsAbove(@PathVariable("indexId") String indexId,
+                                        @RequestParam("above") double above,
+                                        @RequestParam(name = "limit", defaultValue = "0") int limit) {
+        HeatingIndex index;
+        synchronized (indexes) {
+            index = indexes.get(indexId);
+        }
+        if (index == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Unknown heating index: " + indexId);
+        }
+        List<HeatingIndex.Entry> rooms = index.above(above, limit);
+        return ResponseEntity.ok(rooms);
+    }
+
+    private ResponseEntity<?> buildIndex(byte[] content, DataFormat format) throws Exception {
+        String indexId = ReportCache.key(content, "heatingIndex").fingerprint();
+
+        HeatingIndex index;
+        synchronized (indexes) {
+            index = indexes.get(indexId);
+        }
+        if (index == null) {
+            ColumnarBuilding building = ColumnarBuilding.parse(new ByteArrayInputStream(content), format);
+            if (building == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid building data in file.");
+            }
+            index = HeatingIndex.of(building);
+            synchronized (indexes) {
+                indexes.put(indexId, index);
+            }
+            logger.info("Built heating index {} with {} rooms", indexId, index.size());
+        }
+
+        IndexInfo info = new IndexInfo();
+        info.indexId = indexId;
+        info.buildingId = index.getBuildingId();
+        info.rooms = index.size();
+        return ResponseEntity.ok(info);
+    }
+}
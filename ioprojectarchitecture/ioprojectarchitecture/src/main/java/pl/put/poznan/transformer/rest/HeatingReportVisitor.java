@@ -0,0 +1,137 @@
+package pl.put.poznan.transformer.rest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import pl.put.poznan.transformer.logic.BuildingClasses;
+import pl.put.poznan.transformer.logic.CompensatedSum;
+import pl.put.poznan.transformer.logic.StreamingTotals;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Visitor implementation for generating heating efficiency reports
+ * Heating per cubic metre of levels and of the building is the total heating
+ * divided by the total volume, both accumulated while visiting rooms
+ */
+public class HeatingReportVisitor implements BuildingClasses.Visitor {
+
+    // --- DTO classes as inner classes ---
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class HeatingReport {
+        public String buildingId;
+        public String buildingName;
+        public double totalHeating;
+        public double heatingPerCube;
+        public List<LevelReport> levels;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class LevelReport {
+        public String levelId;
+        public String levelName;
+        public double totalHeating;
+        public double heatingPerCube;
+        public List<RoomReport> rooms;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class RoomReport {
+        public String roomId;
+        public String roomName;
+        public double heating;
+        public double heatingPerCube;
+    }
+    // -----------------------------------------
+
+    private HeatingReport report;
+    private LevelReport currentLevelReport;
+    private final BuildingClasses calculator = new BuildingClasses();
+
+    // Compensated sums behind the totals, accumulated while visiting rooms;
+    // building sums are the sums of the level sums
+    private final CompensatedSum buildingHeating = new CompensatedSum();
+    private final CompensatedSum buildingVolume = new CompensatedSum();
+    private final CompensatedSum levelHeating = new CompensatedSum();
+    private final CompensatedSum levelVolume = new CompensatedSum();
+
+    @Override
+    public void visit(BuildingClasses.Building building) {
+        report = new HeatingReport();
+        report.buildingId = building.id;
+        report.buildingName = building.name;
+        report.levels = new ArrayList<>();
+        buildingHeating.reset();
+        buildingVolume.reset();
+    }
+
+    @Override
+    public void visit(BuildingClasses.Level level) {
+        addLevelTotals();
+        currentLevelReport = new LevelReport();
+        currentLevelReport.levelId = level.id;
+        currentLevelReport.levelName = level.name;
+        currentLevelReport.rooms = new ArrayList<>();
+        levelHeating.reset();
+        levelVolume.reset();
+        if (report != null) {
+            report.levels.add(currentLevelReport);
+        }
+    }
+
+    @Override
+    public void visit(BuildingClasses.Room room) {
+        if (currentLevelReport != null) {
+            RoomReport roomReport = new RoomReport();
+            roomReport.roomId = room.id;
+            roomReport.roomName = room.name;
+            roomReport.heating = room.heating;
+            roomReport.heatingPerCube = calculator.calculateHeating(room);
+            currentLevelReport.rooms.add(roomReport);
+
+            levelHeating.add(room.heating);
+            levelVolume.add(room.cube);
+            currentLevelReport.totalHeating = levelHeating.get();
+            currentLevelReport.heatingPerCube =
+                    BuildingClasses.heatingPerCube(currentLevelReport.totalHeating, levelVolume.get());
+        }
+    }
+
+    public HeatingReport getReport() {
+        addLevelTotals();
+        return report;
+    }
+
+    /**
+     * Add the totals of the last visited level to the building totals, once
+     */
+    private void addLevelTotals() {
+        if (currentLevelReport != null && report != null) {
+            buildingHeating.add(levelHeating.get());
+            buildingVolume.add(levelVolume.get());
+            report.totalHeating = buildingHeating.get();
+            report.heatingPerCube = BuildingClasses.heatingPerCube(report.totalHeating, buildingVolume.get());
+        }
+        currentLevelReport = null;
+    }
+
+    /**
+     * Build heating report from totals aggregated by the streaming parser.
+     * Room details are not available in streaming mode, so levels contain totals only.
+     */
+    public static HeatingReport fromTotals(StreamingTotals totals) {
+        HeatingReport heatingReport = new HeatingReport();
+        heatingReport.buildingId = totals.getBuildingId();
+        heatingReport.buildingName = totals.getBuildingName();
+        heatingReport.totalHeating = totals.getTotals().getHeating();
+        heatingReport.heatingPerCube = totals.getTotals().getHeatingPerCube();
+        heatingReport.levels = new ArrayList<>();
+        for (StreamingTotals.LevelTotals level : totals.getLevels()) {
+            LevelReport levelReport = new LevelReport();
+            levelReport.levelId = level.id;
+            levelReport.levelName = level.name;
+            levelReport.totalHeating = level.totals.getHeating();
+            levelReport.heatingPerCube = level.totals.getHeatingPerCube();
+            heatingReport.levels.add(levelReport);
+        }
+        return heatingReport;
+    }
+}
@@ -0,0 +1,195 @@
+package pl.put.poznan.transformer.rest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+import pl.put.poznan.transformer.logic.ReportExecutor;
+import javax.servlet.http.HttpServletResponse;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs heavy requests (parsing and reporting whole buildings) on the bounded {@link ReportExecutor}.
+ * The request thread is released at once; when the executor is saturated the request is answered
+ * with 503 and Retry-After right away instead of waiting for a worker, so cheap requests are still
+ * served during bursts of large uploads.
+ *
+ * Streamed responses are written by the worker straight to the servlet response while the building
+ * is read, so neither the building nor the response is buffered. Their status is sent with the first
+ * bytes, errors after that end the response early. When a streamed request times out, the container
+ * completes the response and the worker stops at its next write.
+ */
+public class HeavyRequests {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeavyRequests.class);
+
+    /** Result of a streamed request, its response has already been written by the worker */
+    private static final ResponseEntity<?> WRITTEN = ResponseEntity.ok().build();
+
+    /**
+     * Body of a streamed response
+     */
+    public interface StreamedBody {
+        /**
+         * @param output Response body; closing it only flushes, the response is completed by the container
+         */
+        void writeTo(OutputStream output) throws Exception;
+    }
+
+    private final ReportExecutor executor;
+    private final String retryAfterSeconds;
+
+    /**
+     * @param executor Executor of heavy requests
+     * @param retryAfterSeconds Seconds after which clients are asked to retry when the executor is saturated
+     */
+    public HeavyRequests(ReportExecutor executor, int retryAfterSeconds) {
+        this.executor = executor;
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+    }
+
+    /**
+     * Run request on the executor
+     * @return Future response, 503 with Retry-After when the executor is saturated
+     */
+    public CompletableFuture<ResponseEntity<?>> submit(Callable<ResponseEntity<?>> request) {
+        try {
+            return executor.submit(request);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Report executor saturated, rejecting request");
+            return CompletableFuture.completedFuture(busy());
+        }
+    }
+
+    /**
+     * Write response on the executor while it is produced
+     * @param response Servlet response the body is written to
+     * @param headers Headers set before the body is written, e.g. its content type
+     * @param timeout Time limit of the request in milliseconds, 0 for none, null for spring.mvc.async.request-timeout
+     * @param body Writer of the response body
+     * @return Result completed when the body has been written, 503 with Retry-After when the executor is saturated
+     */
+    public DeferredResult<ResponseEntity<?>> stream(HttpServletResponse response, HttpHeaders headers, Long timeout,
+                                                    StreamedBody body) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(timeout);
+        AtomicBoolean ended = new AtomicBoolean();
+        result.onTimeout(() -> ended.set(true));
+        result.onError(error -> ended.set(true));
+        try {
+            executor.submit(() -> write(response, headers, body, ended))
+                    .whenComplete((written, error) -> result.setResult(written));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Report executor saturated, rejecting streamed request");
+            result.setResult(busy());
+        }
+        return result;
+    }
+
+    /**
+     * Result of a streamed request answered without running it, e.g. because of invalid parameters
+     */
+    public static DeferredResult<ResponseEntity<?>> completed(ResponseEntity<?> response) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+        result.setResult(response);
+        return result;
+    }
+
+    private static ResponseEntity<?> write(HttpServletResponse response, HttpHeaders headers, StreamedBody body,
+                                           AtomicBoolean ended) {
+        try {
+            response.setStatus(HttpStatus.OK.value());
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                for (String value : header.getValue()) {
+                    response.addHeader(header.getKey(), value);
+                }
+            }
+            body.writeTo(new ResponseBody(response.getOutputStream(), ended));
+            return WRITTEN;
+        } catch (Exception e) {
+            if (ended.get()) {
+                // The response has been completed by the container and may already serve another request
+                logger.warn("Streamed request timed out or failed, response ended early", e);
+                return WRITTEN;
+            }
+            if (response.isCommitted()) {
+                logger.error("Error writing streamed response, response ended early", e);
+                return WRITTEN;
+            }
+            logger.error("Error writing streamed response", e);
+            // The content type of the body does not apply to the error message
+            response.setContentType(null);
+            if (e instanceof JsonProcessingException) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body("Invalid building data: " + ((JsonProcessingException) e).getOriginalMessage());
+            }
+            return ResponseEntity.status(PayloadTooLargeException.status(e))
+                    .body("Error writing response: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Response body passed to writers. Flushes are passed on only after the first bytes, so a writer
+     * failing before writing anything (and flushing on close) leaves the response uncommitted and
+     * an error status can still be sent. Closing only flushes, the response is completed by the container.
+     * Writes fail once the request has ended.
+     */
+    private static class ResponseBody extends FilterOutputStream {
+        private final AtomicBoolean ended;
+        private boolean written;
+
+        ResponseBody(OutputStream out, AtomicBoolean ended) {
+            super(out);
+            this.ended = ended;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            checkNotEnded();
+            written = true;
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            checkNotEnded();
+            written |= length > 0;
+            out.write(buffer, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            checkNotEnded();
+            if (written) {
+                out.flush();
+            }
+        }
+
+        private void checkNotEnded() throws IOException {
+            if (ended.get()) {
+                throw new IOException("Request has ended, the response can no longer be written");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    private ResponseEntity<?> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .body("Server is busy, retry in " + retryAfterSeconds + " seconds");
+    }
+}
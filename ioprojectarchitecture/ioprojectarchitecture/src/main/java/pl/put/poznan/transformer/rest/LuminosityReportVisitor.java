@@ -2,6 +2,8 @@ package pl.put.poznan.transformer.rest;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import pl.put.poznan.transformer.logic.BuildingClasses;
+import pl.put.poznan.transformer.logic.CompensatedSum;
+import pl.put.poznan.transformer.logic.StreamingTotals;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -34,13 +36,21 @@ public class LuminosityReportVisitor implements BuildingClasses.Visitor {
     private LevelReport currentLevelReport;
     private final BuildingClasses calculator = new BuildingClasses();
 
+    // Sums and counts behind the averages, accumulated while visiting rooms
+    private final CompensatedSum buildingLuminositySum = new CompensatedSum();
+    private int buildingRoomCount;
+    private final CompensatedSum levelLuminositySum = new CompensatedSum();
+    private int levelRoomCount;
+
     @Override
     public void visit(BuildingClasses.Building building) {
         report = new LuminosityReport();
         report.buildingId = building.id;
         report.buildingName = building.name;
-        report.averageLuminosity = calculator.calculateLuminosity(building);
+        report.averageLuminosity = 0.0;
         report.levels = new ArrayList<>();
+        buildingLuminositySum.reset();
+        buildingRoomCount = 0;
     }
 
     @Override
@@ -48,8 +58,10 @@ public class LuminosityReportVisitor implements BuildingClasses.Visitor {
         currentLevelReport = new LevelReport();
         currentLevelReport.levelId = level.id;
         currentLevelReport.levelName = level.name;
-        currentLevelReport.averageLuminosity = calculator.calculateLuminosity(level);
+        currentLevelReport.averageLuminosity = 0.0;
         currentLevelReport.rooms = new ArrayList<>();
+        levelLuminositySum.reset();
+        levelRoomCount = 0;
         if (report != null) {
             report.levels.add(currentLevelReport);
         }
@@ -63,10 +75,35 @@ public class LuminosityReportVisitor implements BuildingClasses.Visitor {
             roomReport.roomName = room.name;
             roomReport.luminosity = calculator.calculateLuminosity(room);
             currentLevelReport.rooms.add(roomReport);
+
+            levelLuminositySum.add(roomReport.luminosity);
+            levelRoomCount++;
+            currentLevelReport.averageLuminosity = levelLuminositySum.get() / levelRoomCount;
+            if (report != null) {
+                buildingLuminositySum.add(roomReport.luminosity);
+                buildingRoomCount++;
+                report.averageLuminosity = buildingLuminositySum.get() / buildingRoomCount;
+            }
         }
     }
 
     public LuminosityReport getReport() {
         return report;
     }
+
+    public static LuminosityReport fromTotals(StreamingTotals totals) {
+        LuminosityReport luminosityReport = new LuminosityReport();
+        luminosityReport.buildingId = totals.getBuildingId();
+        luminosityReport.buildingName = totals.getBuildingName();
+        luminosityReport.averageLuminosity = totals.getTotals().getAverageLuminosity();
+        luminosityReport.levels = new ArrayList<>();
+        for (StreamingTotals.LevelTotals level : totals.getLevels()) {
+            LevelReport levelReport = new LevelReport();
+            levelReport.levelId = level.id;
+            levelReport.levelName = level.name;
+            levelReport.averageLuminosity = level.totals.getAverageLuminosity();
+            luminosityReport.levels.add(levelReport);
+        }
+        return luminosityReport;
+    }
 }
@@ -0,0 +1,28 @@
+package pl.put.poznan.transformer.rest;
+
+import org.springframework.http.HttpStatus;
+import java.io.IOException;
+
+/**
+ * Thrown while reading a decompressed request body or file part that grows past the configured limit
+ * (content-encoding.max-decoded-bytes), so a small compressed upload cannot expand without bound
+ */
+public class PayloadTooLargeException extends IOException {
+
+    public PayloadTooLargeException(long limit) {
+        super("Decompressed content exceeds the size limit of " + limit + " bytes");
+    }
+
+    /**
+     * Status of a failed request: 413 if it failed on a body over the limit, possibly wrapped by the parser,
+     * 500 otherwise
+     */
+    public static HttpStatus status(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PayloadTooLargeException) {
+                return HttpStatus.PAYLOAD_TOO_LARGE;
+            }
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+}
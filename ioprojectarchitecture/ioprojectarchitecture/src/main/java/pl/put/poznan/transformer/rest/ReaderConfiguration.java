@@ -0,0 +1,56 @@
+package pl.put.poznan.transformer.rest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import pl.put.poznan.transformer.logic.BuildingClasses;
+import pl.put.poznan.transformer.logic.DataFormat;
+import pl.put.poznan.transformer.logic.FormatReaders;
+import pl.put.poznan.transformer.logic.JsonReader;
+import pl.put.poznan.transformer.logic.LoggingJsonReader;
+import pl.put.poznan.transformer.logic.MetricsReader;
+import pl.put.poznan.transformer.logic.Reader;
+import pl.put.poznan.transformer.logic.ReportEngine;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Spring configuration of the Reader decorator chain.
+ * This is the single place where the chains are assembled, one per data format;
+ * the resulting Readers are singletons shared by all requests.
+ */
+@Configuration
+public class ReaderConfiguration {
+
+    @Bean
+    public FormatReaders formatReaders(MeterRegistry meterRegistry,
+                                       @Value("${reader.logging.sample-rate:1.0}") double sampleRate,
+                                       @Value("${reader.logging.max-payload-chars:256}") int maxPayloadChars) {
+        Map<DataFormat, Reader> readers = new EnumMap<>(DataFormat.class);
+        for (DataFormat format : DataFormat.values()) {
+            // Resolve Jackson readers and writers for the building model and report DTOs up front
+            JsonReader baseReader = format.createReader().preload(
+                    BuildingClasses.class,
+                    AreaReportVisitor.AreaReport.class,
+                    VolumeReportVisitor.VolumeReport.class,
+                    LuminosityReportVisitor.LuminosityReport.class,
+                    HeatingReportVisitor.HeatingReport.class,
+                    ReportEngine.Report.class);
+
+            // Decorator chain: Base -> Metrics -> Logging
+            // Metrics wrap the base reader directly, so logging is not included in the measured time
+            readers.put(format, new LoggingJsonReader(new MetricsReader(baseReader, meterRegistry),
+                    sampleRate, maxPayloadChars));
+        }
+        return new FormatReaders(readers);
+    }
+
+    /**
+     * Reader of the default JSON format
+     */
+    @Bean
+    public Reader reader(FormatReaders formatReaders) {
+        return formatReaders.get(DataFormat.JSON);
+    }
+}
@@ -0,0 +1,20 @@
+package pl.put.poznan.transformer.rest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import pl.put.poznan.transformer.logic.ReportCache;
+
+/**
+ * Spring configuration of the report cache shared by all requests.
+ * Limits are set in application.properties.
+ */
+@Configuration
+public class ReportCacheConfiguration {
+
+    @Bean
+    public ReportCache reportCache(@Value("${report.cache.max-entries:1000}") int maxEntries,
+                                   @Value("${report.cache.max-bytes:67108864}") long maxBytes) {
+        return new ReportCache(maxEntries, maxBytes);
+    }
+}
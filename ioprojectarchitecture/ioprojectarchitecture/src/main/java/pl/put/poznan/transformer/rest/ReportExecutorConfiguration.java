@@ -0,0 +1,40 @@
+package pl.put.poznan.transformer.rest;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import pl.put.poznan.transformer.logic.ReportExecutor;
+
+/**
+ * Spring configuration of the executor running heavy requests off the request threads.
+ * Limits are set in application.properties, saturation is visible in the report.executor metrics.
+ */
+@Configuration
+public class ReportExecutorConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public ReportExecutor reportExecutor(MeterRegistry meterRegistry,
+                                         @Value("${report.executor.threads:0}") int threads,
+                                         @Value("${report.executor.queue-capacity:64}") int queueCapacity) {
+        ReportExecutor executor = new ReportExecutor(threads, queueCapacity);
+        Gauge.builder("report.executor.active", executor, ReportExecutor::getActiveCount)
+                .description("Heavy requests being processed")
+                .register(meterRegistry);
+        Gauge.builder("report.executor.queued", executor, ReportExecutor::getQueueSize)
+                .description("Heavy requests waiting for a worker")
+                .register(meterRegistry);
+        FunctionCounter.builder("report.executor.rejected", executor, ReportExecutor::getRejectedCount)
+                .description("Heavy requests rejected because the executor was saturated")
+                .register(meterRegistry);
+        return executor;
+    }
+
+    @Bean
+    public HeavyRequests heavyRequests(ReportExecutor reportExecutor,
+                                       @Value("${report.executor.retry-after-seconds:5}") int retryAfterSeconds) {
+        return new HeavyRequests(reportExecutor, retryAfterSeconds);
+    }
+}
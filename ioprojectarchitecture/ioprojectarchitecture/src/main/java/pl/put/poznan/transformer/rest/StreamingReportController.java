@@ -0,0 +1,201 @@
+package pl.put.poznan.transformer.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.multipart.MultipartFile;
+import pl.put.poznan.transformer.logic.DataFormat;
+import pl.put.poznan.transformer.logic.DelimitedExportWriter;
+import pl.put.poznan.transformer.logic.Projection;
+import pl.put.poznan.transformer.logic.ReportEngine;
+import pl.put.poznan.transformer.logic.ReportWriter;
+import pl.put.poznan.transformer.logic.StreamingBuildingParser;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * REST Controller for streamed reports
+ * The building is parsed token by token and its report written straight to the response
+ * while parsing, with the same fields as the report of /calculateArea etc. Neither the building
+ * nor the report is held in memory, so peak memory per request does not depend on room count.
+ * Room metrics are exported the same way as CSV or TSV rows by /export.
+ * Responses are written on the bounded report executor, see {@link HeavyRequests}.
+ */
+@Controller
+public class StreamingReportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingReportController.class);
+
+    private final Map<DataFormat, StreamingBuildingParser> streamingParsers = new EnumMap<>(DataFormat.class);
+    private final HeavyRequests heavyRequests;
+
+    public StreamingReportController(HeavyRequests heavyRequests) {
+        this.heavyRequests = heavyRequests;
+        for (DataFormat format : DataFormat.values()) {
+            streamingParsers.put(format, new StreamingBuildingParser(format));
+        }
+    }
+
+    /**
+     * Stream report of uploaded building
+     * @param metric Reported metric: area, volume, luminosity or heating
+     * @param levelId Id of the single level to report, all levels if not given; the report then has no
+     * building totals, and an unknown level gives an empty level list since the response is already sent
+     */
+    @PostMapping(value = "/streamReport/{metric}",
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public DeferredResult<ResponseEntity<?>> streamReport(@PathVariable("metric") String metric,
+                                                          @RequestParam("file") MultipartFile file,
+                                                          @RequestParam(name = "levelId", required = false)
+                                                                  String levelId,
+                                                          @RequestHeader(name = HttpHeaders.ACCEPT, required = false)
+                                                                  String accept,
+                                                          HttpServletResponse response) {
+        logger.info("Streaming {} report of file: {}", metric, file.getOriginalFilename());
+        return stream(metric, levelId, DataFormat.fromContentType(file.getContentType()),
+                DataFormat.fromAccept(accept), file::getInputStream, response);
+    }
+
+    /**
+     * Stream report of building sent as request body (JSON, Smile or CBOR)
+     * @param metric Reported metric: area, volume, luminosity or heating
+     * @param levelId Id of the single level to report, all levels if not given; the report then has no
+     * building totals, and an unknown level gives an empty level list since the response is already sent
+     */
+    @PostMapping(value = "/streamReport/{metric}",
+            consumes = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE},
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public DeferredResult<ResponseEntity<?>> streamReportFromBody(@PathVariable("metric") String metric,
+                                                                  InputStream body,
+                                                                  @RequestParam(name = "levelId", required = false)
+                                                                          String levelId,
+                                                                  @RequestHeader(name = HttpHeaders.CONTENT_TYPE,
+                                                                          required = false) String contentType,
+                                                                  @RequestHeader(name = HttpHeaders.ACCEPT,
+                                                                          required = false) String accept,
+                                                                  HttpServletResponse response) {
+        logger.info("Streaming {} report of request body", metric);
+        return stream(metric, levelId, DataFormat.fromContentType(contentType), DataFormat.fromAccept(accept),
+                () -> body, response);
+    }
+
+    /**
+     * Export rooms of uploaded building as CSV or TSV, one row per room
+     * @param format Row format: csv (default) or tsv
+     * @param levelId Id of the single level to export, all levels if not given
+     */
+    @PostMapping("/export")
+    @ResponseBody
+    public DeferredResult<ResponseEntity<?>> export(@RequestParam("file") MultipartFile file,
+                                                    @RequestParam(name = "format", defaultValue = "csv") String format,
+                                                    @RequestParam(name = "levelId", required = false) String levelId,
+                                                    HttpServletResponse response) {
+        logger.info("Exporting rooms of file: {} as {}", file.getOriginalFilename(), format);
+        return export(format, levelId, DataFormat.fromContentType(file.getContentType()), file::getInputStream,
+                response);
+    }
+
+    /**
+     * Export rooms of building sent as request body (JSON, Smile or CBOR) as CSV or TSV, one row per room
+     * @param format Row format: csv (default) or tsv
+     * @param levelId Id of the single level to export, all levels if not given
+     */
+    @PostMapping(value = "/export",
+            consumes = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public DeferredResult<ResponseEntity<?>> exportFromBody(InputStream body,
+                                                            @RequestParam(name = "format", defaultValue = "csv")
+                                                                    String format,
+                                                            @RequestParam(name = "levelId", required = false)
+                                                                    String levelId,
+                                                            @RequestHeader(name = HttpHeaders.CONTENT_TYPE,
+                                                                    required = false) String contentType,
+                                                            HttpServletResponse response) {
+        logger.info("Exporting rooms of request body as {}", format);
+        return export(format, levelId, DataFormat.fromContentType(contentType), () -> body, response);
+    }
+
+    /**
+     * Source of the building document, opened when the response is written
+     */
+    private interface InputSource {
+        InputStream open() throws IOException;
+    }
+
+    private DeferredResult<ResponseEntity<?>> stream(String metric, String levelId, DataFormat format,
+                                                     DataFormat output, InputSource source,
+                                                     HttpServletResponse response) {
+        Set<ReportEngine.Metric> requested;
+        try {
+            requested = ReportEngine.Metric.parse(metric);
+        } catch (IllegalArgumentException e) {
+            return HeavyRequests.completed(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage()));
+        }
+        if (requested.size() != 1) {
+            return HeavyRequests.completed(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Exactly one metric is required"));
+        }
+        ReportEngine.Metric reported = requested.iterator().next();
+        StreamingBuildingParser parser = streamingParsers.get(format);
+        // Only the values of the reported metric (and of the requested level) are read from the input
+        Projection projection = Projection.rooms(requested).level(levelId);
+
+        // The status is sent with the first bytes of the report, errors after that abort the response
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(output.getMediaType()));
+        return heavyRequests.stream(response, headers, null, out -> {
+            try (InputStream input = source.open();
+                 JsonGenerator generator = output.getFactory().createGenerator(out)) {
+                if (!new ReportWriter(generator, reported).write(parser, input, projection)) {
+                    logger.warn("No building in streamed {} report input", metric);
+                }
+            }
+        });
+    }
+
+    private DeferredResult<ResponseEntity<?>> export(String format, String levelId, DataFormat input,
+                                                     InputSource source, HttpServletResponse response) {
+        DelimitedExportWriter.Format output;
+        try {
+            output = DelimitedExportWriter.Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return HeavyRequests.completed(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Unknown export format: " + format));
+        }
+        StreamingBuildingParser parser = streamingParsers.get(input);
+        Projection projection = Projection.ALL.level(levelId);
+
+        // The status is sent with the first rows, errors after that abort the response
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(output.getMediaType() + ";charset=UTF-8"));
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"rooms." + output.getExtension() + "\"");
+        return heavyRequests.stream(response, headers, null, out -> {
+            try (InputStream building = source.open();
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024)) {
+                DelimitedExportWriter exporter = new DelimitedExportWriter(writer, output);
+                if (!exporter.write(parser, building, projection)) {
+                    logger.warn("No building in exported input");
+                }
+                logger.debug("Exported {} rooms as {}", exporter.getRowCount(), output);
+            }
+        });
+    }
+}
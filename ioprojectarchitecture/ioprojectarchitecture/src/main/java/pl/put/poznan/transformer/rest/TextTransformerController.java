@@ -1,19 +1,40 @@
 package pl.put.poznan.transformer.rest;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import pl.put.poznan.transformer.logic.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Optional;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -25,6 +46,44 @@ public class TextTransformerController {
 
     private static final Logger logger = LoggerFactory.getLogger(TextTransformerController.class);
 
+    /** Stateless engine shared by all requests */
+    private final ReportEngine reportEngine = new ReportEngine();
+    private final Map<DataFormat, StreamingBuildingParser> streamingParsers = new EnumMap<>(DataFormat.class);
+    /** Shared decorated readers of all data formats, assembled in {@link ReaderConfiguration} */
+    private final FormatReaders formatReaders;
+    /** Reader of the default JSON format */
+    private final Reader reader;
+    private final ReportCache reportCache;
+    /** Pool on which levels of large buildings are reported in parallel */
+    private final ForkJoinPool reportPool;
+    private final MeterRegistry meterRegistry;
+    /** Bounded executor on which heavy requests run, off the request threads */
+    private final HeavyRequests heavyRequests;
+    /** Directory of files saved and loaded by name, requests cannot reach files outside of it */
+    private final Path dataDirectory;
+
+    public TextTransformerController(FormatReaders formatReaders, ReportCache reportCache, ForkJoinPool reportPool,
+                                     MeterRegistry meterRegistry, HeavyRequests heavyRequests,
+                                     @Value("${building.files.dir:data/files}") String dataDirectory) {
+        this.formatReaders = formatReaders;
+        this.reader = formatReaders.get(DataFormat.JSON);
+        this.reportCache = reportCache;
+        this.reportPool = reportPool;
+        this.meterRegistry = meterRegistry;
+        this.heavyRequests = heavyRequests;
+        this.dataDirectory = Paths.get(dataDirectory).toAbsolutePath().normalize();
+        for (DataFormat format : DataFormat.values()) {
+            streamingParsers.put(format, new StreamingBuildingParser(format));
+        }
+    }
+
+    /**
+     * Run heavy request on the report executor, see {@link HeavyRequests}
+     */
+    private CompletableFuture<ResponseEntity<?>> async(Callable<ResponseEntity<?>> request) {
+        return heavyRequests.submit(request);
+    }
+
     /**
      * Home page redirect
      */
@@ -38,50 +97,44 @@ public class TextTransformerController {
      * Uses decorated Reader for JSON operations
      */
     @PostMapping("/uploadJson") @ResponseBody
-    public ResponseEntity<String> uploadJson( @RequestParam("file") MultipartFile file,
-                                             @RequestParam(name="option", required=false) String[] options) {
-        try {
-
-            if (options != null) {
-                for (String opt : options) {
-                    System.out.println("Zaznaczona opcja: " + opt);
+    public CompletableFuture<ResponseEntity<?>> uploadJson(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(name="option", required=false) String[] options) {
+        return async(() -> {
+            try (InputStream input = file.getInputStream()) {
+
+                if (options != null && logger.isDebugEnabled()) {
+                    logger.debug("Zaznaczone opcje: {}", Arrays.toString(options));
                 }
-            }
-
 
-            logger.info("Received file upload: {}", file.getOriginalFilename());
 
-            // Create temporary file
-            File tempFile = File.createTempFile("upload-", ".json");
-            file.transferTo(tempFile);
+                logger.info("Received file upload: {}", file.getOriginalFilename());
 
-            logger.info("File saved to temporary location: {}", tempFile.getAbsolutePath());
-
-            // Create decorated reader: Base -> Logging
-            Reader reader = new LoggingJsonReader(new JsonReader());
-            
-            BuildingClasses buildingData = reader.readFromFile(tempFile, BuildingClasses.class);
-            BuildingClasses.Building building = buildingData.building;
-            String result = "";
+                String result = "";
             
-            // Create transformer with decorated reader
-            TextTransformer transformer = new TextTransformer(new String[]{}, reader);
+                // Parse straight from the upload stream, so invalid or oversized files fail the request
+                BuildingClasses buildingData = reader.read(input, BuildingClasses.class);
 
-            // Process the file
-            transformer.transform(tempFile);
+                // Create transformer with decorated reader
+                TextTransformer transformer = new TextTransformer(new String[]{}, reader);
 
-            // Clean up temporary file
-            tempFile.delete();
+                // Process the file
+                transformer.transform(buildingData);
 
-            logger.info("File processing completed successfully");
+                logger.info("File processing completed successfully");
 
-            return ResponseEntity.ok(("File processed successfully \n" + result).replace("\n","<br>"));
+                return ResponseEntity.ok(("File processed successfully \n" + result).replace("\n","<br>"));
 
-        } catch (Exception e) {
-            logger.error("Error processing uploaded file", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error processing file: " + e.getMessage());
-        }
+            } catch (JsonProcessingException e) {
+                logger.warn("Invalid JSON in uploaded file: {}", e.getOriginalMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body("Invalid JSON in file: " + e.getOriginalMessage());
+            } catch (Exception e) {
+                logger.error("Error processing uploaded file", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error processing file: " + e.getMessage());
+            }
+        });
     }
 
     /**
@@ -90,198 +143,848 @@ public class TextTransformerController {
      */
     @PostMapping("/processJson")
     @ResponseBody
-    public ResponseEntity<String> processJson(@RequestBody String jsonContent) {
-        try {
-            logger.info("Received JSON content for processing");
+    public CompletableFuture<ResponseEntity<?>> processJson(@RequestBody String jsonContent) {
+        return async(() -> {
+            try {
+                logger.info("Received JSON content for processing");
 
-            // Create decorated reader: Base -> Logging
-            Reader reader = new LoggingJsonReader(new JsonReader());
+                // Create transformer with decorated reader
+                TextTransformer transformer = new TextTransformer(new String[]{}, reader);
 
-            // Create transformer with decorated reader
-            TextTransformer transformer = new TextTransformer(new String[]{}, reader);
+                // Process the JSON string
+                transformer.transformFromString(jsonContent);
 
-            // Process the JSON string
-            transformer.transformFromString(jsonContent);
+                logger.info("JSON processing completed successfully");
 
-            logger.info("JSON processing completed successfully");
+                return ResponseEntity.ok("JSON processed successfully");
 
-            return ResponseEntity.ok("JSON processed successfully");
-
-        } catch (Exception e) {
-            logger.error("Error processing JSON content", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error processing JSON: " + e.getMessage());
-        }
+            } catch (Exception e) {
+                logger.error("Error processing JSON content", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error processing JSON: " + e.getMessage());
+            }
+        });
     }
 
     /**
-     * Read building data from uploaded file and return as JSON
+     * Read building data from uploaded file and return it in the accepted format (JSON by default)
      */
     @PostMapping("/readBuilding")
     @ResponseBody
-    public ResponseEntity<String> readBuilding(@RequestParam("file") MultipartFile file) {
-        try {
-            logger.info("Reading building data from file: {}", file.getOriginalFilename());
-
-            // Create temporary file
-            File tempFile = File.createTempFile("read-", ".json");
-            file.transferTo(tempFile);
-
-            // Create decorated reader: Base -> Logging
-            Reader reader = new LoggingJsonReader(new JsonReader());
+    public CompletableFuture<ResponseEntity<?>> readBuilding(
+            @RequestParam("file") MultipartFile file,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return async(() -> {
+            try {
+                logger.info("Reading building data from file: {}", file.getOriginalFilename());
+                try (InputStream input = file.getInputStream()) {
+                    return readBuilding(input, DataFormat.fromContentType(file.getContentType()),
+                            DataFormat.fromAccept(accept), ifNoneMatch);
+                }
+            } catch (Exception e) {
+                logger.error("Error reading building data", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error reading building: " + e.getMessage());
+            }
+        });
+    }
 
-            // Read building data
-            BuildingClasses wrapper = reader.readFromFile(tempFile, BuildingClasses.class);
+    /**
+     * Read building data from request body (JSON, Smile or CBOR) and return it in the accepted format
+     */
+    @PostMapping(value = "/readBuilding",
+            consumes = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<?>> readBuildingFromBody(
+            InputStream body,
+            @RequestHeader(name = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return async(() -> {
+            try {
+                logger.info("Reading building data from request body");
+                return readBuilding(body, DataFormat.fromContentType(contentType),
+                        DataFormat.fromAccept(accept), ifNoneMatch);
+            } catch (Exception e) {
+                logger.error("Error reading building data", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error reading building: " + e.getMessage());
+            }
+        });
+    }
 
-            // Convert back to JSON string
-            String jsonResult = reader.write(wrapper);
+    /**
+     * Read uploaded building. Without If-None-Match it is parsed straight from the stream and not tagged;
+     * with it the content is buffered and fingerprinted, and a listed ETag is answered with 412 without parsing
+     */
+    private ResponseEntity<?> readBuilding(InputStream input, DataFormat format, DataFormat output,
+                                           String ifNoneMatch) throws Exception {
+        if (ifNoneMatch == null) {
+            BuildingClasses wrapper = formatReaders.get(format).read(input, BuildingClasses.class);
+            logger.info("Building data read successfully");
+            return writeBuilding(wrapper, output, null);
+        }
+        byte[] content = input.readAllBytes();
+        String etag = EntityTags.of("building." + output, ReportCache.key(content, "building").fingerprint());
+        if (EntityTags.matches(ifNoneMatch, etag)) {
+            return EntityTags.preconditionFailed(etag);
+        }
 
-            // Clean up
-            tempFile.delete();
+        // Read building data
+        BuildingClasses wrapper = formatReaders.get(format).read(content, BuildingClasses.class);
 
-            logger.info("Building data read successfully");
+        logger.info("Building data read successfully");
 
-            return ResponseEntity.ok(jsonResult);
+        return writeBuilding(wrapper, output, etag);
+    }
 
-        } catch (Exception e) {
-            logger.error("Error reading building data", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error reading building: " + e.getMessage());
+    /**
+     * Building in the response format, JSON as string and binary formats as bytes
+     * @param etag ETag of the response, null for none
+     */
+    private ResponseEntity<?> writeBuilding(BuildingClasses wrapper, DataFormat output, String etag)
+            throws Exception {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        if (!output.isBinary()) {
+            // Convert back to JSON string
+            return response.body(reader.write(wrapper));
         }
+        return response
+                .contentType(MediaType.parseMediaType(output.getMediaType()))
+                .body(formatReaders.get(output).writeBytes(wrapper));
     }
 
     /**
      * Save building data to file
      * Demonstrates write operations with decorator pattern
+     * The request body (JSON, Smile or CBOR) is parsed straight from the request stream
+     * @param filename Name of the file in the data directory (building.files.dir)
+     * @param format Format of the saved file: json (default), smile or cbor
      */
     @PostMapping("/saveBuilding")
     @ResponseBody
-    public ResponseEntity<String> saveBuilding(@RequestBody String jsonContent,
-                                               @RequestParam("filename") String filename) {
-        try {
-            logger.info("Saving building data to file: {}", filename);
+    public CompletableFuture<ResponseEntity<?>> saveBuilding(
+            InputStream body,
+            @RequestParam("filename") String filename,
+            @RequestParam(name = "format", defaultValue = "json") String format,
+            @RequestHeader(name = HttpHeaders.CONTENT_TYPE, required = false) String contentType) {
+        return async(() -> {
+            DataFormat output = parseFormat(format);
+            if (output == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Unknown format: " + format);
+            }
+            Path file = dataFile(dataDirectory, filename);
+            if (file == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid file name: " + filename);
+            }
+            try {
+                logger.info("Saving building data to file: {} as {}", filename, output);
 
-            // Create decorated reader: Base -> Logging
-            Reader reader = new LoggingJsonReader(new JsonReader());
+                // Parse content in the format of the request
+                BuildingClasses wrapper = formatReaders.get(DataFormat.fromContentType(contentType))
+                        .read(body, BuildingClasses.class);
 
-            // Parse JSON content
-            BuildingClasses wrapper = reader.read(jsonContent, BuildingClasses.class);
+                // Save to file
+                Files.createDirectories(file.getParent());
+                File outputFile = file.toFile();
+                formatReaders.get(output).writeToFile(wrapper, outputFile);
 
-            // Save to file
-            File outputFile = new File(filename);
-            reader.writeToFile(wrapper, outputFile);
+                logger.info("Building data saved successfully to: {}", outputFile.getAbsolutePath());
 
-            logger.info("Building data saved successfully to: {}", outputFile.getAbsolutePath());
+                return ResponseEntity.ok("Building saved to: " + outputFile.getAbsolutePath());
 
-            return ResponseEntity.ok("Building saved to: " + outputFile.getAbsolutePath());
+            } catch (Exception e) {
+                logger.error("Error saving building data", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error saving building: " + e.getMessage());
+            }
+        });
+    }
 
-        } catch (Exception e) {
-            logger.error("Error saving building data", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error saving building: " + e.getMessage());
-        }
+    /**
+     * Load building previously saved by /saveBuilding and return it in the accepted format
+     * The file is memory mapped, so large saved buildings load without a heap copy of the file
+     * @param filename Name of the file in the data directory
+     * @param format Format of the saved file: json (default), smile or cbor
+     */
+    @GetMapping("/loadBuilding")
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<?>> loadBuilding(
+            @RequestParam("filename") String filename,
+            @RequestParam(name = "format", defaultValue = "json") String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        return async(() -> {
+            DataFormat stored = parseFormat(format);
+            if (stored == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Unknown format: " + format);
+            }
+            Path file = dataFile(dataDirectory, filename);
+            if (file == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid file name: " + filename);
+            }
+            try {
+                logger.info("Loading building data from file: {}", filename);
+                BuildingClasses wrapper = formatReaders.get(stored)
+                        .readFromFile(file.toFile(), BuildingClasses.class);
+                return writeBuilding(wrapper, DataFormat.fromAccept(accept), null);
+            } catch (Exception e) {
+                logger.error("Error loading building data", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error loading building: " + e.getMessage());
+            }
+        });
     }
 
-    @PostMapping(value = "/calculateVolume", produces = MediaType.APPLICATION_JSON_VALUE)
+    /**
+     * Calculate several metrics of a building previously saved by /saveBuilding
+     * The mapped file is parsed straight into the columnar model
+     * @param filename Name of the file in the data directory
+     * @param metrics Comma separated metric names: area, volume, luminosity, heating
+     * @param format Format of the saved file: json (default), smile or cbor
+     */
+    @GetMapping(value = "/savedBuilding/report",
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
     @ResponseBody
-    public ResponseEntity<?> calculateVolume(@RequestParam("file") MultipartFile file) {
+    public CompletableFuture<ResponseEntity<?>> savedBuildingReport(
+            @RequestParam("filename") String filename,
+            @RequestParam(name = "metrics", defaultValue = "area,volume,luminosity") String[] metrics,
+            @RequestParam(name = "format", defaultValue = "json") String format) {
+        return async(() -> {
+            DataFormat stored = parseFormat(format);
+            if (stored == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Unknown format: " + format);
+            }
+            Set<ReportEngine.Metric> requested;
+            try {
+                requested = ReportEngine.Metric.parse(metrics);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+            }
+            Path file = dataFile(dataDirectory, filename);
+            if (file == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid file name: " + filename);
+            }
+            try {
+                logger.info("Calculating report {} from saved file: {}", requested, filename);
+                ColumnarBuilding building = ColumnarBuilding.parse(file.toFile(), stored);
+                if (building == null) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid building data in file.");
+                }
+                ReportEngine.Report report = traversalTimer("ReportEngine")
+                        .record(() -> reportEngine.generate(building, requested, reportPool));
+                return ResponseEntity.ok(report);
+            } catch (Exception e) {
+                logger.error("Error calculating report", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error calculating report: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Resolve file name of a request against the data directory
+     * @param directory Absolute, normalized data directory
+     * @param filename File name, may include subdirectories of the data directory
+     * @return Normalized path, or null if the name is invalid or points outside of the data directory
+     */
+    static Path dataFile(Path directory, String filename) {
         try {
-            // 1. Read file and parse to Building object
-            File tempFile = File.createTempFile("volume-calc-", ".json");
-            file.transferTo(tempFile);
-            Reader reader = new LoggingJsonReader(new JsonReader());
-            BuildingClasses buildingData = reader.readFromFile(tempFile, BuildingClasses.class);
-            BuildingClasses.Building building = buildingData.building;
-            tempFile.delete();
-
-            if (building == null) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid building data in file.");
+            Path file = directory.resolve(filename).normalize();
+            return file.startsWith(directory) && !file.equals(directory) ? file : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parse format request parameter
+     * @return Format, or null if the name is unknown
+     */
+    private static DataFormat parseFormat(String format) {
+        try {
+            return DataFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @PostMapping(value = "/calculateVolume",
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<?>> calculateVolume(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(name = "streaming", defaultValue = "false") boolean streaming,
+            @RequestParam(name = "levelId", required = false) String levelId,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return async(() -> {
+            DataFormat format = DataFormat.fromContentType(file.getContentType());
+            try {
+                if (streaming || levelId != null) {
+                    try (InputStream input = file.getInputStream()) {
+                        return calculateVolume(input, true, levelId, format);
+                    }
+                }
+                return cachedReport(file.getBytes(), "volume", DataFormat.fromAccept(accept), ifNoneMatch,
+                        input -> calculateVolume(input, false, null, format));
+            } catch (Exception e) {
+                logger.error("Error calculating volume", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error processing file: " + e.getMessage());
             }
+        });
+    }
 
-            // 2. Use the Visitor to create the report
-            VolumeReportVisitor visitor = new VolumeReportVisitor();
-            building.accept(visitor);
-            VolumeReportVisitor.VolumeReport report = visitor.getReport();
+    /**
+     * Calculate volume from JSON request body
+     * Repeated bodies are answered from the report cache, in streaming mode
+     * the body is parsed straight from the request stream instead
+     */
+    @PostMapping(value = "/calculateVolume",
+            consumes = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE},
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<?>> calculateVolumeFromBody(
+            InputStream body,
+            @RequestParam(name = "streaming", defaultValue = "false") boolean streaming,
+            @RequestParam(name = "levelId", required = false) String levelId,
+            @RequestHeader(name = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return async(() -> {
+            DataFormat format = DataFormat.fromContentType(contentType);
+            try {
+                if (streaming || levelId != null) {
+                    return calculateVolume(body, true, levelId, format);
+                }
+                return cachedReport(body.readAllBytes(), "volume", DataFormat.fromAccept(accept), ifNoneMatch,
+                        input -> calculateVolume(input, false, null, format));
+            } catch (Exception e) {
+                logger.error("Error calculating volume", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error processing request: " + e.getMessage());
+            }
+        });
+    }
 
-            // 3. Return the report
-            return ResponseEntity.ok(report);
+    /**
+     * @param levelId Only in streaming mode: id of the single level to report, null for the whole building;
+     * with a level id the response is the report of that level, or 404 if the building has no such level
+     */
+    private ResponseEntity<?> calculateVolume(InputStream input, boolean streaming, String levelId,
+                                              DataFormat format) throws Exception {
+        if (streaming) {
+            StreamingTotals totals = streamTotals(input, format,
+                    Projection.totals(EnumSet.of(ReportEngine.Metric.VOLUME)).level(levelId));
+            if (totals == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid building data in file.");
+            }
+            return streamedReport(VolumeReportVisitor.fromTotals(totals), report -> report.levels, levelId);
+        }
 
-        } catch (Exception e) {
-            logger.error("Error calculating volume", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error processing file: " + e.getMessage());
+        // 1. Parse stream to Building object
+        BuildingClasses buildingData = formatReaders.get(format).read(input, BuildingClasses.class);
+        BuildingClasses.Building building = buildingData.building;
+
+        if (building == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid building data in file.");
         }
+
+        // 2. Use the Visitor to create the report
+        VolumeReportVisitor visitor = new VolumeReportVisitor();
+        traverse(building, visitor);
+        VolumeReportVisitor.VolumeReport report = visitor.getReport();
+
+        // 3. Return the report
+        return ResponseEntity.ok(report);
     }
 
-    @PostMapping(value = "/calculateLuminosity", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PostMapping(value = "/calculateLuminosity",
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
     @ResponseBody
-    public ResponseEntity<?> calculateLuminosity(@RequestParam("file") MultipartFile file) {
-        try {
-            // 1. Read file and parse to Building object
-            File tempFile = File.createTempFile("luminosity-calc-", ".json");
-            file.transferTo(tempFile);
-            Reader reader = new LoggingJsonReader(new JsonReader());
-            BuildingClasses buildingData = reader.readFromFile(tempFile, BuildingClasses.class);
-            BuildingClasses.Building building = buildingData.building;
-            tempFile.delete();
-
-            if (building == null) {
+    public CompletableFuture<ResponseEntity<?>> calculateLuminosity(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(name = "streaming", defaultValue = "false") boolean streaming,
+            @RequestParam(name = "levelId", required = false) String levelId,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return async(() -> {
+            DataFormat format = DataFormat.fromContentType(file.getContentType());
+            try {
+                if (streaming || levelId != null) {
+                    try (InputStream input = file.getInputStream()) {
+                        return calculateLuminosity(input, true, levelId, format);
+                    }
+                }
+                return cachedReport(file.getBytes(), "luminosity", DataFormat.fromAccept(accept), ifNoneMatch,
+                        input -> calculateLuminosity(input, false, null, format));
+            } catch (Exception e) {
+                logger.error("Error calculating luminosity", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error processing file: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Calculate luminosity from JSON request body
+     * Repeated bodies are answered from the report cache, in streaming mode
+     * the body is parsed straight from the request stream instead
+     */
+    @PostMapping(value = "/calculateLuminosity",
+            consumes = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE},
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<?>> calculateLuminosityFromBody(
+            InputStream body,
+            @RequestParam(name = "streaming", defaultValue = "false") boolean streaming,
+            @RequestParam(name = "levelId", required = false) String levelId,
+            @RequestHeader(name = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return async(() -> {
+            DataFormat format = DataFormat.fromContentType(contentType);
+            try {
+                if (streaming || levelId != null) {
+                    return calculateLuminosity(body, true, levelId, format);
+                }
+                return cachedReport(body.readAllBytes(), "luminosity", DataFormat.fromAccept(accept), ifNoneMatch,
+                        input -> calculateLuminosity(input, false, null, format));
+            } catch (Exception e) {
+                logger.error("Error calculating luminosity", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error processing request: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * @param levelId Only in streaming mode: id of the single level to report, null for the whole building;
+     * with a level id the response is the report of that level, or 404 if the building has no such level
+     */
+    private ResponseEntity<?> calculateLuminosity(InputStream input, boolean streaming, String levelId,
+                                                  DataFormat format) throws Exception {
+        if (streaming) {
+            StreamingTotals totals = streamTotals(input, format,
+                    Projection.totals(EnumSet.of(ReportEngine.Metric.LUMINOSITY)).level(levelId));
+            if (totals == null) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid building data in file.");
             }
+            return streamedReport(LuminosityReportVisitor.fromTotals(totals), report -> report.levels, levelId);
+        }
 
-            // 2. Use the Visitor to create the report
-            LuminosityReportVisitor visitor = new LuminosityReportVisitor();
-            building.accept(visitor);
-            LuminosityReportVisitor.LuminosityReport report = visitor.getReport();
+        // 1. Parse stream to Building object
+        BuildingClasses buildingData = formatReaders.get(format).read(input, BuildingClasses.class);
+        BuildingClasses.Building building = buildingData.building;
 
-            // 3. Return the report
-            return ResponseEntity.ok(report);
+        if (building == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid building data in file.");
+        }
 
-        } catch (Exception e) {
-            logger.error("Error calculating luminosity", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error processing file: " + e.getMessage());
+        // 2. Use the Visitor to create the report
+        LuminosityReportVisitor visitor = new LuminosityReportVisitor();
+        traverse(building, visitor);
+        LuminosityReportVisitor.LuminosityReport report = visitor.getReport();
+
+        // 3. Return the report
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * Calculate heating per cubic metre for rooms, levels and the building from uploaded file
+     * Uses Visitor Pattern for traversing building structure
+     */
+    @PostMapping(value = "/calculateHeating",
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<?>> calculateHeating(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(name = "streaming", defaultValue = "false") boolean streaming,
+            @RequestParam(name = "levelId", required = false) String levelId,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return async(() -> {
+            DataFormat format = DataFormat.fromContentType(file.getContentType());
+            try {
+                if (streaming || levelId != null) {
+                    try (InputStream input = file.getInputStream()) {
+                        return calculateHeating(input, true, levelId, format);
+                    }
+                }
+                return cachedReport(file.getBytes(), "heating", DataFormat.fromAccept(accept), ifNoneMatch,
+                        input -> calculateHeating(input, false, null, format));
+            } catch (Exception e) {
+                logger.error("Error calculating heating", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error processing file: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Calculate heating from JSON request body
+     * Repeated bodies are answered from the report cache, in streaming mode
+     * the body is parsed straight from the request stream instead
+     */
+    @PostMapping(value = "/calculateHeating",
+            consumes = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE},
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<?>> calculateHeatingFromBody(
+            InputStream body,
+            @RequestParam(name = "streaming", defaultValue = "false") boolean streaming,
+            @RequestParam(name = "levelId", required = false) String levelId,
+            @RequestHeader(name = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return async(() -> {
+            DataFormat format = DataFormat.fromContentType(contentType);
+            try {
+                if (streaming || levelId != null) {
+                    return calculateHeating(body, true, levelId, format);
+                }
+                return cachedReport(body.readAllBytes(), "heating", DataFormat.fromAccept(accept), ifNoneMatch,
+                        input -> calculateHeating(input, false, null, format));
+            } catch (Exception e) {
+                logger.error("Error calculating heating", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error processing request: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * @param levelId Only in streaming mode: id of the single level to report, null for the whole building;
+     * with a level id the response is the report of that level, or 404 if the building has no such level
+     */
+    private ResponseEntity<?> calculateHeating(InputStream input, boolean streaming, String levelId,
+                                               DataFormat format) throws Exception {
+        if (streaming) {
+            StreamingTotals totals = streamTotals(input, format,
+                    Projection.totals(EnumSet.of(ReportEngine.Metric.HEATING)).level(levelId));
+            if (totals == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid building data in file.");
+            }
+            return streamedReport(HeatingReportVisitor.fromTotals(totals), report -> report.levels, levelId);
+        }
+
+        // 1. Parse stream to Building object
+        BuildingClasses buildingData = formatReaders.get(format).read(input, BuildingClasses.class);
+        BuildingClasses.Building building = buildingData.building;
+
+        if (building == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid building data in file.");
         }
+
+        // 2. Use the Visitor to create the report
+        HeatingReportVisitor visitor = new HeatingReportVisitor();
+        traverse(building, visitor);
+        HeatingReportVisitor.HeatingReport report = visitor.getReport();
+
+        // 3. Return the report
+        return ResponseEntity.ok(report);
     }
+
     /**
      * Calculate total area for building structure from uploaded file
      * Uses Visitor Pattern for traversing building structure
      * Uses Decorator Pattern for JSON reading
      */
-    @PostMapping(value = "/calculateArea", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PostMapping(value = "/calculateArea",
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
     @ResponseBody
-    public ResponseEntity<? > calculateArea(@RequestParam("file") MultipartFile file) {
-        try {
-            logger.info("Calculating area from file: {}", file.getOriginalFilename());
-
-            // 1. Read file and parse to Building object
-            // Using Decorator Pattern:  Base -> Logging
-            File tempFile = File.createTempFile("area-calc-", ".json");
-            file.transferTo(tempFile);
-            Reader reader = new LoggingJsonReader(new JsonReader());
-            BuildingClasses wrapper = reader. readFromFile(tempFile, BuildingClasses.class);
-
-            // 2. Apply Visitor Pattern to generate area report
-            AreaReportVisitor visitor = new AreaReportVisitor();
-            if (wrapper.building != null) {
-                wrapper.building.accept(visitor);
+    public CompletableFuture<ResponseEntity<?>> calculateArea(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(name = "streaming", defaultValue = "false") boolean streaming,
+            @RequestParam(name = "levelId", required = false) String levelId,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return async(() -> {
+            DataFormat format = DataFormat.fromContentType(file.getContentType());
+            try {
+                logger.info("Calculating area from file: {}", file.getOriginalFilename());
+                if (streaming || levelId != null) {
+                    try (InputStream input = file.getInputStream()) {
+                        return calculateArea(input, true, levelId, format);
+                    }
+                }
+                return cachedReport(file.getBytes(), "area", DataFormat.fromAccept(accept), ifNoneMatch,
+                        input -> calculateArea(input, false, null, format));
+            } catch (Exception e) {
+                logger.error("Error calculating area", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error calculating area: " + e.getMessage());
             }
+        });
+    }
 
-            // 3. Get the generated report
-            AreaReportVisitor.AreaReport areaReport = visitor.getReport();
+    /**
+     * Calculate total area from JSON request body
+     * Repeated bodies are answered from the report cache, in streaming mode
+     * the body is parsed straight from the request stream instead
+     */
+    @PostMapping(value = "/calculateArea",
+            consumes = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE},
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<?>> calculateAreaFromBody(
+            InputStream body,
+            @RequestParam(name = "streaming", defaultValue = "false") boolean streaming,
+            @RequestParam(name = "levelId", required = false) String levelId,
+            @RequestHeader(name = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return async(() -> {
+            DataFormat format = DataFormat.fromContentType(contentType);
+            try {
+                logger.info("Calculating area from request body");
+                if (streaming || levelId != null) {
+                    return calculateArea(body, true, levelId, format);
+                }
+                return cachedReport(body.readAllBytes(), "area", DataFormat.fromAccept(accept), ifNoneMatch,
+                        input -> calculateArea(input, false, null, format));
+            } catch (Exception e) {
+                logger.error("Error calculating area", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error calculating area: " + e.getMessage());
+            }
+        });
+    }
 
-            // 4. Clean up temporary file
-            tempFile.delete();
+    /**
+     * @param levelId Only in streaming mode: id of the single level to report, null for the whole building;
+     * with a level id the response is the report of that level, or 404 if the building has no such level
+     */
+    private ResponseEntity<?> calculateArea(InputStream input, boolean streaming, String levelId,
+                                            DataFormat format) throws Exception {
+        if (streaming) {
+            StreamingTotals totals = streamTotals(input, format,
+                    Projection.totals(EnumSet.of(ReportEngine.Metric.AREA)).level(levelId));
+            if (totals == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid building data in file.");
+            }
+            return streamedReport(AreaReportVisitor.fromTotals(totals), report -> report.levels, levelId);
+        }
 
-            logger.info("Area calculation completed successfully");
+        // 1. Parse stream to Building object
+        // Using Decorator Pattern:  Base -> Logging
+        BuildingClasses wrapper = formatReaders.get(format).read(input, BuildingClasses.class);
 
-            // 5. Return report as JSON (Spring automatically serializes)
-            return ResponseEntity. ok(areaReport);
+        // 2. Apply Visitor Pattern to generate area report
+        AreaReportVisitor visitor = new AreaReportVisitor();
+        if (wrapper.building != null) {
+            traverse(wrapper.building, visitor);
+        }
+
+        // 3. Get the generated report
+        AreaReportVisitor.AreaReport areaReport = visitor.getReport();
 
-        } catch (Exception e) {
-            logger.error("Error calculating area", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error calculating area: " + e.getMessage());
+        logger.info("Area calculation completed successfully");
+
+        // 4. Return report as JSON (Spring automatically serializes)
+        return ResponseEntity. ok(areaReport);
+    }
+
+    /**
+     * Report computation reading the building from a stream
+     */
+    private interface ReportFunction {
+        ResponseEntity<?> apply(InputStream input) throws Exception;
+    }
+
+    /**
+     * Return report for uploaded content from the report cache, computing and caching it on a miss.
+     * Only successful reports are cached, they are stored already serialized in the output format.
+     * Reports carry an ETag of the content fingerprint and report type; a request whose If-None-Match
+     * lists it gets 412 without the report being looked up or computed.
+     * @param content Uploaded building bytes
+     * @param reportType Report type used as part of the cache key
+     * @param output Format of the response
+     * @param ifNoneMatch If-None-Match header, may be null
+     * @param function Computation of the report
+     */
+    private ResponseEntity<?> cachedReport(byte[] content, String reportType, DataFormat output, String ifNoneMatch,
+                                           ReportFunction function) throws Exception {
+        ReportCache.Key key = ReportCache.key(content, reportType + "." + output);
+        String etag = EntityTags.of(reportType + "." + output, key.fingerprint());
+        if (EntityTags.matches(ifNoneMatch, etag)) {
+            return EntityTags.preconditionFailed(etag);
+        }
+        MediaType contentType = MediaType.parseMediaType(output.getMediaType());
+        byte[] cached = reportCache.get(key);
+        if (cached != null) {
+            logger.debug("Report cache hit: {}", key);
+            return ResponseEntity.ok().contentType(contentType).eTag(etag).body(cached);
         }
+
+        ResponseEntity<?> response = function.apply(new ByteArrayInputStream(content));
+        if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
+            return response;
+        }
+        byte[] serialized = formatReaders.get(output).writeBytes(response.getBody());
+        reportCache.put(key, serialized);
+        return ResponseEntity.ok().contentType(contentType).eTag(etag).body(serialized);
+    }
+
+    /**
+     * Report cache counters
+     */
+    @GetMapping(value = "/cache/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ReportCache.Stats cacheStats() {
+        return reportCache.getStats();
+    }
+
+    /**
+     * Counters of the symbol table shared by ids and names of parsed buildings
+     */
+    @GetMapping(value = "/symbols/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public SymbolTable.Stats symbolStats() {
+        return SymbolTable.shared().getStats();
+    }
+
+    /**
+     * Aggregate building totals token by token with the streaming parser.
+     * The building object graph is never created, so memory use does not grow with room count.
+     * Only the room values and the level selected by the projection are read, the rest is skipped token by token.
+     * @return Aggregated totals, or null if the input contains no building
+     */
+    private StreamingTotals streamTotals(InputStream input, DataFormat format, Projection projection)
+            throws Exception {
+        StreamingTotals totals = new StreamingTotals();
+        StreamingBuildingParser parser = streamingParsers.get(format);
+        boolean parsed = traversalTimer("StreamingTotals")
+                .recordCallable(() -> parser.parse(input, totals, projection));
+        return parsed ? totals : null;
+    }
+
+    /**
+     * Streamed report of the whole building, or of the single requested level.
+     * With a level id only that level is read, so the building totals would cover that level alone;
+     * the level report is returned instead of a building report with mislabelled totals.
+     * @param report Report built from totals of the requested part of the building
+     * @param levels Level reports of the report
+     * @param levelId Requested level, null for the whole building
+     */
+    static <R, L> ResponseEntity<?> streamedReport(R report, Function<R, List<L>> levels, String levelId) {
+        if (levelId == null) {
+            return ResponseEntity.ok(report);
+        }
+        List<L> found = levels.apply(report);
+        if (found.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Level not found: " + levelId);
+        }
+        return ResponseEntity.ok(found.get(0));
+    }
+
+    /**
+     * Traverse building with visitor, timed per visitor
+     */
+    private void traverse(BuildingClasses.Building building, BuildingClasses.Visitor visitor) {
+        traversalTimer(visitor.getClass().getSimpleName()).record(() -> building.accept(visitor));
+    }
+
+    /**
+     * Timer of building traversals, tagged with the visitor or engine doing the traversal.
+     * Together with the reader metrics it shows whether a request spent its time in parsing,
+     * traversal or serialization.
+     */
+    private Timer traversalTimer(String traversal) {
+        return Timer.builder("building.traversal")
+                .description("Time of building traversals")
+                .tag("traversal", traversal)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Calculate several metrics for building structure from uploaded file
+     * The file is parsed once and the building is traversed once for all requested metrics
+     * @param metrics Comma separated metric names: area, volume, luminosity, heating
+     */
+    @PostMapping(value = "/report",
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<?>> report(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(name = "metrics", defaultValue = "area,volume,luminosity") String[] metrics,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return async(() -> {
+            DataFormat format = DataFormat.fromContentType(file.getContentType());
+            try {
+                logger.info("Calculating report {} from file: {}", Arrays.toString(metrics),
+                        file.getOriginalFilename());
+                return report(file.getBytes(), metrics, format, DataFormat.fromAccept(accept), ifNoneMatch);
+            } catch (Exception e) {
+                logger.error("Error calculating report", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error calculating report: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Calculate several metrics from JSON request body
+     * Repeated bodies are answered from the report cache
+     * @param metrics Comma separated metric names: area, volume, luminosity, heating
+     */
+    @PostMapping(value = "/report",
+            consumes = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE},
+            produces = {DataFormat.JSON_VALUE, DataFormat.SMILE_VALUE, DataFormat.CBOR_VALUE})
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<?>> reportFromBody(
+            InputStream body,
+            @RequestParam(name = "metrics", defaultValue = "area,volume,luminosity") String[] metrics,
+            @RequestHeader(name = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return async(() -> {
+            DataFormat format = DataFormat.fromContentType(contentType);
+            try {
+                logger.info("Calculating report {} from request body", Arrays.toString(metrics));
+                return report(body.readAllBytes(), metrics, format, DataFormat.fromAccept(accept), ifNoneMatch);
+            } catch (Exception e) {
+                logger.error("Error calculating report", e);
+                return ResponseEntity.status(PayloadTooLargeException.status(e))
+                        .body("Error calculating report: " + e.getMessage());
+            }
+        });
+    }
+
+    private ResponseEntity<?> report(byte[] content, String[] metrics, DataFormat input, DataFormat output,
+                                     String ifNoneMatch) throws Exception {
+        Set<ReportEngine.Metric> requested;
+        try {
+            requested = ReportEngine.Metric.parse(metrics);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+        return cachedReport(content, "report" + requested, output, ifNoneMatch,
+                stream -> report(stream, requested, input));
+    }
+
+    private ResponseEntity<?> report(InputStream input, Set<ReportEngine.Metric> requested, DataFormat format)
+            throws Exception {
+
+        // 1. Parse stream straight into the columnar building model
+        ColumnarBuilding building = ColumnarBuilding.parse(input, format);
+
+        if (building == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid building data in file.");
+        }
+
+        // 2. Compute all requested metrics in a single traversal, levels of large buildings in parallel
+        ReportEngine.Report report = traversalTimer("ReportEngine")
+                .record(() -> reportEngine.generate(building, requested, reportPool));
+
+        logger.info("Report calculation completed successfully");
+
+        return ResponseEntity.ok(report);
     }
 }
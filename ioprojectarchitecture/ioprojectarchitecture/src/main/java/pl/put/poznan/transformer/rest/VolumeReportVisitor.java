@@ -2,6 +2,8 @@ package pl.put.poznan.transformer.rest;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import pl.put.poznan.transformer.logic.BuildingClasses;
+import pl.put.poznan.transformer.logic.CompensatedSum;
+import pl.put.poznan.transformer.logic.StreamingTotals;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -91,17 +93,23 @@ public class VolumeReportVisitor implements BuildingClasses.Visitor {
     /** Calculator instance for performing volume calculations */
     private final BuildingClasses calculator = new BuildingClasses();
 
+    /** Compensated sum of the level totals of the building */
+    private final CompensatedSum buildingVolume = new CompensatedSum();
+
+    /** Compensated sum of the room volumes of the current level */
+    private final CompensatedSum levelVolume = new CompensatedSum();
+
     /**
      * Visits a Building node and initializes the root volume report.
      *
      * This is the first method called during traversal. It creates the root report
-     * object and calculates the total volume by summing all room volumes in all levels.
+     * object with a zero total volume, which is then accumulated while rooms are visited.
      *
      *
      * <p><b>State Changes:</b> Initializes {@link #report} with building-level data.</p>
      *
-     * <p><b>Calculation:</b> Total volume is the sum of all room volumes throughout
-     * the building.</p>
+     * <p><b>Calculation:</b> Total volume is the sum of the level totals, each added
+     * once its level has been visited.</p>
      *
      * @param building The building to generate a report for
      */
@@ -110,32 +118,35 @@ public class VolumeReportVisitor implements BuildingClasses.Visitor {
         report = new VolumeReport();
         report.buildingId = building.id;
         report.buildingName = building.name;
-        report.totalVolume = calculator.calculateVolume(building);
+        report.totalVolume = 0.0;
         report.levels = new ArrayList<>();
+        buildingVolume.reset();
     }
 
     /**
      * Visits a Level node and creates a level volume report.
      *
-     * This method is called for each level in the building. It creates a level report,
-     * calculates the total volume by summing all room volumes on the level, and adds
-     * the report to the building's level list. The created report becomes the current
-     * level for subsequent room visits.
+     * This method is called for each level in the building. It creates a level report
+     * and adds it to the building's level list. The created report becomes the current
+     * level for subsequent room visits, which accumulate its total volume.
      *
      * <p><b>State Changes:</b> Sets {@link #currentLevelReport} and adds it to the
      * building's levels list.</p>
      *
-     * <p><b>Calculation:</b> Total volume is the sum of all room volumes on this level.</p>
+     * <p><b>Calculation:</b> Total volume is the sum of all room volumes on this level,
+     * accumulated in {@link #visit(BuildingClasses.Room)}.</p>
      *
      * @param level The level to generate a report for
      */
     @Override
     public void visit(BuildingClasses.Level level) {
+        addLevelTotal();
         currentLevelReport = new LevelReport();
         currentLevelReport.levelId = level.id;
         currentLevelReport.levelName = level.name;
-        currentLevelReport.totalVolume = calculator.calculateVolume(level);
+        currentLevelReport.totalVolume = 0.0;
         currentLevelReport.rooms = new ArrayList<>();
+        levelVolume.reset();
         if (report != null) {
             report.levels.add(currentLevelReport);
         }
@@ -145,10 +156,11 @@ public class VolumeReportVisitor implements BuildingClasses.Visitor {
      * Visits a Room node and creates a room volume report.
      *
      * This method is called for each room in a level. It creates a room report with
-     * the room's volume and adds it to the current level's
-     * room list.
+     * the room's volume, adds it to the current level's
+     * room list and adds the volume to the level total.
      *
-     * <p><b>State Changes:</b> Adds a room report to {@link #currentLevelReport}.rooms.</p>
+     * <p><b>State Changes:</b> Adds a room report to {@link #currentLevelReport}.rooms
+     * and updates the level total volume.</p>
      *
      * <p>Precondition {@link #currentLevelReport} must not be null
      * </p>
@@ -165,6 +177,9 @@ public class VolumeReportVisitor implements BuildingClasses.Visitor {
             roomReport.roomName = room.name;
             roomReport.volume = calculator.calculateVolume(room);
             currentLevelReport.rooms.add(roomReport);
+
+            levelVolume.add(roomReport.volume);
+            currentLevelReport.totalVolume = levelVolume.get();
         }
     }
 
@@ -179,6 +194,45 @@ public class VolumeReportVisitor implements BuildingClasses.Visitor {
      * @return The complete VolumeReport, or null if no building has been visited
      */
     public VolumeReport getReport() {
+        addLevelTotal();
         return report;
     }
+
+    /**
+     * Adds the total of the last visited level to the building total, once.
+     * Called when the next level starts and when the report is returned.
+     */
+    private void addLevelTotal() {
+        if (currentLevelReport != null && report != null) {
+            buildingVolume.add(currentLevelReport.totalVolume);
+            report.totalVolume = buildingVolume.get();
+        }
+        currentLevelReport = null;
+    }
+
+    /**
+     * Builds a volume report from totals aggregated by the streaming parser.
+     *
+     * In streaming mode the building is never held in memory, so room details are
+     * not available and the level reports contain total volumes only
+     * ({@code rooms} is omitted from the JSON output).
+     *
+     * @param totals Totals collected by {@link StreamingTotals}
+     * @return VolumeReport with building and level totals
+     */
+    public static VolumeReport fromTotals(StreamingTotals totals) {
+        VolumeReport volumeReport = new VolumeReport();
+        volumeReport.buildingId = totals.getBuildingId();
+        volumeReport.buildingName = totals.getBuildingName();
+        volumeReport.totalVolume = totals.getTotals().getVolume();
+        volumeReport.levels = new ArrayList<>();
+        for (StreamingTotals.LevelTotals level : totals.getLevels()) {
+            LevelReport levelReport = new LevelReport();
+            levelReport.levelId = level.id;
+            levelReport.levelName = level.name;
+            levelReport.totalVolume = level.totals.getVolume();
+            volumeReport.levels.add(levelReport);
+        }
+        return volumeReport;
+    }
 }
\ No newline at end of file
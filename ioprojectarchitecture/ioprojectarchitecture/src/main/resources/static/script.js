@@ -2,42 +2,27 @@ function uploadFile() {
     const file = document.getElementById('fileInput').files[0];
     if (!file) { alert("Wybierz plik!"); return; }
 
-    const checkedOptions = Array.from(document.querySelectorAll('input[name="option"]:checked'))
-                                .map(cb => cb.value);
+    const metricNames = ['area', 'volume', 'luminosity', 'heating'];
+    const checkedMetrics = Array.from(document.querySelectorAll('input[name="option"]:checked'))
+                                .map(cb => metricNames[cb.value]);
 
     const reportDiv = document.getElementById('report');
     reportDiv.innerHTML = '';
 
-    checkedOptions.forEach(option => {
-        let url = '';
-        let text = '';
-        switch(option) {
-            case '0':
-                url = '/calculateArea';
-                text = "Powierzchnia:";
-                break;
-            case '1':
-                url = '/calculateVolume';
-                text = "Objętość:";
-                break;
-            case '2':
-                url = '/calculateLuminosity';
-                text = "Oświetlenie:";
-                break;
-        }
+    if (checkedMetrics.length === 0) { return; }
 
-        const formData = new FormData();
-        formData.append("file", file);
+    // One request computes all selected metrics in a single pass
+    const formData = new FormData();
+    formData.append("file", file);
 
-        fetch(url, { method: 'POST', body: formData })
-            .then(response => response.json())
-            .then(data => {
-                let html = `<h3>${text}</h3><pre>${JSON.stringify(data, null, 2)}</pre>`;
-                reportDiv.innerHTML += html;
-            })
-            .catch(err => {
-                console.error(err);
-                reportDiv.innerHTML += `<p style="color:red">Błąd przy ${option}</p>`;
-            });
-    });
+    fetch('/report?metrics=' + checkedMetrics.join(','), { method: 'POST', body: formData })
+        .then(response => response.json())
+        .then(data => {
+            let html = `<h3>Raport:</h3><pre>${JSON.stringify(data, null, 2)}</pre>`;
+            reportDiv.innerHTML += html;
+        })
+        .catch(err => {
+            console.error(err);
+            reportDiv.innerHTML += `<p style="color:red">Błąd przy ${checkedMetrics.join(', ')}</p>`;
+        });
 }
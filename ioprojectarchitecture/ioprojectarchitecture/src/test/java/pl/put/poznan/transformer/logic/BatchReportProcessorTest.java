@@ -0,0 +1,127 @@
+package pl.put.poznan.transformer.logic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchReportProcessorTest {
+    private static final Set<ReportEngine.Metric> METRICS = EnumSet.of(ReportEngine.Metric.AREA);
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    private BatchReportProcessor.Result[] results(ByteArrayOutputStream output) throws Exception {
+        String[] lines = output.toString(StandardCharsets.UTF_8.name()).split("\n");
+        BatchReportProcessor.Result[] results = new BatchReportProcessor.Result[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            results[i] = mapper.readValue(lines[i], BatchReportProcessor.Result.class);
+        }
+        return results;
+    }
+
+    @Test
+    void oversizedLineIsReportedAndSkipped() throws Exception {
+        String small = TestBuildings.json(1, 2);
+        String large = TestBuildings.json(4, 50);
+        int limit = small.length() + 10;
+        String input = small + "\n" + large + "\r\n\n" + small + "\n";
+        BatchReportProcessor processor = new BatchReportProcessor(pool, 2, limit);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long processed = processor.processNdjson(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), METRICS, output);
+
+        assertEquals(3, processed);
+        assertEquals(1, processor.getErrorCount());
+        BatchReportProcessor.Result[] results = results(output);
+        assertEquals(3, results.length);
+        assertNotNull(results[0].report);
+        assertNull(results[1].report);
+        assertTrue(results[1].error.contains(String.valueOf(limit)));
+        assertEquals(2, results[2].index);
+        assertNotNull(results[2].report);
+    }
+
+    @Test
+    void oversizedZipEntryIsReportedAndSkipped() throws Exception {
+        byte[] small = TestBuildings.bytes(1, 2);
+        ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(zipped)) {
+            zip.putNextEntry(new ZipEntry("large.json"));
+            zip.write(TestBuildings.bytes(4, 50));
+            zip.putNextEntry(new ZipEntry("small.json"));
+            zip.write(small);
+        }
+        BatchReportProcessor processor = new BatchReportProcessor(pool, 2, small.length);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertEquals(2, processor.processZip(new ByteArrayInputStream(zipped.toByteArray()), METRICS, output));
+
+        BatchReportProcessor.Result[] results = results(output);
+        assertEquals("large.json", results[0].name);
+        assertNotNull(results[0].error);
+        assertEquals("small.json", results[1].name);
+        assertNotNull(results[1].report);
+        assertEquals(1, processor.getErrorCount());
+    }
+
+    @Test
+    void filesAreParsedInTheFormatOfTheirExtension() throws Exception {
+        byte[] json = TestBuildings.bytes(2, 3);
+        Path jsonFile = Files.write(directory.resolve("a.json"), json);
+        Path smileFile = Files.write(directory.resolve("b.SMILE"),
+                new ObjectMapper(DataFormat.SMILE.getFactory()).writeValueAsBytes(mapper.readTree(json)));
+        Path cborFile = Files.write(directory.resolve("c.cbor"),
+                new ObjectMapper(DataFormat.CBOR.getFactory()).writeValueAsBytes(mapper.readTree(json)));
+        Path invalidFile = Files.write(directory.resolve("d.json"),
+                "{\"building\": [".getBytes(StandardCharsets.UTF_8));
+        BatchReportProcessor processor = new BatchReportProcessor(pool, 2);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertEquals(4, processor.processFiles(Arrays.asList(jsonFile, smileFile, cborFile, invalidFile),
+                METRICS, output));
+
+        BatchReportProcessor.Result[] results = results(output);
+        for (int i = 0; i < 3; i++) {
+            assertNull(results[i].error, results[i].name);
+            assertEquals(mapper.writeValueAsString(results[0].report), mapper.writeValueAsString(results[i].report));
+        }
+        assertNotNull(results[3].error);
+        assertEquals(4, processor.getProcessedCount());
+        assertEquals(1, processor.getErrorCount());
+    }
+
+    @Test
+    void formatIsDetectedFromFileExtension() {
+        assertEquals(DataFormat.JSON, DataFormat.fromFileName("dir/building.json"));
+        assertEquals(DataFormat.SMILE, DataFormat.fromFileName("building.Smile"));
+        assertEquals(DataFormat.CBOR, DataFormat.fromFileName("building.cbor"));
+        assertNull(DataFormat.fromFileName("building.json.gz"));
+        assertNull(DataFormat.fromFileName("cbor"));
+    }
+}
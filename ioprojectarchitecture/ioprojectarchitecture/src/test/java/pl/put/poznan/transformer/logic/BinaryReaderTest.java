@@ -0,0 +1,35 @@
+package pl.put.poznan.transformer.logic;
+
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryReaderTest {
+
+    @Test
+    void stringOperationsUseBase64() throws Exception {
+        BuildingClasses wrapper = DataFormat.JSON.createReader().read(TestBuildings.bytes(2, 3), BuildingClasses.class);
+        for (DataFormat format : new DataFormat[] {DataFormat.SMILE, DataFormat.CBOR}) {
+            JsonReader reader = format.createReader();
+
+            String encoded = reader.write(wrapper);
+            assertArrayEquals(reader.writeBytes(wrapper), Base64.getDecoder().decode(encoded));
+
+            BuildingClasses decoded = reader.read(encoded, BuildingClasses.class);
+            assertEquals(wrapper.building.id, decoded.building.id);
+            assertEquals(2, decoded.building.levels.size());
+            assertEquals(wrapper.building.levels.get(1).rooms.get(2).area,
+                    decoded.building.levels.get(1).rooms.get(2).area, 0.0);
+        }
+    }
+
+    @Test
+    void invalidBase64IsRejected() {
+        JsonReader reader = DataFormat.SMILE.createReader();
+        assertThrows(IOException.class, () -> reader.read("not base64!", BuildingClasses.class));
+    }
+}
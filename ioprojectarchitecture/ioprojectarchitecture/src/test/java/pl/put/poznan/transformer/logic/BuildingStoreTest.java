@@ -0,0 +1,128 @@
+package pl.put.poznan.transformer.logic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BuildingStoreTest {
+    private static final double DELTA = 1e-9;
+
+    @TempDir
+    Path directory;
+
+    private static BuildingClasses.Building building(String id, int levels, int roomsPerLevel) throws Exception {
+        BuildingClasses.Building building = new ObjectMapper()
+                .readValue(TestBuildings.bytes(levels, roomsPerLevel), BuildingClasses.class).building;
+        building.id = id;
+        return building;
+    }
+
+    private static BuildingPatch roomArea(int level, int room, double area) {
+        BuildingPatch patch = new BuildingPatch();
+        patch.op = BuildingPatch.Operation.UPDATE_ROOM;
+        patch.levelId = TestBuildings.levelId(level);
+        patch.roomId = TestBuildings.roomId(level, room);
+        patch.area = area;
+        return patch;
+    }
+
+    private static double area(BuildingStore store, String id) throws Exception {
+        return store.get(id).getTotals().totals.getArea();
+    }
+
+    @Test
+    void tornTailIsCutOffOnOpen() throws Exception {
+        Path log = directory.resolve("buildings.log");
+        double area;
+        try (BuildingStore store = BuildingStore.open(log, 0)) {
+            store.put(building("A", 2, 3));
+            store.put(building("B", 1, 4));
+            area = area(store, "A");
+        }
+        long validSize = Files.size(log);
+        // Header of a record whose payload was never written
+        Files.write(log, new byte[] {1, 0, 0, 0, 1, 0, 0, 0, 100, 7, 7, 7, 7, 'C'}, StandardOpenOption.APPEND);
+
+        try (BuildingStore store = BuildingStore.open(log, 0)) {
+            assertEquals(validSize, Files.size(log));
+            assertEquals(validSize, store.getStats().fileBytes);
+            assertEquals(area, area(store, "A"), DELTA);
+            assertNotNull(store.get("B"));
+            assertNull(store.get("C"));
+            store.put(building("C", 1, 1));
+        }
+        try (BuildingStore store = BuildingStore.open(log, 0)) {
+            assertEquals(3, store.ids().size());
+        }
+    }
+
+    @Test
+    void corruptedLastRecordIsCutOffOnOpen() throws Exception {
+        Path log = directory.resolve("buildings.log");
+        long validSize;
+        try (BuildingStore store = BuildingStore.open(log, 0)) {
+            store.put(building("A", 1, 2));
+            validSize = store.getStats().fileBytes;
+            store.put(building("B", 1, 2));
+        }
+        byte[] content = Files.readAllBytes(log);
+        content[content.length - 2] ^= 0x5A;
+        Files.write(log, content);
+
+        try (BuildingStore store = BuildingStore.open(log, 0)) {
+            assertEquals(validSize, Files.size(log));
+            assertEquals(Arrays.asList("A"), store.ids());
+        }
+    }
+
+    @Test
+    void compactionKeepsLatestVersionOfLiveBuildings() throws Exception {
+        Path log = directory.resolve("buildings.log");
+        double patchedArea;
+        try (BuildingStore store = BuildingStore.open(log, 0)) {
+            for (int i = 0; i < 8; i++) {
+                store.put(building("B" + i, 2, 3));
+            }
+            store.put(building("B1", 3, 2));
+            store.patch("B2", roomArea(0, 0, 99.5));
+            store.patch("B2", roomArea(1, 2, 0.5));
+            store.patch("B5", roomArea(1, 1, 12.25));
+            store.delete("B3");
+            patchedArea = area(store, "B2");
+
+            store.compact();
+
+            BuildingStore.Stats stats = store.getStats();
+            assertEquals(1, stats.compactions);
+            assertEquals(0, stats.patches);
+            assertEquals(7, stats.buildings);
+            assertEquals(Files.size(log), stats.fileBytes);
+            assertEquals(stats.fileBytes, stats.liveBytes);
+            assertFalse(Files.exists(log.resolveSibling("buildings.log.compact")));
+            assertEquals(patchedArea, area(store, "B2"), DELTA);
+
+            // Appends go to the compacted log
+            store.patch("B1", roomArea(2, 1, 1.0));
+        }
+
+        try (BuildingStore store = BuildingStore.open(log, 0)) {
+            assertEquals(7, store.ids().size());
+            assertNull(store.get("B3"));
+            assertEquals(patchedArea, area(store, "B2"), DELTA);
+            assertEquals(3, store.get("B1").getTotals().levels.size());
+            assertEquals(1.0, store.get("B1").findRoom(Integer.parseInt(TestBuildings.roomId(2, 1))).area, DELTA);
+            for (String id : store.ids()) {
+                assertNotNull(store.get(id));
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package pl.put.poznan.transformer.logic;
+
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.DoubleStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompensatedSumTest {
+
+    /**
+     * JDKs before 18 apply the final compensation of DoubleStream.sum() with the opposite sign,
+     * so results may differ from it in the last bit
+     */
+    private static void assertSameSum(double expected, double actual) {
+        assertEquals(expected, actual, Math.ulp(expected));
+    }
+
+    @Test
+    void doesNotDriftLikePlainSummation() {
+        double[] values = new double[10_000_000];
+        Arrays.fill(values, 0.1);
+        double plain = 0.0;
+        for (double value : values) {
+            plain += value;
+        }
+
+        assertEquals(1_000_000.0, CompensatedSum.of(values, 0, values.length));
+        assertNotEquals(1_000_000.0, plain);
+    }
+
+    @Test
+    void matchesDoubleStreamSum() {
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            double[] values = random.doubles(1 + random.nextInt(1000), -1e6, 1e6)
+                    .map(value -> random.nextBoolean() ? Math.rint(value) / 100 : value)
+                    .toArray();
+
+            assertSameSum(DoubleStream.of(values).sum(), CompensatedSum.of(values, 0, values.length));
+        }
+    }
+
+    @Test
+    void infiniteSummandsGiveTheirPlainSum() {
+        CompensatedSum sum = new CompensatedSum();
+        sum.add(1.0);
+        sum.add(Double.POSITIVE_INFINITY);
+        sum.add(2.0);
+        assertEquals(Double.POSITIVE_INFINITY, sum.get());
+
+        sum.add(Double.NEGATIVE_INFINITY);
+        assertTrue(Double.isNaN(sum.get()));
+
+        sum.reset();
+        assertEquals(0.0, sum.get());
+    }
+
+    @Test
+    void totalsMatchDoubleStreamSumsOfTheLevels() throws Exception {
+        BuildingClasses wrapper = DataFormat.JSON.createReader().read(TestBuildings.bytes(7, 300),
+                BuildingClasses.class);
+        BuildingClasses calculator = new BuildingClasses();
+        MetricTotals building = new MetricTotals();
+        for (BuildingClasses.Level level : wrapper.building.levels) {
+            MetricTotals totals = new MetricTotals();
+            level.rooms.forEach(totals::add);
+            assertSameSum(calculator.calculateArea(level), totals.getArea());
+            assertSameSum(calculator.calculateVolume(level), totals.getVolume());
+            assertSameSum(calculator.calculateLuminosity(level), totals.getAverageLuminosity());
+            building.add(totals);
+        }
+
+        assertSameSum(calculator.calculateArea(wrapper.building), building.getArea());
+        assertSameSum(calculator.calculateVolume(wrapper.building), building.getVolume());
+        assertSameSum(calculator.calculateHeating(wrapper.building), building.getHeatingPerCube());
+    }
+
+    @Test
+    void removedRoomsLeaveCompensatedTotals() {
+        MetricTotals totals = new MetricTotals();
+        BuildingClasses.Room large = new BuildingClasses.Room();
+        large.area = 1e16;
+        totals.add(large);
+        for (int i = 0; i < 1000; i++) {
+            totals.add(1.0, 0.0, 0.0, 0.0);
+        }
+        totals.remove(large);
+
+        // Every 1.0 alone is below the precision of 1e16, the compensation keeps them
+        assertEquals(1000.0, totals.getArea());
+    }
+}
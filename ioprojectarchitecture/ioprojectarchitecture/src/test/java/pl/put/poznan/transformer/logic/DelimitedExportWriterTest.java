@@ -0,0 +1,72 @@
+package pl.put.poznan.transformer.logic;
+
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DelimitedExportWriterTest {
+    private static final String HEADER = "level_id,level_name,room_id,room_name,area,cube,heating,light,luminosity";
+
+    /**
+     * Building with one level, listing its rooms before its id, and one room per tested name
+     */
+    private static String building(String levelName, String... roomNames) {
+        StringBuilder json = new StringBuilder("{\"building\":{\"id\":\"B1\",\"levels\":[{\"rooms\":[");
+        for (int i = 0; i < roomNames.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(i + 1).append("\",\"name\":\"").append(roomNames[i])
+                    .append("\",\"area\":2.0,\"cube\":5.0,\"heating\":8.0,\"light\":3.0}");
+        }
+        return json.append("],\"id\":\"L1\",\"name\":\"").append(levelName).append("\"}]}}").toString();
+    }
+
+    private static String export(String json, DelimitedExportWriter.Format format) throws Exception {
+        StringWriter output = new StringWriter();
+        DelimitedExportWriter writer = new DelimitedExportWriter(output, format);
+        assertTrue(writer.write(new StreamingBuildingParser(DataFormat.JSON),
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), Projection.ALL));
+        return output.toString();
+    }
+
+    @Test
+    void csvFieldsAreQuotedAndRowsEndWithCrlf() throws Exception {
+        String csv = export(building("Ground floor", "Hall, east", "The \\\"big\\\" room", "Line\\nbreak"),
+                DelimitedExportWriter.Format.CSV);
+
+        assertEquals(HEADER + "\r\n"
+                + "L1,Ground floor,1,\"Hall, east\",2.0,5.0,8.0,3.0,1.5\r\n"
+                + "L1,Ground floor,2,\"The \"\"big\"\" room\",2.0,5.0,8.0,3.0,1.5\r\n"
+                + "L1,Ground floor,3,\"Line\nbreak\",2.0,5.0,8.0,3.0,1.5\r\n", csv);
+    }
+
+    @Test
+    void formulasArePrefixedInCsv() throws Exception {
+        String csv = export(building("=1+1", "+1", "-1", "@SUM(A1)", "\\tTab", "\\rReturn", "a=b"),
+                DelimitedExportWriter.Format.CSV);
+
+        String[] rows = csv.split("\r\n");
+        assertTrue(rows[1].startsWith("L1,'=1+1,1,'+1,"), rows[1]);
+        assertTrue(rows[2].startsWith("L1,'=1+1,2,'-1,"), rows[2]);
+        assertTrue(rows[3].startsWith("L1,'=1+1,3,'@SUM(A1),"), rows[3]);
+        assertTrue(rows[4].startsWith("L1,'=1+1,4,'\tTab,"), rows[4]);
+        assertTrue(rows[5].startsWith("L1,'=1+1,5,\"'\rReturn\","), rows[5]);
+        assertTrue(rows[6].startsWith("L1,'=1+1,6,a=b,"), rows[6]);
+    }
+
+    @Test
+    void formulasArePrefixedAndTabsReplacedInTsv() throws Exception {
+        String tsv = export(building("Level\\t1", "=HYPERLINK(\\\"x\\\")", "\\tTab", "Room, 2"),
+                DelimitedExportWriter.Format.TSV);
+
+        assertEquals(HEADER.replace(',', '\t') + "\r\n"
+                + "L1\tLevel 1\t1\t'=HYPERLINK(\"x\")\t2.0\t5.0\t8.0\t3.0\t1.5\r\n"
+                + "L1\tLevel 1\t2\t' Tab\t2.0\t5.0\t8.0\t3.0\t1.5\r\n"
+                + "L1\tLevel 1\t3\tRoom, 2\t2.0\t5.0\t8.0\t3.0\t1.5\r\n", tsv);
+    }
+}
@@ -0,0 +1,217 @@
+package pl.put.poznan.transformer.logic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EditableBuildingTest {
+    private static final double DELTA = 1e-9;
+
+    @TempDir
+    Path directory;
+
+    private static BuildingClasses.Building building(int levels, int roomsPerLevel) throws Exception {
+        return new ObjectMapper().readValue(TestBuildings.bytes(levels, roomsPerLevel), BuildingClasses.class)
+                .building;
+    }
+
+    private static BuildingClasses.Room room(String id, double area, double cube, double heating, double light) {
+        BuildingClasses.Room room = new BuildingClasses.Room();
+        room.id = id;
+        room.name = "Room " + id;
+        room.area = area;
+        room.cube = cube;
+        room.heating = heating;
+        room.light = light;
+        return room;
+    }
+
+    private static BuildingClasses.Level level(String id, BuildingClasses.Room... rooms) {
+        BuildingClasses.Level level = new BuildingClasses.Level();
+        level.id = id;
+        level.name = "Level " + id;
+        level.rooms = new ArrayList<>(Arrays.asList(rooms));
+        return level;
+    }
+
+    private static BuildingPatch patch(BuildingPatch.Operation op, String levelId) {
+        BuildingPatch patch = new BuildingPatch();
+        patch.op = op;
+        patch.levelId = levelId;
+        return patch;
+    }
+
+    /**
+     * Maintained totals equal totals recomputed from the current rooms
+     */
+    private static void assertTotalsMatchRooms(EditableBuilding editable) throws Exception {
+        ReportEngine.Report expected = editable.read(building ->
+                new ReportEngine().generate(building, EnumSet.allOf(ReportEngine.Metric.class)));
+        EditableBuilding.Totals actual = editable.getTotals();
+
+        assertEquals(expected.totalArea, actual.totals.getArea(), DELTA);
+        assertEquals(expected.totalVolume, actual.totals.getVolume(), DELTA);
+        assertEquals(expected.totalHeating, actual.totals.getHeating(), DELTA);
+        assertEquals(expected.averageLuminosity, actual.totals.getAverageLuminosity(), DELTA);
+        assertEquals(expected.levels.size(), actual.levels.size());
+        for (int i = 0; i < expected.levels.size(); i++) {
+            assertEquals(expected.levels.get(i).levelId, actual.levels.get(i).levelId);
+            assertEquals(expected.levels.get(i).totalArea, actual.levels.get(i).totals.getArea(), DELTA);
+            assertEquals(expected.levels.get(i).totalVolume, actual.levels.get(i).totals.getVolume(), DELTA);
+            assertEquals(expected.levels.get(i).averageLuminosity,
+                    actual.levels.get(i).totals.getAverageLuminosity(), DELTA);
+        }
+    }
+
+    @Test
+    void totalsFollowPatches() throws Exception {
+        EditableBuilding editable = new EditableBuilding(building(3, 4));
+        assertTotalsMatchRooms(editable);
+
+        BuildingPatch update = patch(BuildingPatch.Operation.UPDATE_ROOM, TestBuildings.levelId(1));
+        update.roomId = TestBuildings.roomId(1, 2);
+        update.area = 42.0;
+        update.light = 0.0;
+        editable.apply(update);
+        assertTotalsMatchRooms(editable);
+
+        BuildingPatch addRoom = patch(BuildingPatch.Operation.ADD_ROOM, TestBuildings.levelId(0));
+        addRoom.room = room("900", 7.5, 20, 60, 3);
+        editable.apply(addRoom);
+        assertTotalsMatchRooms(editable);
+
+        BuildingPatch removeRoom = patch(BuildingPatch.Operation.REMOVE_ROOM, TestBuildings.levelId(2));
+        removeRoom.roomId = TestBuildings.roomId(2, 0);
+        editable.apply(removeRoom);
+        assertTotalsMatchRooms(editable);
+
+        BuildingPatch addLevel = patch(BuildingPatch.Operation.ADD_LEVEL, null);
+        addLevel.level = level("10", room("1001", 30, 90, 120, 15), room("1002", 12, 36, 40, 0));
+        editable.apply(addLevel);
+        assertTotalsMatchRooms(editable);
+
+        editable.apply(patch(BuildingPatch.Operation.REMOVE_LEVEL, TestBuildings.levelId(0)));
+        assertTotalsMatchRooms(editable);
+        assertEquals(3, editable.getTotals().levels.size());
+    }
+
+    @Test
+    void failedPatchLeavesBuildingUnchanged() throws Exception {
+        EditableBuilding editable = new EditableBuilding(building(2, 3));
+        double area = editable.getTotals().totals.getArea();
+
+        BuildingPatch missingRoom = patch(BuildingPatch.Operation.UPDATE_ROOM, TestBuildings.levelId(0));
+        missingRoom.roomId = "404";
+        missingRoom.area = 1.0;
+        assertThrows(IllegalArgumentException.class, () -> editable.apply(missingRoom));
+
+        BuildingPatch duplicateRooms = patch(BuildingPatch.Operation.ADD_LEVEL, null);
+        duplicateRooms.level = level("10", room("1001", 1, 1, 1, 1), room("1001", 2, 2, 2, 2));
+        assertThrows(IllegalArgumentException.class, () -> editable.apply(duplicateRooms));
+
+        BuildingPatch nullRoom = patch(BuildingPatch.Operation.ADD_LEVEL, null);
+        nullRoom.level = level("11", room(null, 1, 1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> editable.apply(nullRoom));
+
+        assertEquals(area, editable.getTotals().totals.getArea(), DELTA);
+        assertEquals(2, editable.getTotals().levels.size());
+        assertTotalsMatchRooms(editable);
+    }
+
+    @Test
+    void invalidIdsAreRejected() throws Exception {
+        BuildingClasses.Building duplicateLevels = building(2, 1);
+        duplicateLevels.levels.get(1).id = duplicateLevels.levels.get(0).id;
+        assertThrows(IllegalArgumentException.class, () -> new EditableBuilding(duplicateLevels));
+
+        BuildingClasses.Building nullLevel = building(2, 1);
+        nullLevel.levels.get(0).id = null;
+        assertThrows(IllegalArgumentException.class, () -> new EditableBuilding(nullLevel));
+
+        BuildingClasses.Building duplicateRooms = building(1, 3);
+        duplicateRooms.levels.get(0).rooms.get(2).id = duplicateRooms.levels.get(0).rooms.get(0).id;
+        assertThrows(IllegalArgumentException.class, () -> new EditableBuilding(duplicateRooms));
+
+        BuildingClasses.Building nullRoom = building(1, 3);
+        nullRoom.levels.get(0).rooms.set(1, null);
+        assertThrows(IllegalArgumentException.class, () -> new EditableBuilding(nullRoom));
+    }
+
+    @Test
+    void storeRejectsInvalidBuildingBeforeAppending() throws Exception {
+        try (BuildingStore store = BuildingStore.open(directory.resolve("buildings.log"), 4)) {
+            BuildingClasses.Building building = building(2, 2);
+            building.id = "A";
+            building.levels.get(1).id = building.levels.get(0).id;
+
+            assertThrows(IllegalArgumentException.class, () -> store.put(building));
+            assertEquals(0, store.getStats().fileBytes);
+            assertNull(store.get("A"));
+            assertTrue(store.ids().isEmpty());
+        }
+    }
+
+    @Test
+    void roomIdsAreUniqueInBuilding() throws Exception {
+        BuildingClasses.Building repeated = building(2, 2);
+        repeated.levels.get(1).rooms.get(0).id = repeated.levels.get(0).rooms.get(1).id;
+        assertThrows(IllegalArgumentException.class, () -> new EditableBuilding(repeated));
+
+        EditableBuilding editable = new EditableBuilding(building(2, 2));
+        String existing = TestBuildings.roomId(0, 1);
+        BuildingPatch addRoom = patch(BuildingPatch.Operation.ADD_ROOM, TestBuildings.levelId(1));
+        addRoom.room = room(existing, 1, 1, 1, 1);
+        assertThrows(IllegalArgumentException.class, () -> editable.apply(addRoom));
+        BuildingPatch addLevel = patch(BuildingPatch.Operation.ADD_LEVEL, null);
+        addLevel.level = level("10", room("1001", 1, 1, 1, 1), room(existing, 1, 1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> editable.apply(addLevel));
+        assertNull(editable.findRoom(1001));
+        assertEquals(2, editable.getTotals().levels.size());
+
+        // A removed room id can be used again, in another level
+        BuildingPatch removeRoom = patch(BuildingPatch.Operation.REMOVE_ROOM, TestBuildings.levelId(0));
+        removeRoom.roomId = existing;
+        editable.apply(removeRoom);
+        assertNull(editable.findRoom(Integer.parseInt(existing)));
+        editable.apply(addRoom);
+        assertEquals(TestBuildings.levelId(1), editable.findRoom(Integer.parseInt(existing)).levelId);
+        assertTotalsMatchRooms(editable);
+    }
+
+    @Test
+    void numericIdsAreFoundDirectly() throws Exception {
+        EditableBuilding editable = new EditableBuilding(building(3, 3));
+        for (int level = 0; level < 3; level++) {
+            String levelId = TestBuildings.levelId(level);
+            assertEquals(levelId, editable.findLevel(Integer.parseInt(levelId)).levelId);
+            for (int room = 0; room < 3; room++) {
+                EditableBuilding.RoomDetails details =
+                        editable.findRoom(Integer.parseInt(TestBuildings.roomId(level, room)));
+                assertEquals(levelId, details.levelId);
+                assertEquals(TestBuildings.roomId(level, room), details.roomId);
+            }
+        }
+        assertNull(editable.findLevel(404));
+        assertNull(editable.findRoom(404));
+
+        // Positions of later levels and rooms follow removals
+        editable.apply(patch(BuildingPatch.Operation.REMOVE_LEVEL, TestBuildings.levelId(0)));
+        BuildingPatch removeRoom = patch(BuildingPatch.Operation.REMOVE_ROOM, TestBuildings.levelId(1));
+        removeRoom.roomId = TestBuildings.roomId(1, 0);
+        editable.apply(removeRoom);
+        assertNull(editable.findLevel(Integer.parseInt(TestBuildings.levelId(0))));
+        assertNull(editable.findRoom(Integer.parseInt(TestBuildings.roomId(0, 1))));
+        assertEquals(TestBuildings.roomId(1, 2),
+                editable.findRoom(Integer.parseInt(TestBuildings.roomId(1, 2))).roomId);
+        assertEquals(TestBuildings.levelId(2), editable.findLevel(Integer.parseInt(TestBuildings.levelId(2))).levelId);
+    }
+}
@@ -0,0 +1,74 @@
+package pl.put.poznan.transformer.logic;
+
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeatingIndexTest {
+
+    /**
+     * Order of the previous implementation: stable sort of boxed room indexes by value
+     */
+    private static int[] boxedOrder(double[] values) {
+        return IntStream.range(0, values.length).boxed()
+                .sorted(Comparator.comparingDouble(room -> values[room]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    @Test
+    void primitiveSortMatchesComparatorSort() {
+        Random random = new Random(42);
+        for (int rooms : new int[]{0, 1, 2, 7, 1000, 100_000}) {
+            double[] values = new double[rooms];
+            for (int room = 0; room < rooms; room++) {
+                // Few distinct values, so equal values must keep room order
+                values[room] = random.nextInt(50) * 0.25 - 2;
+            }
+            assertArrayEquals(boxedOrder(values), HeatingIndex.sortedOrder(values), "rooms: " + rooms);
+        }
+    }
+
+    @Test
+    void valuesDifferingInTheLowestBitsAreOrderedExactly() {
+        double base = 3.7;
+        double[] values = new double[1000];
+        for (int room = 0; room < values.length; room++) {
+            // Neighbouring doubles, the room index replaces exactly the bits they differ in
+            values[room] = Double.longBitsToDouble(Double.doubleToLongBits(base) + (values.length - room) % 37);
+        }
+        values[10] = -0.0;
+        values[11] = 0.0;
+        values[12] = Double.NaN;
+        values[13] = -Double.MAX_VALUE;
+        values[14] = Double.POSITIVE_INFINITY;
+        values[15] = Double.NEGATIVE_INFINITY;
+        values[16] = -base;
+
+        assertArrayEquals(boxedOrder(values), HeatingIndex.sortedOrder(values));
+    }
+
+    @Test
+    void roomsAboveThresholdAreReturnedHighestFirst() throws Exception {
+        ColumnarBuilding building = ColumnarBuilding.parse(new ByteArrayInputStream(TestBuildings.bytes(3, 40)));
+        HeatingIndex index = HeatingIndex.of(building);
+
+        List<HeatingIndex.Entry> all = index.above(Double.NEGATIVE_INFINITY, 0);
+        List<HeatingIndex.Entry> above = index.above(4.0, 5);
+
+        assertEquals(120, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).heatingPerCube >= all.get(i).heatingPerCube);
+        }
+        assertEquals(5, above.size());
+        assertEquals(all.get(4).roomId, above.get(4).roomId);
+        assertTrue(above.get(4).heatingPerCube > 4.0);
+    }
+}
@@ -0,0 +1,81 @@
+package pl.put.poznan.transformer.logic;
+
+import org.junit.jupiter.api.Test;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntIntHashMapTest {
+
+    private static void assertSameContent(Map<Integer, Integer> expected, IntIntHashMap actual, int[] keys) {
+        assertEquals(expected.size(), actual.size());
+        for (int key : keys) {
+            assertEquals(expected.getOrDefault(key, -1).intValue(), actual.get(key, -1), "key " + key);
+            assertEquals(expected.containsKey(key), actual.containsKey(key), "key " + key);
+        }
+    }
+
+    @Test
+    void randomOperationsMatchHashMap() {
+        Random random = new Random(42);
+        // Few distinct keys, so probe sequences collide and removals shift entries back
+        int[] keys = new int[48];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i < 4 ? new int[] {0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE}[i] : random.nextInt();
+        }
+        Map<Integer, Integer> expected = new HashMap<>();
+        IntIntHashMap actual = new IntIntHashMap();
+        for (int i = 0; i < 20000; i++) {
+            int key = keys[random.nextInt(keys.length)];
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, actual.remove(key));
+            } else {
+                int value = random.nextInt();
+                expected.put(key, value);
+                actual.put(key, value);
+            }
+            assertSameContent(expected, actual, keys);
+        }
+    }
+
+    @Test
+    void removalKeepsCollidingKeysReachable() {
+        // Keys with the same home slot in a map of 16 slots, using the hash of the map
+        int[] colliding = new int[5];
+        for (int key = 0, found = 0; found < colliding.length; key++) {
+            int hash = key * 0x9E3779B9;
+            if (((hash ^ (hash >>> 16)) & 15) == 3) {
+                colliding[found++] = key;
+            }
+        }
+        IntIntHashMap map = new IntIntHashMap();
+        for (int key : colliding) {
+            map.put(key, key + 1);
+        }
+        assertTrue(map.remove(colliding[0]));
+        assertTrue(map.remove(colliding[2]));
+        assertFalse(map.remove(colliding[0]));
+        assertEquals(3, map.size());
+        assertEquals(-1, map.get(colliding[0], -1));
+        assertEquals(colliding[1] + 1, map.get(colliding[1], -1));
+        assertEquals(colliding[3] + 1, map.get(colliding[3], -1));
+        assertEquals(colliding[4] + 1, map.get(colliding[4], -1));
+    }
+
+    @Test
+    void mapGrowsBeyondExpectedSize() {
+        IntIntHashMap map = new IntIntHashMap(2);
+        for (int key = 0; key < 10000; key++) {
+            map.put(key * 31, key);
+        }
+        assertEquals(10000, map.size());
+        for (int key = 0; key < 10000; key++) {
+            assertEquals(key, map.get(key * 31, -1));
+        }
+        assertEquals(-1, map.get(1, -1));
+    }
+}
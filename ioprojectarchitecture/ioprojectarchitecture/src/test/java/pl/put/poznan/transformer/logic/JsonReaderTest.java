@@ -0,0 +1,56 @@
+package pl.put.poznan.transformer.logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonReaderTest {
+    private final JsonReader reader = new JsonReader();
+
+    @TempDir
+    Path directory;
+
+    private BuildingClasses building(int levels, int roomsPerLevel) throws Exception {
+        return reader.read(TestBuildings.bytes(levels, roomsPerLevel), BuildingClasses.class);
+    }
+
+    private int fileCount() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return (int) files.count();
+        }
+    }
+
+    @Test
+    void writtenFileIsReadBack() throws Exception {
+        File file = directory.resolve("building.json").toFile();
+
+        reader.writeToFile(building(2, 3), file);
+
+        assertEquals(6, reader.readFromFile(file, BuildingClasses.class).building.levels.stream()
+                .mapToInt(level -> level.rooms.size()).sum());
+        assertEquals(1, fileCount());
+    }
+
+    @Test
+    void mappedReaderKeepsPreviousContentWhenFileIsReplaced() throws Exception {
+        File file = directory.resolve("building.json").toFile();
+        reader.writeToFile(building(20, 50), file);
+        byte[] previous = Files.readAllBytes(file.toPath());
+
+        try (InputStream mapped = new MappedFileInputStream(file)) {
+            // Much shorter content, truncating the mapped file in place would fault on the next read
+            reader.writeToFile(building(1, 1), file);
+
+            assertArrayEquals(previous, mapped.readAllBytes());
+        }
+        assertEquals(1, reader.readFromFile(file, BuildingClasses.class).building.levels.size());
+        assertEquals(1, fileCount());
+    }
+}
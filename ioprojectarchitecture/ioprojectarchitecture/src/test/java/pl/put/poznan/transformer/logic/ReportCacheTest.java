@@ -0,0 +1,41 @@
+package pl.put.poznan.transformer.logic;
+
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReportCacheTest {
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void fingerprintIsSha256OfContent() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+                ReportCache.key(new byte[0], "area").fingerprint());
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                ReportCache.key(bytes("abc"), "area").fingerprint());
+    }
+
+    @Test
+    void keysDependOnContentAndReportType() {
+        ReportCache.Key key = ReportCache.key(bytes("{\"id\":\"1\"}"), "area");
+        assertEquals(key, ReportCache.key(bytes("{\"id\":\"1\"}"), "area"));
+        assertEquals(key.hashCode(), ReportCache.key(bytes("{\"id\":\"1\"}"), "area").hashCode());
+        assertNotEquals(key, ReportCache.key(bytes("{\"id\":\"1\"}"), "volume"));
+        assertNotEquals(key, ReportCache.key(bytes("{\"id\":\"2\"}"), "area"));
+    }
+
+    @Test
+    void cachedReportIsReturnedOnlyForSameContent() {
+        ReportCache cache = new ReportCache(16, 1024);
+        cache.put(ReportCache.key(bytes("a"), "area"), bytes("report"));
+        assertArrayEquals(bytes("report"), cache.get(ReportCache.key(bytes("a"), "area")));
+        assertNull(cache.get(ReportCache.key(bytes("b"), "area")));
+    }
+}
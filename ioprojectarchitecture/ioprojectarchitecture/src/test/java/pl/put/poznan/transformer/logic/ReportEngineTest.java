@@ -0,0 +1,58 @@
+package pl.put.poznan.transformer.logic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReportEngineTest {
+    private static final Set<ReportEngine.Metric> ALL_METRICS = EnumSet.allOf(ReportEngine.Metric.class);
+
+    private final ReportEngine engine = new ReportEngine();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    private ColumnarBuilding columnar(byte[] content) throws Exception {
+        return ColumnarBuilding.parse(new ByteArrayInputStream(content));
+    }
+
+    @Test
+    void parallelReportIsIdenticalToSequential() throws Exception {
+        // Above the parallel threshold, with levels of several sizes split across tasks
+        ColumnarBuilding building = columnar(TestBuildings.bytes(9, 1500));
+
+        String sequential = mapper.writeValueAsString(engine.generate(building, ALL_METRICS));
+        String parallel = mapper.writeValueAsString(engine.generate(building, ALL_METRICS, pool));
+
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void smallBuildingIsReportedSequentially() throws Exception {
+        ColumnarBuilding building = columnar(TestBuildings.bytes(3, 10));
+
+        assertEquals(mapper.writeValueAsString(engine.generate(building, ALL_METRICS)),
+                mapper.writeValueAsString(engine.generate(building, ALL_METRICS, pool)));
+    }
+
+    @Test
+    void columnarReportMatchesObjectReport() throws Exception {
+        byte[] content = TestBuildings.bytes(4, 25);
+        BuildingClasses.Building building = mapper.readValue(content, BuildingClasses.class).building;
+
+        ReportEngine.Report expected = engine.generate(building, ALL_METRICS);
+        ReportEngine.Report actual = engine.generate(columnar(content), ALL_METRICS, pool);
+
+        assertEquals(mapper.writeValueAsString(expected), mapper.writeValueAsString(actual));
+    }
+}
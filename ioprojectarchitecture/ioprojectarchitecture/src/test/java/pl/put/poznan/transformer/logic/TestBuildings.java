@@ -0,0 +1,71 @@
+package pl.put.poznan.transformer.logic;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Building documents shared by the tests
+ */
+public final class TestBuildings {
+
+    private TestBuildings() {
+    }
+
+    /**
+     * Building JSON with deterministic, non-uniform room values.
+     * Level ids are 1, 2, ..., rooms of level n have ids n00000, n00001, ..., so ids are unique
+     * in the building; every even level lists its rooms before its id, as documents written
+     * by other tools may do.
+     * @param levels Number of levels
+     * @param roomsPerLevel Number of rooms of every level
+     */
+    public static String json(int levels, int roomsPerLevel) {
+        StringBuilder json = new StringBuilder("{\"building\":{\"id\":\"B1\",\"name\":\"Test building\",\"levels\":[");
+        for (int level = 0; level < levels; level++) {
+            if (level > 0) {
+                json.append(',');
+            }
+            String header = "\"id\":\"" + levelId(level) + "\",\"name\":\"Level " + level + "\"";
+            json.append('{');
+            if (level % 2 == 0) {
+                json.append(header).append(',');
+            }
+            json.append("\"rooms\":[");
+            for (int room = 0; room < roomsPerLevel; room++) {
+                if (room > 0) {
+                    json.append(',');
+                }
+                int n = level * roomsPerLevel + room;
+                json.append(String.format(Locale.ROOT,
+                        "{\"id\":\"%s\",\"name\":\"Room %d\",\"area\":%.2f,\"cube\":%.2f,\"heating\":%.2f,"
+                                + "\"light\":%.2f}",
+                        roomId(level, room), n,
+                        10 + n % 7 * 1.25, 25 + n % 11 * 3.5, 100 + n % 13 * 7.75, 5 + n % 5 * 2.5));
+            }
+            json.append(']');
+            if (level % 2 == 1) {
+                json.append(',').append(header);
+            }
+            json.append('}');
+        }
+        return json.append("]}}").toString();
+    }
+
+    /**
+     * Id of the level at the given position
+     */
+    public static String levelId(int level) {
+        return String.valueOf(level + 1);
+    }
+
+    /**
+     * Id of the room at the given position of a level
+     */
+    public static String roomId(int level, int room) {
+        return String.valueOf((level + 1) * 100000 + room);
+    }
+
+    public static byte[] bytes(int levels, int roomsPerLevel) {
+        return json(levels, roomsPerLevel).getBytes(StandardCharsets.UTF_8);
+    }
+}
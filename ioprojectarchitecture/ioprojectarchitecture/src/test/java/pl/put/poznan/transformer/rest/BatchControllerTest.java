@@ -0,0 +1,85 @@
+package pl.put.poznan.transformer.rest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+import pl.put.poznan.transformer.logic.BatchReportProcessor;
+import pl.put.poznan.transformer.logic.ReportExecutor;
+import pl.put.poznan.transformer.logic.TestBuildings;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchControllerTest {
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+    private final ReportExecutor executor = new ReportExecutor(1, 1);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+        pool.shutdown();
+    }
+
+    private BatchController controller(long requestTimeout) {
+        return new BatchController(new BatchReportProcessor(pool, 8, 1 << 20), new HeavyRequests(executor, 5),
+                requestTimeout);
+    }
+
+    private static ResponseEntity<?> await(DeferredResult<ResponseEntity<?>> result) throws Exception {
+        CompletableFuture<Object> completed = new CompletableFuture<>();
+        result.setResultHandler(completed::complete);
+        return (ResponseEntity<?>) completed.get(10, TimeUnit.SECONDS);
+    }
+
+    private static byte[] ndjson(int buildings) throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < buildings; i++) {
+            body.write(TestBuildings.bytes(2, 3));
+            body.write('\n');
+        }
+        return body.toByteArray();
+    }
+
+    @Test
+    void batchHasItsOwnTimeout() throws Exception {
+        DeferredResult<ResponseEntity<?>> unlimited = controller(0).batchNdjson(new ByteArrayInputStream(ndjson(1)),
+                new String[]{"area"}, new MockHttpServletResponse());
+        DeferredResult<ResponseEntity<?>> limited = controller(7_200_000).batchNdjson(
+                new ByteArrayInputStream(ndjson(1)), new String[]{"area"}, new MockHttpServletResponse());
+
+        // 0 disables the servlet async timeout, null would fall back to spring.mvc.async.request-timeout
+        assertEquals(0L, ReflectionTestUtils.getField(unlimited, "timeoutValue"));
+        assertEquals(7_200_000L, ReflectionTestUtils.getField(limited, "timeoutValue"));
+    }
+
+    @Test
+    void batchIsStreamedLineByLine() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ResponseEntity<?> result = await(controller(0).batchNdjson(new ByteArrayInputStream(ndjson(25)),
+                new String[]{"area", "volume"}, response));
+
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertEquals("application/x-ndjson", response.getContentType());
+        String[] lines = response.getContentAsString().split("\n");
+        assertEquals(25, lines.length);
+        assertTrue(lines[24].startsWith("{\"index\":24,"), lines[24]);
+    }
+
+    @Test
+    void unknownMetricIsRejectedBeforeReading() throws Exception {
+        ResponseEntity<?> result = await(controller(0).batchNdjson(new ByteArrayInputStream(new byte[0]),
+                new String[]{"weight"}, new MockHttpServletResponse()));
+
+        assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
+    }
+}
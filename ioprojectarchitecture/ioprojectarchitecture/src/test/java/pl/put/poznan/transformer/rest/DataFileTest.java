@@ -0,0 +1,29 @@
+package pl.put.poznan.transformer.rest;
+
+import org.junit.jupiter.api.Test;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DataFileTest {
+    private final Path directory = Paths.get("data", "files").toAbsolutePath().normalize();
+
+    @Test
+    void namesInsideDirectoryAreResolved() {
+        assertEquals(directory.resolve("building.json"),
+                TextTransformerController.dataFile(directory, "building.json"));
+        assertEquals(directory.resolve("a").resolve("b.json"),
+                TextTransformerController.dataFile(directory, "a/./c/../b.json"));
+    }
+
+    @Test
+    void namesOutsideDirectoryAreRejected() {
+        assertNull(TextTransformerController.dataFile(directory, "../buildings.log"));
+        assertNull(TextTransformerController.dataFile(directory, "a/../../../etc/passwd"));
+        assertNull(TextTransformerController.dataFile(directory, directory.getRoot().resolve("etc").toString()));
+        assertNull(TextTransformerController.dataFile(directory, "."));
+        assertNull(TextTransformerController.dataFile(directory, "a\u0000b"));
+    }
+}
@@ -0,0 +1,55 @@
+package pl.put.poznan.transformer.rest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntityTagsTest {
+    private static final String TAG = EntityTags.of("area.JSON", "abc123");
+
+    @Test
+    void tagsAreWeakAndQuoted() {
+        assertEquals("W/\"area.JSON-abc123\"", TAG);
+        assertEquals("W/\"reportareavolume.JSON-1\"", EntityTags.of("report[area, volume].JSON", "1"));
+    }
+
+    @Test
+    void tagsOfSeveralMetricsSurviveSplittingOfTheHeader() {
+        String tag = EntityTags.of("report[area, volume].JSON", "1");
+
+        assertTrue(EntityTags.matches("\"other\", " + tag, tag));
+    }
+
+    @Test
+    void matchesWeakAndStrongFormsOfTheTag() {
+        assertTrue(EntityTags.matches(TAG, TAG));
+        assertTrue(EntityTags.matches("\"area.JSON-abc123\"", TAG));
+        assertTrue(EntityTags.matches("\"other\", W/\"area.JSON-abc123\"", TAG));
+        assertTrue(EntityTags.matches("  \"other\" ,\"area.JSON-abc123\"  ", TAG));
+        assertTrue(EntityTags.matches("*", TAG));
+    }
+
+    @Test
+    void otherTagsDoNotMatch() {
+        assertFalse(EntityTags.matches(null, TAG));
+        assertFalse(EntityTags.matches("", TAG));
+        assertFalse(EntityTags.matches("\"area.JSON-abc124\"", TAG));
+        assertFalse(EntityTags.matches("W/\"volume.JSON-abc123\"", TAG));
+        assertFalse(EntityTags.matches("area.JSON-abc123", TAG));
+    }
+
+    @Test
+    void conditionalResponsesCarryTheTag() {
+        ResponseEntity<?> notModified = EntityTags.notModified(TAG);
+        ResponseEntity<?> failed = EntityTags.preconditionFailed(TAG);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals(TAG, notModified.getHeaders().getETag());
+        assertEquals(HttpStatus.PRECONDITION_FAILED, failed.getStatusCode());
+        assertEquals(TAG, failed.getHeaders().getETag());
+    }
+}
@@ -0,0 +1,66 @@
+package pl.put.poznan.transformer.rest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import pl.put.poznan.transformer.logic.BuildingClasses;
+import pl.put.poznan.transformer.logic.DataFormat;
+import pl.put.poznan.transformer.logic.HeatingIndex;
+import pl.put.poznan.transformer.logic.ReportExecutor;
+import pl.put.poznan.transformer.logic.TestBuildings;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HeatingIndexControllerTest {
+    private final ReportExecutor executor = new ReportExecutor(2, 4);
+    private final HeatingIndexController controller = new HeatingIndexController(8, new HeavyRequests(executor, 5));
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static byte[] building(DataFormat format) throws Exception {
+        BuildingClasses wrapper = DataFormat.JSON.createReader()
+                .read(TestBuildings.bytes(2, 30), BuildingClasses.class);
+        return format.createReader().writeBytes(wrapper);
+    }
+
+    private List<?> roomsAbove(ResponseEntity<?> built, double threshold) {
+        String indexId = ((HeatingIndexController.IndexInfo) built.getBody()).indexId;
+        return (List<?>) controller.roomsAbove(indexId, threshold, 0).getBody();
+    }
+
+    @Test
+    void indexIsBuiltFromEveryFormat() throws Exception {
+        ResponseEntity<?> json = controller.buildIndexFromBody(new ByteArrayInputStream(building(DataFormat.JSON)),
+                DataFormat.JSON_VALUE).get();
+        ResponseEntity<?> smile = controller.buildIndexFromBody(
+                new ByteArrayInputStream(building(DataFormat.SMILE)), DataFormat.SMILE_VALUE).get();
+        ResponseEntity<?> cbor = controller.buildIndex(new MockMultipartFile("file", "building.cbor",
+                DataFormat.CBOR_VALUE, building(DataFormat.CBOR))).get();
+
+        for (ResponseEntity<?> built : List.of(json, smile, cbor)) {
+            assertEquals(HttpStatus.OK, built.getStatusCode());
+            assertEquals(60, ((HeatingIndexController.IndexInfo) built.getBody()).rooms);
+            assertEquals(roomsAbove(json, 4.0).size(), roomsAbove(built, 4.0).size());
+        }
+        HeatingIndex.Entry first = (HeatingIndex.Entry) roomsAbove(cbor, 4.0).get(0);
+        assertEquals(((HeatingIndex.Entry) roomsAbove(json, 4.0).get(0)).roomId, first.roomId);
+    }
+
+    @Test
+    void invalidBuildingIsRejected() throws Exception {
+        byte[] empty = "{}".getBytes(StandardCharsets.UTF_8);
+
+        ResponseEntity<?> response = controller.buildIndexFromBody(new ByteArrayInputStream(empty),
+                DataFormat.JSON_VALUE).get();
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+}
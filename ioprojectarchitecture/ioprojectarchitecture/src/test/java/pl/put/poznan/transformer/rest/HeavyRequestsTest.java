@@ -0,0 +1,111 @@
+package pl.put.poznan.transformer.rest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.DeferredResult;
+import pl.put.poznan.transformer.logic.ReportExecutor;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HeavyRequestsTest {
+    private final ReportExecutor executor = new ReportExecutor(1, 1);
+    private final HeavyRequests heavyRequests = new HeavyRequests(executor, 7);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static ResponseEntity<?> await(DeferredResult<ResponseEntity<?>> result) throws Exception {
+        CompletableFuture<Object> completed = new CompletableFuture<>();
+        result.setResultHandler(completed::complete);
+        return (ResponseEntity<?>) completed.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void requestRunsOnTheExecutor() throws Exception {
+        ResponseEntity<?> response = heavyRequests.submit(() -> ResponseEntity.ok(Thread.currentThread().getName()))
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("report-worker-1", response.getBody());
+    }
+
+    @Test
+    void saturatedExecutorAnswers503WithRetryAfter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // One request runs and one waits for the worker
+            heavyRequests.submit(() -> {
+                release.await();
+                return ResponseEntity.ok().build();
+            });
+            heavyRequests.submit(() -> ResponseEntity.ok().build());
+
+            ResponseEntity<?> rejected = heavyRequests.submit(() -> ResponseEntity.ok().build()).get();
+            ResponseEntity<?> rejectedStream = await(heavyRequests.stream(new MockHttpServletResponse(),
+                    new HttpHeaders(), null, output -> output.write(1)));
+
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatusCode());
+            assertEquals("7", rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejectedStream.getStatusCode());
+            assertEquals(2, executor.getRejectedCount());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void streamedBodyIsWrittenToTheResponse() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.TEXT_PLAIN);
+
+        ResponseEntity<?> result = await(heavyRequests.stream(response, headers, null, output -> {
+            output.write("streamed".getBytes(StandardCharsets.UTF_8));
+            output.close();
+        }));
+
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertEquals(200, response.getStatus());
+        assertEquals(MediaType.TEXT_PLAIN_VALUE, response.getContentType());
+        assertEquals("streamed", response.getContentAsString());
+    }
+
+    @Test
+    void errorBeforeTheBodyIsSentGivesErrorStatus() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+
+        ResponseEntity<?> result = await(heavyRequests.stream(response, headers, null, output -> {
+            try (OutputStream body = output) {
+                throw new PayloadTooLargeException(1000);
+            }
+        }));
+
+        assertFalse(response.isCommitted());
+        assertNull(response.getContentType());
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, result.getStatusCode());
+    }
+
+    @Test
+    void invalidRequestIsAnsweredWithoutRunning() throws Exception {
+        ResponseEntity<?> result = await(HeavyRequests.completed(ResponseEntity.badRequest().body("Unknown metric")));
+
+        assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
+        assertEquals(0, executor.getActiveCount());
+    }
+}
@@ -0,0 +1,46 @@
+package pl.put.poznan.transformer.rest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comparison of JSON trees with a tolerance for numbers, since streamed and visited
+ * totals may be summed in a different order
+ */
+final class JsonAssertions {
+    private static final double DELTA = 1e-9;
+
+    private JsonAssertions() {
+    }
+
+    static void assertJsonEquals(JsonNode expected, JsonNode actual) {
+        assertJsonEquals(expected, actual, "$");
+    }
+
+    private static void assertJsonEquals(JsonNode expected, JsonNode actual, String path) {
+        if (expected.isNumber()) {
+            assertTrue(actual.isNumber(), path + " is not a number: " + actual);
+            assertEquals(expected.doubleValue(), actual.doubleValue(), DELTA, path);
+        } else if (expected.isObject()) {
+            assertTrue(actual.isObject(), path + " is not an object: " + actual);
+            assertEquals(expected.size(), actual.size(), path + " fields: " + actual);
+            Iterator<String> fields = expected.fieldNames();
+            while (fields.hasNext()) {
+                String field = fields.next();
+                assertTrue(actual.has(field), path + " has no field " + field);
+                assertJsonEquals(expected.get(field), actual.get(field), path + "." + field);
+            }
+        } else if (expected.isArray()) {
+            assertTrue(actual.isArray(), path + " is not an array: " + actual);
+            assertEquals(expected.size(), actual.size(), path + " size");
+            for (int i = 0; i < expected.size(); i++) {
+                assertJsonEquals(expected.get(i), actual.get(i), path + "[" + i + "]");
+            }
+        } else {
+            assertEquals(expected, actual, path);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package pl.put.poznan.transformer.rest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LimitedInputStreamTest {
+
+    @Test
+    void readsContentUpToTheLimit() throws IOException {
+        byte[] content = new byte[1000];
+        try (InputStream input = new LimitedInputStream(new ByteArrayInputStream(content), content.length)) {
+            assertArrayEquals(content, input.readAllBytes());
+        }
+    }
+
+    @Test
+    void failsPastTheLimit() {
+        InputStream input = new LimitedInputStream(new ByteArrayInputStream(new byte[1001]), 1000);
+        assertThrows(PayloadTooLargeException.class, input::readAllBytes);
+    }
+
+    @Test
+    void stopsCompressedBodyExpandingPastTheLimit() throws IOException {
+        // 16 MB of zeros compress to a few kilobytes
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream output = ContentEncoding.GZIP.encode(compressed)) {
+            byte[] zeros = new byte[1024 * 1024];
+            for (int i = 0; i < 16; i++) {
+                output.write(zeros);
+            }
+        }
+        InputStream decoded = ContentEncoding.GZIP.decode(new ByteArrayInputStream(compressed.toByteArray()));
+        InputStream input = new LimitedInputStream(decoded, 1024 * 1024);
+
+        assertThrows(PayloadTooLargeException.class, () -> input.transferTo(OutputStream.nullOutputStream()));
+    }
+
+    @Test
+    void mapsWrappedLimitErrorsTo413() {
+        PayloadTooLargeException tooLarge = new PayloadTooLargeException(1000);
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, PayloadTooLargeException.status(tooLarge));
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE,
+                PayloadTooLargeException.status(new UncheckedIOException(tooLarge)));
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR,
+                PayloadTooLargeException.status(new IOException("Connection reset")));
+    }
+}
@@ -0,0 +1,137 @@
+package pl.put.poznan.transformer.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import pl.put.poznan.transformer.logic.Projection;
+import pl.put.poznan.transformer.logic.ReportEngine;
+import pl.put.poznan.transformer.logic.ReportWriter;
+import pl.put.poznan.transformer.logic.StreamingBuildingParser;
+import pl.put.poznan.transformer.logic.StreamingTotals;
+import pl.put.poznan.transformer.logic.TestBuildings;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static pl.put.poznan.transformer.rest.JsonAssertions.assertJsonEquals;
+
+/**
+ * Projected streaming reads give the same values as reading the whole document
+ */
+class ProjectionParityTest {
+    private static final double DELTA = 1e-9;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final byte[] content = TestBuildings.bytes(5, 6);
+
+    private StreamingTotals totals(Projection projection) throws Exception {
+        StreamingTotals totals = new StreamingTotals();
+        assertTrue(new StreamingBuildingParser().parse(new ByteArrayInputStream(content), totals, projection));
+        return totals;
+    }
+
+    private JsonNode streamed(ReportEngine.Metric metric, Projection projection) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(output)) {
+            new ReportWriter(generator, metric)
+                    .write(new StreamingBuildingParser(), new ByteArrayInputStream(content), projection);
+        }
+        return mapper.readTree(output.toByteArray());
+    }
+
+    @Test
+    void projectedTotalsMatchWholeDocument() throws Exception {
+        StreamingTotals all = totals(Projection.ALL);
+        for (ReportEngine.Metric metric : ReportEngine.Metric.values()) {
+            Set<ReportEngine.Metric> metrics = EnumSet.of(metric);
+            StreamingTotals projected = totals(Projection.totals(metrics));
+            assertEquals(all.getBuildingId(), projected.getBuildingId());
+            assertEquals(all.getLevels().size(), projected.getLevels().size());
+            assertEquals(all.getTotals().getRoomCount(), projected.getTotals().getRoomCount());
+            switch (metric) {
+                case AREA:
+                    assertEquals(all.getTotals().getArea(), projected.getTotals().getArea(), DELTA);
+                    break;
+                case VOLUME:
+                    assertEquals(all.getTotals().getVolume(), projected.getTotals().getVolume(), DELTA);
+                    break;
+                case LUMINOSITY:
+                    assertEquals(all.getTotals().getAverageLuminosity(),
+                            projected.getTotals().getAverageLuminosity(), DELTA);
+                    break;
+                case HEATING:
+                    assertEquals(all.getTotals().getHeating(), projected.getTotals().getHeating(), DELTA);
+                    assertEquals(all.getTotals().getHeatingPerCube(), projected.getTotals().getHeatingPerCube(), DELTA);
+                    break;
+            }
+        }
+    }
+
+    @Test
+    void levelFilterReadsOnlyThatLevel() throws Exception {
+        StreamingTotals all = totals(Projection.ALL);
+        // Even positions list the id before the rooms, odd positions after them
+        for (int level = 0; level < 5; level++) {
+            String levelId = TestBuildings.levelId(level);
+            StreamingTotals filtered = totals(Projection.ALL.level(levelId));
+            assertEquals(1, filtered.getLevels().size());
+            StreamingTotals.LevelTotals expected = all.getLevels().get(level);
+            StreamingTotals.LevelTotals actual = filtered.getLevels().get(0);
+            assertEquals(expected.id, actual.id);
+            assertEquals(expected.name, actual.name);
+            assertEquals(expected.totals.getArea(), actual.totals.getArea(), DELTA);
+            assertEquals(expected.totals.getVolume(), actual.totals.getVolume(), DELTA);
+            assertEquals(expected.totals.getHeating(), actual.totals.getHeating(), DELTA);
+            assertEquals(expected.totals.getRoomCount(), actual.totals.getRoomCount());
+        }
+        assertTrue(totals(Projection.ALL.level("404")).getLevels().isEmpty());
+    }
+
+    @Test
+    void levelReportIsReturnedForLevelId() throws Exception {
+        String levelId = TestBuildings.levelId(3);
+        StreamingTotals filtered = totals(Projection.totals(EnumSet.of(ReportEngine.Metric.AREA)).level(levelId));
+        AreaReportVisitor.AreaReport report = AreaReportVisitor.fromTotals(filtered);
+
+        ResponseEntity<?> response = TextTransformerController.streamedReport(report, r -> r.levels, levelId);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        AreaReportVisitor.LevelReport level = (AreaReportVisitor.LevelReport) response.getBody();
+        assertEquals(levelId, level.levelId);
+        assertEquals(totals(Projection.ALL).getLevels().get(3).totals.getArea(), level.totalArea, DELTA);
+
+        assertSame(report, TextTransformerController.streamedReport(report, r -> r.levels, null).getBody());
+    }
+
+    @Test
+    void unknownLevelIsNotFound() throws Exception {
+        StreamingTotals filtered = totals(Projection.totals(EnumSet.of(ReportEngine.Metric.VOLUME)).level("404"));
+        ResponseEntity<?> response = TextTransformerController.streamedReport(
+                VolumeReportVisitor.fromTotals(filtered), r -> r.levels, "404");
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void streamedLevelReportMatchesLevelOfWholeReport() throws Exception {
+        for (ReportEngine.Metric metric : ReportEngine.Metric.values()) {
+            JsonNode whole = streamed(metric, Projection.rooms(EnumSet.of(metric)));
+            String levelId = TestBuildings.levelId(1);
+            JsonNode filtered = streamed(metric, Projection.rooms(EnumSet.of(metric)).level(levelId));
+
+            assertEquals(1, filtered.get("levels").size());
+            assertJsonEquals(whole.get("levels").get(1), filtered.get("levels").get(0));
+            assertEquals(whole.get("buildingId"), filtered.get("buildingId"));
+            // Totals of a single level are not reported as building totals
+            assertEquals(whole.size() - (metric == ReportEngine.Metric.HEATING ? 2 : 1), filtered.size());
+            assertFalse(filtered.has("totalArea") || filtered.has("totalVolume")
+                    || filtered.has("averageLuminosity") || filtered.has("totalHeating"));
+        }
+    }
+}
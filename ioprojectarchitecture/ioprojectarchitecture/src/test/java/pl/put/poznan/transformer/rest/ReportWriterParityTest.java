@@ -0,0 +1,73 @@
+package pl.put.poznan.transformer.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.transformer.logic.BuildingClasses;
+import pl.put.poznan.transformer.logic.ReportEngine;
+import pl.put.poznan.transformer.logic.ReportWriter;
+import pl.put.poznan.transformer.logic.StreamingBuildingParser;
+import pl.put.poznan.transformer.logic.TestBuildings;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static pl.put.poznan.transformer.rest.JsonAssertions.assertJsonEquals;
+
+/**
+ * Reports streamed by {@link ReportWriter} have the same content as the reports of the visitors
+ */
+class ReportWriterParityTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final byte[] content = TestBuildings.bytes(4, 9);
+
+    private JsonNode streamed(ReportEngine.Metric metric) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(output)) {
+            new ReportWriter(generator, metric).write(new StreamingBuildingParser(), new ByteArrayInputStream(content));
+        }
+        return mapper.readTree(output.toByteArray());
+    }
+
+    private <V extends BuildingClasses.Visitor> JsonNode visited(V visitor, Function<V, ?> report) throws Exception {
+        mapper.readValue(content, BuildingClasses.class).building.accept(visitor);
+        return mapper.valueToTree(report.apply(visitor));
+    }
+
+    @Test
+    void areaReportMatchesVisitor() throws Exception {
+        assertJsonEquals(visited(new AreaReportVisitor(), AreaReportVisitor::getReport),
+                streamed(ReportEngine.Metric.AREA));
+    }
+
+    @Test
+    void volumeReportMatchesVisitor() throws Exception {
+        assertJsonEquals(visited(new VolumeReportVisitor(), VolumeReportVisitor::getReport),
+                streamed(ReportEngine.Metric.VOLUME));
+    }
+
+    @Test
+    void luminosityReportMatchesVisitor() throws Exception {
+        assertJsonEquals(visited(new LuminosityReportVisitor(), LuminosityReportVisitor::getReport),
+                streamed(ReportEngine.Metric.LUMINOSITY));
+    }
+
+    @Test
+    void heatingReportMatchesVisitor() throws Exception {
+        assertJsonEquals(visited(new HeatingReportVisitor(), HeatingReportVisitor::getReport),
+                streamed(ReportEngine.Metric.HEATING));
+    }
+
+    @Test
+    void documentWithoutBuildingGivesEmptyObject() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(output)) {
+            assertFalse(new ReportWriter(generator, ReportEngine.Metric.AREA)
+                    .write(new StreamingBuildingParser(), new ByteArrayInputStream("{}".getBytes())));
+        }
+        assertEquals("{}", output.toString());
+    }
+}
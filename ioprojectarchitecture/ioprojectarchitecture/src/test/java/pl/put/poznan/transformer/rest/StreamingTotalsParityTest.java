@@ -0,0 +1,90 @@
+package pl.put.poznan.transformer.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.transformer.logic.BuildingClasses;
+import pl.put.poznan.transformer.logic.StreamingBuildingParser;
+import pl.put.poznan.transformer.logic.StreamingTotals;
+import pl.put.poznan.transformer.logic.TestBuildings;
+import java.io.ByteArrayInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reports built from streamed totals match the reports of the visitors
+ */
+class StreamingTotalsParityTest {
+    private static final double DELTA = 1e-9;
+
+    private final byte[] content = TestBuildings.bytes(5, 17);
+
+    private BuildingClasses.Building building() throws Exception {
+        return new ObjectMapper().readValue(content, BuildingClasses.class).building;
+    }
+
+    private StreamingTotals totals() throws Exception {
+        StreamingTotals totals = new StreamingTotals();
+        assertTrue(new StreamingBuildingParser().parse(new ByteArrayInputStream(content), totals));
+        return totals;
+    }
+
+    @Test
+    void areaMatchesVisitor() throws Exception {
+        AreaReportVisitor visitor = new AreaReportVisitor();
+        building().accept(visitor);
+        AreaReportVisitor.AreaReport expected = visitor.getReport();
+        AreaReportVisitor.AreaReport actual = AreaReportVisitor.fromTotals(totals());
+
+        assertEquals(expected.buildingId, actual.buildingId);
+        assertEquals(expected.buildingName, actual.buildingName);
+        assertEquals(expected.totalArea, actual.totalArea, DELTA);
+        assertEquals(expected.levels.size(), actual.levels.size());
+        for (int i = 0; i < expected.levels.size(); i++) {
+            assertEquals(expected.levels.get(i).levelId, actual.levels.get(i).levelId);
+            assertEquals(expected.levels.get(i).levelName, actual.levels.get(i).levelName);
+            assertEquals(expected.levels.get(i).totalArea, actual.levels.get(i).totalArea, DELTA);
+            assertNull(actual.levels.get(i).rooms);
+        }
+    }
+
+    @Test
+    void volumeMatchesVisitor() throws Exception {
+        VolumeReportVisitor visitor = new VolumeReportVisitor();
+        building().accept(visitor);
+        VolumeReportVisitor.VolumeReport expected = visitor.getReport();
+        VolumeReportVisitor.VolumeReport actual = VolumeReportVisitor.fromTotals(totals());
+
+        assertEquals(expected.buildingId, actual.buildingId);
+        assertEquals(expected.totalVolume, actual.totalVolume, DELTA);
+        assertEquals(expected.levels.size(), actual.levels.size());
+        for (int i = 0; i < expected.levels.size(); i++) {
+            assertEquals(expected.levels.get(i).levelId, actual.levels.get(i).levelId);
+            assertEquals(expected.levels.get(i).totalVolume, actual.levels.get(i).totalVolume, DELTA);
+        }
+    }
+
+    @Test
+    void luminosityMatchesVisitor() throws Exception {
+        LuminosityReportVisitor visitor = new LuminosityReportVisitor();
+        building().accept(visitor);
+        LuminosityReportVisitor.LuminosityReport expected = visitor.getReport();
+        LuminosityReportVisitor.LuminosityReport actual = LuminosityReportVisitor.fromTotals(totals());
+
+        assertEquals(expected.buildingId, actual.buildingId);
+        assertEquals(expected.averageLuminosity, actual.averageLuminosity, DELTA);
+        assertEquals(expected.levels.size(), actual.levels.size());
+        for (int i = 0; i < expected.levels.size(); i++) {
+            assertEquals(expected.levels.get(i).levelId, actual.levels.get(i).levelId);
+            assertEquals(expected.levels.get(i).averageLuminosity, actual.levels.get(i).averageLuminosity, DELTA);
+        }
+    }
+
+    @Test
+    void documentWithoutBuildingIsNotParsed() throws Exception {
+        byte[] empty = "{\"other\":{\"levels\":[]}}".getBytes();
+        assertFalse(new StreamingBuildingParser().parse(new ByteArrayInputStream(empty), new StreamingTotals()));
+    }
+}
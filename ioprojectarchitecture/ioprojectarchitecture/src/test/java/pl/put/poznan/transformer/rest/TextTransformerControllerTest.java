@@ -0,0 +1,65 @@
+package pl.put.poznan.transformer.rest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import pl.put.poznan.transformer.logic.DataFormat;
+import pl.put.poznan.transformer.logic.FormatReaders;
+import pl.put.poznan.transformer.logic.Reader;
+import pl.put.poznan.transformer.logic.ReportCache;
+import pl.put.poznan.transformer.logic.ReportExecutor;
+import pl.put.poznan.transformer.logic.TestBuildings;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TextTransformerControllerTest {
+    private final ForkJoinPool reportPool = new ForkJoinPool(2);
+    private final ReportExecutor reportExecutor = new ReportExecutor(2, 4);
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void shutdown() {
+        reportExecutor.shutdown();
+        reportPool.shutdown();
+    }
+
+    private TextTransformerController controller() {
+        Map<DataFormat, Reader> readers = new EnumMap<>(DataFormat.class);
+        for (DataFormat format : DataFormat.values()) {
+            readers.put(format, format.createReader());
+        }
+        return new TextTransformerController(new FormatReaders(readers), new ReportCache(16, 1 << 20), reportPool,
+                new SimpleMeterRegistry(), new HeavyRequests(reportExecutor, 5), directory.toString());
+    }
+
+    private static MockMultipartFile upload(byte[] content) {
+        return new MockMultipartFile("file", "building.json", DataFormat.JSON_VALUE, content);
+    }
+
+    @Test
+    void uploadedBuildingIsProcessed() throws Exception {
+        ResponseEntity<?> response = controller().uploadJson(upload(TestBuildings.bytes(2, 3)), null).get();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    @Test
+    void brokenJsonUploadIsRejected() throws Exception {
+        byte[] broken = "{\"building\": {\"id\": \"B1\", \"levels\": [".getBytes(StandardCharsets.UTF_8);
+
+        ResponseEntity<?> response = controller().uploadJson(upload(broken), null).get();
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+}
@@ -0,0 +1,83 @@
+package pl.put.poznan.transformer.rest;
+
+import org.junit.jupiter.api.Test;
+import pl.put.poznan.transformer.logic.BuildingClasses;
+import pl.put.poznan.transformer.logic.DataFormat;
+import pl.put.poznan.transformer.logic.TestBuildings;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Totals of the visitors match the DoubleStream sums of {@link BuildingClasses}: levels sum their rooms,
+ * the building sums its level totals, luminosity averages all rooms of the building
+ */
+class VisitorTotalsParityTest {
+    private final BuildingClasses calculator = new BuildingClasses();
+
+    private BuildingClasses.Building building() throws Exception {
+        return DataFormat.JSON.createReader().read(TestBuildings.bytes(9, 250), BuildingClasses.class).building;
+    }
+
+    /**
+     * JDKs before 18 apply the final compensation of DoubleStream.sum() with the opposite sign,
+     * so results may differ from it in the last bit
+     */
+    private static void assertSameSum(double expected, double actual) {
+        assertEquals(expected, actual, Math.ulp(expected));
+    }
+
+    @Test
+    void areaMatchesStreamSums() throws Exception {
+        BuildingClasses.Building building = building();
+        AreaReportVisitor visitor = new AreaReportVisitor();
+        building.accept(visitor);
+        AreaReportVisitor.AreaReport report = visitor.getReport();
+
+        assertSameSum(calculator.calculateArea(building), report.totalArea);
+        for (int i = 0; i < building.levels.size(); i++) {
+            assertSameSum(calculator.calculateArea(building.levels.get(i)), report.levels.get(i).totalArea);
+        }
+        // The report is complete, asking again does not add the last level twice
+        assertEquals(report.totalArea, visitor.getReport().totalArea);
+    }
+
+    @Test
+    void volumeMatchesStreamSums() throws Exception {
+        BuildingClasses.Building building = building();
+        VolumeReportVisitor visitor = new VolumeReportVisitor();
+        building.accept(visitor);
+        VolumeReportVisitor.VolumeReport report = visitor.getReport();
+
+        assertSameSum(calculator.calculateVolume(building), report.totalVolume);
+        for (int i = 0; i < building.levels.size(); i++) {
+            assertSameSum(calculator.calculateVolume(building.levels.get(i)), report.levels.get(i).totalVolume);
+        }
+    }
+
+    @Test
+    void luminosityMatchesStreamAverages() throws Exception {
+        BuildingClasses.Building building = building();
+        LuminosityReportVisitor visitor = new LuminosityReportVisitor();
+        building.accept(visitor);
+        LuminosityReportVisitor.LuminosityReport report = visitor.getReport();
+
+        assertSameSum(calculator.calculateLuminosity(building), report.averageLuminosity);
+        for (int i = 0; i < building.levels.size(); i++) {
+            assertSameSum(calculator.calculateLuminosity(building.levels.get(i)),
+                    report.levels.get(i).averageLuminosity);
+        }
+    }
+
+    @Test
+    void heatingMatchesStreamSums() throws Exception {
+        BuildingClasses.Building building = building();
+        HeatingReportVisitor visitor = new HeatingReportVisitor();
+        building.accept(visitor);
+        HeatingReportVisitor.HeatingReport report = visitor.getReport();
+
+        assertSameSum(calculator.calculateHeating(building), report.heatingPerCube);
+        for (int i = 0; i < building.levels.size(); i++) {
+            assertSameSum(calculator.calculateHeating(building.levels.get(i)), report.levels.get(i).heatingPerCube);
+        }
+    }
+}